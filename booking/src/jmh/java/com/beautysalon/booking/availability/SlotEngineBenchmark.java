@@ -0,0 +1,129 @@
+package com.beautysalon.booking.availability;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Вільні слоти одного майстра на тиждень: {@link SlotEngine} проти попередньої погодинної реалізації
+ * ({@code BookingService.getAllPossibleSlots/getOccupiedSlots}: години 8..19, бронювання займає
+ * {@code duration / 60} годин від початку, обрізаного до години). Обидві працюють з даними в пам'яті,
+ * тож порівнюється лише алгоритм, без запитів до БД.
+ * <p>
+ * Запуск: {@code mvn -Pbenchmark test-compile exec:exec}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlotEngineBenchmark {
+
+    private static final int DAYS = 7;
+    private static final LocalTime WORK_START = LocalTime.of(9, 0);
+    private static final LocalTime WORK_END = LocalTime.of(18, 0);
+    private static final int SERVICE_MINUTES = 90;
+
+    @Param({"5", "15", "30", "60"})
+    public int granularityMinutes;
+
+    private SlotEngine engine;
+    private long[][] busyByDay;
+    private long[] starts;
+    private int durationCells;
+    private List<List<Interval>> bookingsByDay;
+
+    @Setup
+    public void setUp() {
+        engine = new SlotEngine(granularityMinutes);
+        starts = engine.newDayMask();
+        durationCells = engine.cellsFor(SERVICE_MINUTES);
+        busyByDay = new long[DAYS][];
+        bookingsByDay = new ArrayList<>();
+
+        Random random = new Random(42);
+        for (int day = 0; day < DAYS; day++) {
+            long[] busy = engine.newDayMask();
+            List<Interval> bookings = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                LocalTime start = WORK_START.plusMinutes(15L * random.nextInt(32));
+                int duration = 30 + 15 * random.nextInt(7);
+                bookings.add(new Interval(start, duration));
+                int to = engine.endCell(start, duration);
+                for (int cell = engine.cellFloor(start); cell < to; cell++) {
+                    SlotEngine.set(busy, cell);
+                }
+            }
+            busyByDay[day] = busy;
+            bookingsByDay.add(bookings);
+        }
+    }
+
+    @Benchmark
+    public int bitmaskWeek() {
+        int found = 0;
+        int windowStart = engine.cellCeil(WORK_START);
+        int windowEnd = engine.cellFloor(WORK_END);
+        for (long[] busy : busyByDay) {
+            found += engine.findStarts(busy, windowStart, windowEnd, durationCells, starts);
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int hourlyWeek() {
+        int found = 0;
+        for (List<Interval> bookings : bookingsByDay) {
+            Set<LocalTime> free = allPossibleSlots();
+            free.removeAll(occupiedSlots(bookings));
+            found += free.size();
+        }
+        return found;
+    }
+
+    private static Set<LocalTime> allPossibleSlots() {
+        Set<LocalTime> allSlots = new HashSet<>();
+        for (int hour = 8; hour < 20; hour++) {
+            allSlots.add(LocalTime.of(hour, 0));
+        }
+        return allSlots;
+    }
+
+    private static Set<LocalTime> occupiedSlots(List<Interval> bookings) {
+        Set<LocalTime> occupiedSlots = new HashSet<>();
+        for (Interval booking : bookings) {
+            LocalTime startTime = booking.start().truncatedTo(ChronoUnit.HOURS);
+            int numberOfSlots = booking.durationMinutes() / 60;
+            for (int i = 0; i < numberOfSlots; i++) {
+                occupiedSlots.add(startTime.plusHours(i));
+            }
+        }
+        for (LocalTime slot : allPossibleSlots()) {
+            LocalTime slotEnd = slot.plusHours(1);
+            if (slot.isBefore(WORK_START) || slotEnd.isAfter(WORK_END)) {
+                occupiedSlots.add(slot);
+            }
+        }
+        return occupiedSlots;
+    }
+
+    private record Interval(LocalTime start, int durationMinutes) {}
+}
@@ -2,10 +2,12 @@ package com.beautysalon.booking;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.scheduling.annotation.EnableAsync; 
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableAsync(proxyTargetClass = true) // Виправлення помилки з Proxy
+@EnableScheduling
+@EnableCaching
 public class BookingApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,42 @@
+package com.beautysalon.booking.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Позиція в журналі бронювань для keyset-пагінації: ключ останнього
+ * показаного запису (дата, час, id). Передається клієнту як непрозорий рядок.
+ */
+public class BookingCursor {
+    private final LocalDate bookingDate;
+    private final LocalTime bookingTime;
+    private final UUID bookingId;
+
+    public BookingCursor(LocalDate bookingDate, LocalTime bookingTime, UUID bookingId) {
+        this.bookingDate = bookingDate;
+        this.bookingTime = bookingTime;
+        this.bookingId = bookingId;
+    }
+
+    public String encode() {
+        String raw = bookingDate + "|" + bookingTime + "|" + bookingId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BookingCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            return new BookingCursor(LocalDate.parse(parts[0]), LocalTime.parse(parts[1]), UUID.fromString(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Некоректний курсор сторінки.");
+        }
+    }
+
+    public LocalDate getBookingDate() { return bookingDate; }
+    public LocalTime getBookingTime() { return bookingTime; }
+    public UUID getBookingId() { return bookingId; }
+}
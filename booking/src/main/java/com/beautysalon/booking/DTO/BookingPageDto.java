@@ -0,0 +1,22 @@
+package com.beautysalon.booking.dto;
+
+import com.beautysalon.booking.entity.Booking;
+
+import java.util.List;
+
+/**
+ * Одна сторінка журналу бронювань. {@code nextCursor} дорівнює null на останній сторінці.
+ */
+public class BookingPageDto {
+    private final List<Booking> bookings;
+    private final String nextCursor;
+
+    public BookingPageDto(List<Booking> bookings, String nextCursor) {
+        this.bookings = bookings;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Booking> getBookings() { return bookings; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean isHasNext() { return nextCursor != null; }
+}
@@ -0,0 +1,48 @@
+package com.beautysalon.booking.dto;
+
+import com.beautysalon.booking.entity.Booking;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * Рядок журналу бронювань для JSON API адміністратора (без вкладених сутностей).
+ */
+public class BookingRowDto {
+    private final UUID bookingId;
+    private final LocalDate bookingDate;
+    private final LocalTime bookingTime;
+    private final String status;
+    private final double totalPrice;
+    private final String clientName;
+    private final UUID masterId;
+    private final String masterName;
+    private final String serviceName;
+    private final LocalDateTime paymentDate;
+
+    public BookingRowDto(Booking booking) {
+        this.bookingId = booking.getBookingId();
+        this.bookingDate = booking.getBookingDate();
+        this.bookingTime = booking.getBookingTime();
+        this.status = booking.getStatus().name();
+        this.totalPrice = booking.getTotalPrice();
+        this.clientName = booking.getClient().getName();
+        this.masterId = booking.getMaster().getMasterId();
+        this.masterName = booking.getMaster().getUser().getName();
+        this.serviceName = booking.getService().getName();
+        this.paymentDate = booking.getPayment() != null ? booking.getPayment().getPaymentDate() : null;
+    }
+
+    public UUID getBookingId() { return bookingId; }
+    public LocalDate getBookingDate() { return bookingDate; }
+    public LocalTime getBookingTime() { return bookingTime; }
+    public String getStatus() { return status; }
+    public double getTotalPrice() { return totalPrice; }
+    public String getClientName() { return clientName; }
+    public UUID getMasterId() { return masterId; }
+    public String getMasterName() { return masterName; }
+    public String getServiceName() { return serviceName; }
+    public LocalDateTime getPaymentDate() { return paymentDate; }
+}
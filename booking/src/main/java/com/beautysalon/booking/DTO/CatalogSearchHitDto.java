@@ -0,0 +1,38 @@
+package com.beautysalon.booking.dto;
+
+import java.util.UUID;
+
+/**
+ * Результат пошуку по каталогу: послуга конкретного майстра.
+ */
+public class CatalogSearchHitDto {
+    private final UUID serviceId;
+    private final String serviceName;
+    private final UUID masterId;
+    private final String masterName;
+    private final String specialization;
+    private final double price;
+    private final int durationMinutes;
+    private final double score;
+
+    public CatalogSearchHitDto(UUID serviceId, String serviceName, UUID masterId, String masterName,
+                               String specialization, double price, int durationMinutes, double score) {
+        this.serviceId = serviceId;
+        this.serviceName = serviceName;
+        this.masterId = masterId;
+        this.masterName = masterName;
+        this.specialization = specialization;
+        this.price = price;
+        this.durationMinutes = durationMinutes;
+        this.score = score;
+    }
+
+    public UUID getServiceId() { return serviceId; }
+    public String getServiceName() { return serviceName; }
+    public UUID getMasterId() { return masterId; }
+    public String getMasterName() { return masterName; }
+    public String getSpecialization() { return specialization; }
+    public double getPrice() { return price; }
+    public int getDurationMinutes() { return durationMinutes; }
+    public double getScore() { return score; }
+}
@@ -0,0 +1,25 @@
+package com.beautysalon.booking.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Картка відгуку на головній сторінці.
+ */
+public class ReviewCardDto {
+    private final String clientName;
+    private final int rating;
+    private final String comment;
+    private final LocalDateTime createdAt;
+
+    public ReviewCardDto(String clientName, int rating, String comment, LocalDateTime createdAt) {
+        this.clientName = clientName;
+        this.rating = rating;
+        this.comment = comment;
+        this.createdAt = createdAt;
+    }
+
+    public String getClientName() { return clientName; }
+    public int getRating() { return rating; }
+    public String getComment() { return comment; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
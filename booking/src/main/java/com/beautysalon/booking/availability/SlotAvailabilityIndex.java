@@ -0,0 +1,280 @@
+package com.beautysalon.booking.availability;
+
+import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.Schedule;
+import com.beautysalon.booking.repository.IBookingRepository;
+import com.beautysalon.booking.repository.IScheduleRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory індекс зайнятості слотів майстра по днях.
+ * Кожен день зберігається як бітова маска клітинок {@link SlotEngine}, тому
+ * відповідь на запит вільних слотів не потребує звернення до БД.
+ * День завантажується з БД лише при першому зверненні, а далі
+ * оновлюється "на місці" при створенні/скасуванні бронювання та зміні розкладу.
+ * Якщо кілька екземплярів працюють з однією БД, {@code booking.availability.max-age-seconds}
+ * обмежує час життя дня в індексі, щоб підхоплювати бронювання з інших вузлів; у режимі
+ * {@code cluster} значення 0 замінюється на {@value #CLUSTER_DEFAULT_MAX_AGE_SECONDS} с.
+ * Про кожну зміну дня повідомляються слухачі {@link #addDayChangeListener} (живий потік слотів).
+ * Минулі дні більше не бронюються, тому {@link #evictPastDays()} щоночі прибирає їх з індексу.
+ */
+@Component
+public class SlotAvailabilityIndex {
+
+    static final long CLUSTER_DEFAULT_MAX_AGE_SECONDS = 5;
+
+    private final IBookingRepository bookingRepository;
+    private final IScheduleRepository scheduleRepository;
+    private final SlotEngine slotEngine;
+    private final ConcurrentHashMap<DayKey, DayAvailability> days = new ConcurrentHashMap<>();
+    private final ThreadLocal<long[]> startsBuffer;
+    private final long maxAgeNanos;
+    private final List<BiConsumer<UUID, LocalDate>> dayChangeListeners = new CopyOnWriteArrayList<>();
+
+    public SlotAvailabilityIndex(IBookingRepository bookingRepository, IScheduleRepository scheduleRepository,
+                                 SlotEngine slotEngine,
+                                 @Value("${booking.reservation.mode:local}") String reservationMode,
+                                 @Value("${booking.availability.max-age-seconds:0}") long maxAgeSeconds) {
+        this.bookingRepository = bookingRepository;
+        this.scheduleRepository = scheduleRepository;
+        this.slotEngine = slotEngine;
+        // Без обмеження віку день, змінений на іншому вузлі, лишався б застарілим до перезапуску
+        if ("cluster".equalsIgnoreCase(reservationMode) && maxAgeSeconds <= 0) {
+            maxAgeSeconds = CLUSTER_DEFAULT_MAX_AGE_SECONDS;
+            System.out.println("[SlotAvailabilityIndex] Режим cluster: booking.availability.max-age-seconds = "
+                    + maxAgeSeconds);
+        }
+        this.maxAgeNanos = TimeUnit.SECONDS.toNanos(maxAgeSeconds);
+        this.startsBuffer = ThreadLocal.withInitial(slotEngine::newDayMask);
+    }
+
+    /**
+     * Слухач викликається після зміни зайнятості або робочого вікна дня (майстер, дата)
+     * в потоці, який вніс зміну, тому має працювати швидко.
+     */
+    public void addDayChangeListener(BiConsumer<UUID, LocalDate> listener) {
+        dayChangeListeners.add(listener);
+    }
+
+    /**
+     * Повертає час початку всіх слотів, у які повністю вміщується послуга
+     * заданої тривалості в межах робочого вікна майстра.
+     */
+    public List<String> getAvailableStarts(UUID masterId, LocalDate date, int durationMinutes) {
+        DaySnapshot snapshot = getDay(masterId, date).snapshot;
+        if (!snapshot.hasSchedule()) {
+            return new ArrayList<>();
+        }
+        long[] starts = startsBuffer.get();
+        int found = slotEngine.findStarts(snapshot.busy, snapshot.workStartCell, snapshot.workEndCell,
+                slotEngine.cellsFor(durationMinutes), starts);
+
+        List<String> result = new ArrayList<>(found);
+        for (int cell = snapshot.workStartCell; cell < snapshot.workEndCell && result.size() < found; cell++) {
+            if (SlotEngine.isSet(starts, cell)) {
+                result.add(slotEngine.labelOf(cell));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Перевіряє, чи вміщується інтервал [time, time + duration) у робоче вікно
+     * майстра без перетину з іншими бронюваннями.
+     */
+    public boolean isFree(UUID masterId, LocalDate date, LocalTime time, int durationMinutes) {
+        DaySnapshot snapshot = getDay(masterId, date).snapshot;
+        if (!fitsWorkWindow(snapshot, time, durationMinutes)) {
+            return false;
+        }
+        int to = slotEngine.endCell(time, durationMinutes);
+        for (int cell = slotEngine.cellFloor(time); cell < to; cell++) {
+            if (SlotEngine.isSet(snapshot.busy, cell)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Перевіряє лише робоче вікно майстра, без урахування бронювань.
+     */
+    public boolean fitsWorkWindow(UUID masterId, LocalDate date, LocalTime time, int durationMinutes) {
+        return fitsWorkWindow(getDay(masterId, date).snapshot, time, durationMinutes);
+    }
+
+    private boolean fitsWorkWindow(DaySnapshot snapshot, LocalTime time, int durationMinutes) {
+        if (!snapshot.hasSchedule()) {
+            return false;
+        }
+        int startMinute = time.getHour() * 60 + time.getMinute();
+        return startMinute >= slotEngine.minuteOf(snapshot.workStartCell)
+                && startMinute + durationMinutes <= slotEngine.minuteOf(snapshot.workEndCell);
+    }
+
+    public void bookingAdded(UUID masterId, LocalDate date, LocalTime time, int durationMinutes) {
+        days.computeIfPresent(new DayKey(masterId, date.toEpochDay()), (k, day) -> {
+            day.addBooking(time, durationMinutes);
+            return day;
+        });
+        dayChanged(masterId, date);
+    }
+
+    public void bookingCancelled(UUID masterId, LocalDate date, LocalTime time, int durationMinutes) {
+        days.computeIfPresent(new DayKey(masterId, date.toEpochDay()), (k, day) -> {
+            day.removeBooking(time, durationMinutes);
+            return day;
+        });
+        dayChanged(masterId, date);
+    }
+
+    public void scheduleChanged(UUID masterId, LocalDate date, LocalTime workStart, LocalTime workEnd) {
+        days.computeIfPresent(new DayKey(masterId, date.toEpochDay()), (k, day) -> {
+            day.setWorkWindow(workStart, workEnd);
+            return day;
+        });
+        dayChanged(masterId, date);
+    }
+
+    /**
+     * Скидає день з індексу; наступний запит перечитає його з БД.
+     */
+    public void invalidate(UUID masterId, LocalDate date) {
+        days.remove(new DayKey(masterId, date.toEpochDay()));
+        dayChanged(masterId, date);
+    }
+
+    // Дні до сьогодні: запит минулої дати (історія майстра) просто завантажить день знову
+    @Scheduled(cron = "${booking.availability.evict-cron:0 5 0 * * *}")
+    public void evictPastDays() {
+        long today = LocalDate.now().toEpochDay();
+        int before = days.size();
+        days.keySet().removeIf(key -> key.epochDay() < today);
+        int removed = before - days.size();
+        if (removed > 0) {
+            System.out.println("[SlotAvailabilityIndex] Прибрано минулих днів: " + removed);
+        }
+    }
+
+    int cachedDays() {
+        return days.size();
+    }
+
+    private void dayChanged(UUID masterId, LocalDate date) {
+        for (BiConsumer<UUID, LocalDate> listener : dayChangeListeners) {
+            listener.accept(masterId, date);
+        }
+    }
+
+    /**
+     * Тривалість бронювання в хвилинах: зі збереженого часу завершення
+     * або, для старих записів, з тривалості послуги.
+     */
+    public static int durationOf(Booking booking) {
+        if (booking.getBookingEndTime() != null) {
+            return (int) Duration.between(booking.getBookingTime(), booking.getBookingEndTime()).toMinutes();
+        }
+        return booking.getService().getDurationMinutes();
+    }
+
+    private DayAvailability getDay(UUID masterId, LocalDate date) {
+        DayKey key = new DayKey(masterId, date.toEpochDay());
+        DayAvailability day = days.get(key);
+        if (day != null && maxAgeNanos > 0 && System.nanoTime() - day.loadedAtNanos > maxAgeNanos) {
+            days.remove(key, day);
+            day = null;
+        }
+        if (day == null) {
+            day = days.computeIfAbsent(key, k -> load(masterId, date));
+        }
+        return day;
+    }
+
+    private DayAvailability load(UUID masterId, LocalDate date) {
+        DayAvailability day = new DayAvailability(slotEngine);
+
+        List<Schedule> schedules = scheduleRepository.findByMasterMasterIdAndWorkDate(masterId, date);
+        if (!schedules.isEmpty()) {
+            Schedule schedule = schedules.get(0);
+            day.setWorkWindow(schedule.getStartTime(), schedule.getEndTime());
+        }
+
+        // Час завершення заповнений для всіх бронювань (див. DatabaseInitializer)
+        for (Object[] interval : bookingRepository.findActiveIntervals(masterId, date)) {
+            LocalTime start = (LocalTime) interval[0];
+            LocalTime end = (LocalTime) interval[1];
+            day.addBooking(start, (int) Duration.between(start, end).toMinutes());
+        }
+        return day;
+    }
+
+    private record DayKey(UUID masterId, long epochDay) {}
+
+    /**
+     * Незмінний знімок дня: читачі бачать узгоджений стан без блокувань.
+     */
+    private record DaySnapshot(long[] busy, int workStartCell, int workEndCell) {
+        boolean hasSchedule() {
+            return workStartCell >= 0 && workEndCell > workStartCell;
+        }
+    }
+
+    /**
+     * Стан одного дня. Лічильники дозволяють коректно звільняти клітинку,
+     * якщо на неї припадало кілька бронювань.
+     */
+    private static final class DayAvailability {
+        private final SlotEngine engine;
+        private final short[] bookingCounts;
+        private final long loadedAtNanos = System.nanoTime();
+        private volatile DaySnapshot snapshot;
+
+        DayAvailability(SlotEngine engine) {
+            this.engine = engine;
+            this.bookingCounts = new short[engine.getCellsPerDay()];
+            this.snapshot = new DaySnapshot(engine.newDayMask(), -1, -1);
+        }
+
+        synchronized void addBooking(LocalTime time, int durationMinutes) {
+            long[] busy = snapshot.busy.clone();
+            int to = engine.endCell(time, durationMinutes);
+            for (int cell = engine.cellFloor(time); cell < to; cell++) {
+                bookingCounts[cell]++;
+                SlotEngine.set(busy, cell);
+            }
+            snapshot = new DaySnapshot(busy, snapshot.workStartCell, snapshot.workEndCell);
+        }
+
+        synchronized void removeBooking(LocalTime time, int durationMinutes) {
+            long[] busy = snapshot.busy.clone();
+            int to = engine.endCell(time, durationMinutes);
+            for (int cell = engine.cellFloor(time); cell < to; cell++) {
+                if (bookingCounts[cell] > 0 && --bookingCounts[cell] == 0) {
+                    SlotEngine.clear(busy, cell);
+                }
+            }
+            snapshot = new DaySnapshot(busy, snapshot.workStartCell, snapshot.workEndCell);
+        }
+
+        synchronized void setWorkWindow(LocalTime workStart, LocalTime workEnd) {
+            if (workStart == null || workEnd == null) {
+                snapshot = new DaySnapshot(snapshot.busy, -1, -1);
+                return;
+            }
+            snapshot = new DaySnapshot(snapshot.busy, engine.cellCeil(workStart), engine.cellFloor(workEnd));
+        }
+    }
+}
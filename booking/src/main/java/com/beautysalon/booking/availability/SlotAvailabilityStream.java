@@ -0,0 +1,208 @@
+package com.beautysalon.booking.availability;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Живий потік вільних слотів (Server-Sent Events) для сторінки бронювання.
+ * <p>
+ * Підписник отримує подію {@code snapshot} з поточним списком слотів, а далі події {@code delta}
+ * ({@code added}/{@code removed}) щоразу, коли {@link SlotAvailabilityIndex} змінює день
+ * (створення чи скасування бронювання, зміна розкладу).
+ * <p>
+ * Підписники групуються за (майстер, дата, тривалість послуги): при зміні дня слоти
+ * обчислюються та серіалізуються один раз на групу і той самий рядок розсилається всім її підписникам.
+ * Розсилку виконує невеликий пул {@code booking.slots.stream.fanout-threads}, серія змін
+ * одного дня, що надійшла до початку перерахунку, обробляється одним перерахунком.
+ * Бездіяльні з'єднання потоків не займають (асинхронні запити сервлета); періодичний коментар-heartbeat
+ * не дає проксі закрити з'єднання і виявляє клієнтів, що відключилися.
+ */
+@Component
+public class SlotAvailabilityStream {
+
+    private final SlotAvailabilityIndex availabilityIndex;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService fanout;
+    private final long timeoutMillis;
+    private final Map<DayKey, DayChannel> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final AtomicLong eventIds = new AtomicLong();
+
+    public SlotAvailabilityStream(SlotAvailabilityIndex availabilityIndex,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${booking.slots.stream.fanout-threads:2}") int fanoutThreads,
+                                  @Value("${booking.slots.stream.timeout-minutes:30}") long timeoutMinutes) {
+        this.availabilityIndex = availabilityIndex;
+        this.objectMapper = objectMapper;
+        this.timeoutMillis = timeoutMinutes * 60_000;
+        AtomicInteger threadIds = new AtomicInteger();
+        this.fanout = Executors.newFixedThreadPool(Math.max(1, fanoutThreads), runnable -> {
+            Thread thread = new Thread(runnable, "slot-stream-" + threadIds.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("booking.slots.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Відкриті потоки вільних слотів")
+                .register(meterRegistry);
+        availabilityIndex.addDayChangeListener(this::dayChanged);
+    }
+
+    @PreDestroy
+    void stop() {
+        fanout.shutdownNow();
+        channels.values().forEach(channel -> channel.groups.values()
+                .forEach(group -> group.subscribers.forEach(SseEmitter::complete)));
+    }
+
+    @Scheduled(fixedRateString = "${booking.slots.stream.heartbeat-ms:30000}")
+    public void heartbeat() {
+        execute(() -> channels.values().forEach(channel -> channel.groups.values()
+                .forEach(group -> group.subscribers.forEach(this::ping))));
+    }
+
+    /**
+     * Відкриває потік для дня майстра. Знімок слотів надсилається з пулу розсилки,
+     * а не з потоку запиту: день може довантажуватися з БД.
+     */
+    public SseEmitter subscribe(UUID masterId, LocalDate date, int durationMinutes) {
+        // Після тайм-ауту EventSource перепідключається сам і отримує свіжий знімок
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        DayKey key = new DayKey(masterId, date);
+        DurationGroup[] joined = new DurationGroup[1];
+        // compute тримає ключ дня заблокованим: відписка не прибере групу, до якої саме додається підписник
+        channels.compute(key, (k, channel) -> {
+            DayChannel target = channel != null ? channel : new DayChannel();
+            joined[0] = target.groups.computeIfAbsent(durationMinutes, d -> new DurationGroup());
+            joined[0].subscribers.add(emitter);
+            return target;
+        });
+        DurationGroup group = joined[0];
+        subscriberCount.incrementAndGet();
+
+        Runnable unsubscribe = () -> channels.computeIfPresent(key, (k, channel) -> {
+            if (group.subscribers.remove(emitter)) {
+                subscriberCount.decrementAndGet();
+            }
+            if (group.subscribers.isEmpty()) {
+                channel.groups.remove(durationMinutes, group);
+            }
+            return channel.groups.isEmpty() ? null : channel;
+        });
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+
+        execute(() -> {
+            // Під монітором групи: знімок не обжене дельту, обчислену пізніше
+            synchronized (group) {
+                List<String> slots = availabilityIndex.getAvailableStarts(masterId, date, durationMinutes);
+                if (group.lastSlots == null) {
+                    group.lastSlots = slots;
+                }
+                send(emitter, "snapshot", toJson(slots));
+            }
+        });
+        return emitter;
+    }
+
+    private void dayChanged(UUID masterId, LocalDate date) {
+        DayChannel channel = channels.get(new DayKey(masterId, date));
+        // Перерахунок уже в черзі: він побачить і цю зміну
+        if (channel == null || !channel.recomputeQueued.compareAndSet(false, true)) {
+            return;
+        }
+        execute(() -> {
+            channel.recomputeQueued.set(false);
+            channel.groups.forEach((durationMinutes, group) -> publishDelta(masterId, date, durationMinutes, group));
+        });
+    }
+
+    private void publishDelta(UUID masterId, LocalDate date, int durationMinutes, DurationGroup group) {
+        synchronized (group) {
+            List<String> slots = availabilityIndex.getAvailableStarts(masterId, date, durationMinutes);
+            List<String> previous = group.lastSlots == null ? List.of() : group.lastSlots;
+            group.lastSlots = slots;
+
+            Set<String> added = new LinkedHashSet<>(slots);
+            previous.forEach(added::remove);
+            Set<String> removed = new LinkedHashSet<>(previous);
+            slots.forEach(removed::remove);
+            if (added.isEmpty() && removed.isEmpty()) {
+                return;
+            }
+            String delta = toJson(Map.of("added", added, "removed", removed));
+            for (SseEmitter emitter : group.subscribers) {
+                send(emitter, "delta", delta);
+            }
+        }
+    }
+
+    private void send(SseEmitter emitter, String name, String json) {
+        try {
+            emitter.send(SseEmitter.event().id(Long.toString(eventIds.incrementAndGet())).name(name).data(json));
+        } catch (IOException | IllegalStateException e) {
+            // Клієнт відключився: onError/onCompletion приберуть підписку
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void ping(SseEmitter emitter) {
+        try {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void execute(Runnable task) {
+        try {
+            fanout.execute(task);
+        } catch (RejectedExecutionException e) {
+            // застосунок зупиняється
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не вдалося серіалізувати слоти", e);
+        }
+    }
+
+    private record DayKey(UUID masterId, LocalDate date) {}
+
+    private static final class DayChannel {
+        private final Map<Integer, DurationGroup> groups = new ConcurrentHashMap<>();
+        private final AtomicBoolean recomputeQueued = new AtomicBoolean();
+    }
+
+    // Підписники з однаковою тривалістю послуги бачать однаковий список слотів
+    private static final class DurationGroup {
+        private final Set<SseEmitter> subscribers = ConcurrentHashMap.newKeySet();
+        private List<String> lastSlots;
+    }
+}
@@ -0,0 +1,126 @@
+package com.beautysalon.booking.availability;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalTime;
+
+/**
+ * Рушій слотів з налаштовуваною гранулярністю (5/15/30/60 хв).
+ * День розбивається на клітинки по {@code granularityMinutes} хвилин і
+ * зберігається як бітова маска у {@code long[]} (біт = клітинка зайнята).
+ * Пошук вільних проміжків не створює об'єктів, тому тиждень для одного
+ * майстра обчислюється за мікросекунди.
+ */
+@Component
+public class SlotEngine {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final int granularityMinutes;
+    private final int cellsPerDay;
+    private final int wordsPerDay;
+    private final String[] cellLabels;
+
+    public SlotEngine(@Value("${booking.slots.granularity-minutes:30}") int granularityMinutes) {
+        if (granularityMinutes < 1 || granularityMinutes > 60 || MINUTES_PER_DAY % granularityMinutes != 0) {
+            throw new IllegalStateException("Некоректна гранулярність слотів: " + granularityMinutes + " хв.");
+        }
+        this.granularityMinutes = granularityMinutes;
+        this.cellsPerDay = MINUTES_PER_DAY / granularityMinutes;
+        this.wordsPerDay = (cellsPerDay + 63) >>> 6;
+        this.cellLabels = new String[cellsPerDay];
+        for (int cell = 0; cell < cellsPerDay; cell++) {
+            cellLabels[cell] = timeOf(cell).toString();
+        }
+    }
+
+    public int getGranularityMinutes() {
+        return granularityMinutes;
+    }
+
+    public int getCellsPerDay() {
+        return cellsPerDay;
+    }
+
+    public long[] newDayMask() {
+        return new long[wordsPerDay];
+    }
+
+    // Клітинка, в яку потрапляє момент часу (округлення вниз)
+    public int cellFloor(LocalTime time) {
+        return (time.getHour() * 60 + time.getMinute()) / granularityMinutes;
+    }
+
+    // Перша клітинка, що починається не раніше моменту часу (округлення вгору)
+    public int cellCeil(LocalTime time) {
+        int minutes = time.getHour() * 60 + time.getMinute();
+        return (minutes + granularityMinutes - 1) / granularityMinutes;
+    }
+
+    public int cellsFor(int durationMinutes) {
+        return Math.max(1, (durationMinutes + granularityMinutes - 1) / granularityMinutes);
+    }
+
+    /**
+     * Кінець інтервалу у клітинках (виключно). Інтервал, що переходить
+     * через північ, обрізається кінцем дня.
+     */
+    public int endCell(LocalTime start, int durationMinutes) {
+        int endMinutes = start.getHour() * 60 + start.getMinute() + durationMinutes;
+        return Math.min(cellsPerDay, (endMinutes + granularityMinutes - 1) / granularityMinutes);
+    }
+
+    public int minuteOf(int cell) {
+        return cell * granularityMinutes;
+    }
+
+    public LocalTime timeOf(int cell) {
+        int minutes = cell * granularityMinutes;
+        return LocalTime.of(minutes / 60, minutes % 60);
+    }
+
+    public String labelOf(int cell) {
+        return cellLabels[cell];
+    }
+
+    public static boolean isSet(long[] mask, int cell) {
+        return (mask[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    public static void set(long[] mask, int cell) {
+        mask[cell >>> 6] |= 1L << cell;
+    }
+
+    public static void clear(long[] mask, int cell) {
+        mask[cell >>> 6] &= ~(1L << cell);
+    }
+
+    /**
+     * Знаходить усі клітинки-початки в межах робочого вікна [windowStart, windowEnd),
+     * з яких послуга тривалістю {@code durationCells} повністю вміщується у вільний проміжок.
+     * Результат записується в {@code startsOut} як бітова маска.
+     *
+     * @return кількість знайдених початків
+     */
+    public int findStarts(long[] busy, int windowStart, int windowEnd, int durationCells, long[] startsOut) {
+        for (int i = 0; i < startsOut.length; i++) {
+            startsOut[i] = 0L;
+        }
+        int from = Math.max(0, windowStart);
+        int to = Math.min(cellsPerDay, windowEnd);
+        int found = 0;
+        int freeRun = 0;
+        for (int cell = from; cell < to; cell++) {
+            if (isSet(busy, cell)) {
+                freeRun = 0;
+                continue;
+            }
+            if (++freeRun >= durationCells) {
+                set(startsOut, cell - durationCells + 1);
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,168 @@
+package com.beautysalon.booking.availability;
+
+import com.beautysalon.booking.entity.Schedule;
+import com.beautysalon.booking.repository.IBookingRepository;
+import com.beautysalon.booking.repository.IScheduleRepository;
+import com.beautysalon.booking.service.TransientFailureException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Атомарне резервування інтервалу (майстер, дата, час).
+ * <p>
+ * Режим {@code local}: запити серіалізуються лише в межах однієї "смуги" блокувань,
+ * яка визначається парою майстер/день, тому бронювання різних майстрів
+ * виконуються паралельно.
+ * <p>
+ * Режим {@code cluster}: для кількох екземплярів застосунку над однією БД.
+ * Блокується рядок розкладу (SELECT ... FOR UPDATE), а перетини перевіряються
+ * по таблиці bookings в тій самій транзакції; при конфлікті блокувань запит повторюється.
+ * <p>
+ * Унікальний індекс uk_bookings_master_slot ловить лише два активні бронювання з однаковим часом початку;
+ * перетини інтервалів з різним початком відсікають тільки блокування вище, тож обхід цього сервісу
+ * (пряма вставка в bookings) від них не захищений.
+ */
+@Service
+public class SlotReservationService {
+
+    private static final long LOCK_TIMEOUT_SECONDS = 5;
+    private static final long BASE_BACKOFF_MILLIS = 25;
+
+    private final SlotAvailabilityIndex availabilityIndex;
+    private final IBookingRepository bookingRepository;
+    private final IScheduleRepository scheduleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantLock[] stripes;
+    private final boolean clusterMode;
+    private final int maxAttempts;
+
+    public SlotReservationService(SlotAvailabilityIndex availabilityIndex,
+                                  IBookingRepository bookingRepository,
+                                  IScheduleRepository scheduleRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${booking.reservation.lock-stripes:64}") int stripeCount,
+                                  @Value("${booking.reservation.mode:local}") String mode,
+                                  @Value("${booking.reservation.cluster.max-attempts:5}") int maxAttempts) {
+        this.availabilityIndex = availabilityIndex;
+        this.bookingRepository = bookingRepository;
+        this.scheduleRepository = scheduleRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clusterMode = "cluster".equalsIgnoreCase(mode);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        // Кількість смуг округлюємо до степеня двійки, щоб індекс рахувався маскою
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Виконує {@code action} (збереження бронювання) лише якщо інтервал вільний.
+     * Перевірка та збереження відбуваються атомарно, а транзакція фіксується
+     * до зняття блокування.
+     */
+    public <T> T reserve(UUID masterId, LocalDate date, LocalTime time, int durationMinutes, Supplier<T> action) {
+        if (clusterMode) {
+            T result = reserveWithRowLock(masterId, date, time, durationMinutes, action);
+            availabilityIndex.bookingAdded(masterId, date, time, durationMinutes);
+            return result;
+        }
+        return reserveWithStripeLock(masterId, date, time, durationMinutes, action);
+    }
+
+    private <T> T reserveWithStripeLock(UUID masterId, LocalDate date, LocalTime time, int durationMinutes,
+                                        Supplier<T> action) {
+        ReentrantLock lock = stripeFor(masterId, date);
+        try {
+            if (!lock.tryLock(LOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw TransientFailureException.unavailable("Сервер перевантажений, спробуйте забронювати ще раз.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw TransientFailureException.unavailable("Резервування перервано.");
+        }
+
+        try {
+            if (!availabilityIndex.isFree(masterId, date, time, durationMinutes)) {
+                throw new RuntimeException("Обраний час уже зайнято або він поза робочим графіком майстра.");
+            }
+            T result = executeInTransaction(action);
+            // Ще під блокуванням: наступний запит смуги перевіряє індекс і мусить бачити цей запис
+            availabilityIndex.bookingAdded(masterId, date, time, durationMinutes);
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> T reserveWithRowLock(UUID masterId, LocalDate date, LocalTime time, int durationMinutes,
+                                     Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return executeInTransaction(() -> {
+                    List<Schedule> schedules = scheduleRepository.lockByMasterIdAndWorkDate(masterId, date);
+                    if (schedules.isEmpty() || !fitsSchedule(schedules.get(0), time, durationMinutes)) {
+                        throw new RuntimeException("Обраний час поза робочим графіком майстра.");
+                    }
+                    if (bookingRepository.existsOverlapping(masterId, date, time, time.plusMinutes(durationMinutes))) {
+                        throw new RuntimeException("Обраний час уже зайнято.");
+                    }
+                    return action.get();
+                });
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw TransientFailureException.unavailable("Сервер перевантажений, спробуйте забронювати ще раз.");
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    private <T> T executeInTransaction(Supplier<T> action) {
+        try {
+            return transactionTemplate.execute(status -> action.get());
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException("Обраний час уже зайнято.");
+        }
+    }
+
+    private boolean fitsSchedule(Schedule schedule, LocalTime time, int durationMinutes) {
+        int start = toMinutes(time);
+        return start >= toMinutes(schedule.getStartTime())
+                && start + durationMinutes <= toMinutes(schedule.getEndTime());
+    }
+
+    private static int toMinutes(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    private void backoff(int attempt) {
+        long maxDelay = BASE_BACKOFF_MILLIS << Math.min(attempt, 6);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(BASE_BACKOFF_MILLIS, maxDelay + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw TransientFailureException.unavailable("Резервування перервано.");
+        }
+    }
+
+    private ReentrantLock stripeFor(UUID masterId, LocalDate date) {
+        int hash = masterId.hashCode() * 31 + Long.hashCode(date.toEpochDay());
+        hash ^= (hash >>> 16);
+        return stripes[hash & (stripes.length - 1)];
+    }
+}
@@ -3,12 +3,20 @@ package com.beautysalon.booking.config;
 import com.beautysalon.booking.entity.*;
 import com.beautysalon.booking.repository.*;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 @Component
 public class DatabaseInitializer implements CommandLineRunner {
@@ -17,18 +25,24 @@ public class DatabaseInitializer implements CommandLineRunner {
     private final IMasterRepository masterRepository;
     private final IServiceRepository serviceRepository;
     private final IScheduleRepository scheduleRepository;
+    private final IBookingRepository bookingRepository;
     private final PasswordEncoder passwordEncoder; // <--- 1. Додали енкодер
+    private final JdbcTemplate jdbcTemplate;
 
     public DatabaseInitializer(IUserRepository userRepository,
                                IMasterRepository masterRepository,
                                IServiceRepository serviceRepository,
                                IScheduleRepository scheduleRepository,
-                               PasswordEncoder passwordEncoder) { // <--- 2. Інжектуємо його
+                               IBookingRepository bookingRepository,
+                               PasswordEncoder passwordEncoder, // <--- 2. Інжектуємо його
+                               JdbcTemplate jdbcTemplate) {
         this.userRepository = userRepository;
         this.masterRepository = masterRepository;
         this.serviceRepository = serviceRepository;
         this.scheduleRepository = scheduleRepository;
+        this.bookingRepository = bookingRepository;
         this.passwordEncoder = passwordEncoder;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     @Override
@@ -95,5 +109,82 @@ public class DatabaseInitializer implements CommandLineRunner {
 
             System.out.println("--- [DatabaseInitializer] Готово! Паролі захешовано. ---");
         }
+
+        backfillBookingEndTimes();
+        backfillSlotHolds();
+        bookingRepository.flush();
+
+        // ddl-auto=update не гарантує унікальних обмежень на таблицях, створених раніше
+        ensureUniqueConstraint("payments", "uk_payments_booking", "booking_id");
+        ensureUniqueConstraint("bookings", "uk_bookings_master_slot", "master_id", "booking_date", "booking_time", "slot_hold");
+    }
+
+    // Старі бронювання не мають часу завершення, а без нього їх не бачить перевірка перетинів
+    private void backfillBookingEndTimes() {
+        int updated = 0;
+        for (Booking booking : bookingRepository.findByBookingEndTimeIsNull()) {
+            booking.setBookingEndTime(booking.getBookingTime().plusMinutes(booking.getService().getDurationMinutes()));
+            updated++;
+        }
+        if (updated > 0) {
+            System.out.println("--- [DatabaseInitializer] Заповнено час завершення для " + updated + " бронювань ---");
+        }
+    }
+
+    // Старі активні бронювання мають slot_hold = NULL, і унікальний індекс їх не бачить.
+    // Якщо два старі записи вже займають один слот, другий лишається NULL: інакше UPDATE порушив би індекс
+    private void backfillSlotHolds() {
+        List<Booking> legacy = bookingRepository.findBySlotHoldIsNullAndStatusNot(BookingStatus.CANCELLED);
+        if (legacy.isEmpty()) {
+            return;
+        }
+        Set<String> held = new HashSet<>();
+        for (Object[] slot : bookingRepository.findHeldSlots()) {
+            held.add(slot[0] + "|" + slot[1] + "|" + slot[2]);
+        }
+        int updated = 0;
+        int duplicates = 0;
+        for (Booking booking : legacy) {
+            if (held.add(slotKey(booking))) {
+                booking.setSlotHold(Boolean.TRUE);
+                updated++;
+            } else {
+                duplicates++;
+            }
+        }
+        System.out.println("--- [DatabaseInitializer] Заповнено slot_hold для " + updated + " бронювань ---");
+        if (duplicates > 0) {
+            System.err.println("--- [DatabaseInitializer] " + duplicates +
+                    " активних бронювань займають уже зайнятий слот, потрібна ручна перевірка ---");
+        }
+    }
+
+    // Додає обмеження, якщо на таблиці ще немає унікального ключа саме з цих колонок.
+    // Якщо старі дані його порушують, застосунок стартує, але дублікати треба прибрати вручну
+    private void ensureUniqueConstraint(String table, String name, String... columns) {
+        Map<String, Set<String>> existing = new HashMap<>();
+        jdbcTemplate.query("SELECT tc.CONSTRAINT_NAME, kcu.COLUMN_NAME " +
+                        "FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS tc JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE kcu " +
+                        "ON kcu.CONSTRAINT_NAME = tc.CONSTRAINT_NAME AND kcu.TABLE_NAME = tc.TABLE_NAME " +
+                        "WHERE UPPER(tc.TABLE_NAME) = ? AND tc.CONSTRAINT_TYPE = 'UNIQUE'",
+                row -> {
+                    existing.computeIfAbsent(row.getString(1), k -> new HashSet<>())
+                            .add(row.getString(2).toLowerCase(Locale.ROOT));
+                }, table.toUpperCase(Locale.ROOT));
+        if (existing.containsValue(Set.of(columns))) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD CONSTRAINT " + name +
+                    " UNIQUE (" + String.join(", ", columns) + ")");
+            System.out.println("--- [DatabaseInitializer] Додано обмеження " + name + " ---");
+        } catch (DataAccessException e) {
+            System.err.println("--- [DatabaseInitializer] Не вдалося додати " + name +
+                    " (дублікати в " + table + "?): " + e.getMostSpecificCause().getMessage() + " ---");
+        }
+    }
+
+    private static String slotKey(Booking booking) {
+        return booking.getMaster().getMasterId() + "|" + booking.getBookingDate() + "|" + booking.getBookingTime();
     }
 }
\ No newline at end of file
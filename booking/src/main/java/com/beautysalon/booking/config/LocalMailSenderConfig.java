@@ -0,0 +1,49 @@
+package com.beautysalon.booking.config;
+
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Локальна "пошта" для розробки та перевірок: {@code booking.mail.mode=local}.
+ * Листи не відправляються, а виводяться в лог. {@code booking.mail.local.fail-first=N}
+ * змушує перші N відправок завершитися помилкою - так можна побачити повторні спроби outbox.
+ */
+@Configuration
+@ConditionalOnProperty(name = "booking.mail.mode", havingValue = "local")
+public class LocalMailSenderConfig {
+
+    @Bean
+    public JavaMailSender javaMailSender(@Value("${booking.mail.local.fail-first:0}") int failFirst) {
+        AtomicInteger failuresLeft = new AtomicInteger(failFirst);
+        System.out.println("LocalMailSenderConfig: листи виводяться в лог замість SMTP" +
+                (failFirst > 0 ? ", перші " + failFirst + " відправок завершаться помилкою" : ""));
+        return new JavaMailSenderImpl() {
+            @Override
+            protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) {
+                if (failuresLeft.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+                    throw new MailSendException("Імітована помилка SMTP");
+                }
+                for (MimeMessage message : mimeMessages) {
+                    try {
+                        Address[] recipients = message.getAllRecipients();
+                        System.out.println("📭 [LocalMail] Кому: " + Arrays.toString(recipients) +
+                                ", тема: " + message.getSubject());
+                    } catch (MessagingException e) {
+                        throw new MailSendException("Некоректний лист", e);
+                    }
+                }
+            }
+        };
+    }
+}
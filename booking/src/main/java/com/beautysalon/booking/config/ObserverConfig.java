@@ -1,6 +1,8 @@
 package com.beautysalon.booking.config;
 
+import com.beautysalon.booking.dashboard.MasterDashboardFeed;
 import com.beautysalon.booking.observer.EmailObserver;
+import com.beautysalon.booking.reminder.AppointmentReminderScheduler;
 import com.beautysalon.booking.service.BookingEventPublisher;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,12 +17,19 @@ public class ObserverConfig {
     @Autowired
     private EmailObserver emailObserver;
 
+    @Autowired
+    private AppointmentReminderScheduler reminderScheduler;
+
+    @Autowired
+    private MasterDashboardFeed dashboardFeed;
 
 
     @PostConstruct
     public void registerObservers() {
         System.out.println("ObserverConfig: Реєструємо спостерігачів...");
         publisher.subscribe(emailObserver);
+        publisher.subscribe(reminderScheduler); // тримає нагадування в синхроні зі змінами бронювань
+        publisher.subscribe(dashboardFeed); // живі зміни в кабінетах майстрів
         // publisher.subscribe(smsObserver); // <-- ВИДАЛЕНО
     }
 }
\ No newline at end of file
@@ -1,14 +1,26 @@
 package com.beautysalon.booking.controller;
 
+import com.beautysalon.booking.dto.BookingPageDto;
+import com.beautysalon.booking.dto.BookingRowDto;
+import com.beautysalon.booking.entity.BookingStatus;
 import com.beautysalon.booking.entity.Master;
+import com.beautysalon.booking.entity.Role;
 import com.beautysalon.booking.entity.Schedule;
+import com.beautysalon.booking.entity.User;
+import com.beautysalon.booking.service.BookingService;
+import com.beautysalon.booking.service.BulkCancellationService;
 import com.beautysalon.booking.service.MasterService;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -16,9 +28,78 @@ import java.util.UUID;
 public class AdminController {
 
     private final MasterService masterService;
+    private final BookingService bookingService;
+    private final BulkCancellationService bulkCancellationService;
 
-    public AdminController(MasterService masterService) {
+    public AdminController(MasterService masterService, BookingService bookingService,
+                           BulkCancellationService bulkCancellationService) {
         this.masterService = masterService;
+        this.bookingService = bookingService;
+        this.bulkCancellationService = bulkCancellationService;
+    }
+
+    /**
+     * Журнал бронювань з keyset-пагінацією. Для наступної сторінки
+     * передайте отриманий {@code nextCursor} у параметр {@code cursor}.
+     * Лише для адміністратора, що увійшов у систему (сесія веб-кабінету).
+     */
+    @GetMapping("/bookings")
+    public ResponseEntity<?> getBookings(
+            @RequestParam(required = false) BookingStatus status,
+            @RequestParam(required = false) UUID masterId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            HttpSession session) {
+        ResponseEntity<?> denied = requireAdmin(session);
+        if (denied != null) {
+            return denied;
+        }
+        try {
+            BookingPageDto page = bookingService.getBookingsPage(status, masterId, dateFrom, dateTo, cursor, size);
+            List<BookingRowDto> items = page.getBookings().stream().map(BookingRowDto::new).toList();
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("items", items);
+            response.put("nextCursor", page.getNextCursor());
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Скасовує всі активні бронювання майстра на день і повертає кошти за оплачені.
+     * Кожен клієнт отримує один лист про всі свої скасовані записи.
+     * Лише для адміністратора, що увійшов у систему (сесія веб-кабінету).
+     */
+    @PostMapping("/masters/{masterId}/days/{date}/cancel")
+    public ResponseEntity<?> cancelMasterDay(
+            @PathVariable UUID masterId,
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            HttpSession session) {
+        ResponseEntity<?> denied = requireAdmin(session);
+        if (denied != null) {
+            return denied;
+        }
+        try {
+            return new ResponseEntity<>(bulkCancellationService.cancelMasterDay(masterId, date), HttpStatus.OK);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    // Відповідь 401/403, якщо в сесії немає адміністратора; null - доступ дозволено
+    private ResponseEntity<?> requireAdmin(HttpSession session) {
+        User loggedInUser = (User) session.getAttribute("loggedInUser");
+        if (loggedInUser == null) {
+            return new ResponseEntity<>("Потрібно увійти в систему.", HttpStatus.UNAUTHORIZED);
+        }
+        if (loggedInUser.getRole() != Role.ADMIN) {
+            return new ResponseEntity<>("Недостатньо прав.", HttpStatus.FORBIDDEN);
+        }
+        return null;
     }
 
     @PostMapping("/masters")
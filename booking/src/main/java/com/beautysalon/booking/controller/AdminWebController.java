@@ -1,7 +1,8 @@
 package com.beautysalon.booking.controller;
 
+import com.beautysalon.booking.dto.BookingPageDto;
 import com.beautysalon.booking.dto.ScheduleDayDto;
-import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.BookingStatus;
 import com.beautysalon.booking.entity.Master;
 import com.beautysalon.booking.entity.Role;
 import com.beautysalon.booking.entity.Schedule;
@@ -10,6 +11,8 @@ import com.beautysalon.booking.entity.User;
 import com.beautysalon.booking.repository.IMasterRepository;
 import com.beautysalon.booking.repository.IServiceRepository;
 import com.beautysalon.booking.service.BookingService;
+import com.beautysalon.booking.service.BulkCancellationService;
+import com.beautysalon.booking.service.CatalogService;
 import com.beautysalon.booking.service.MasterService;
 import com.beautysalon.booking.service.UserService;
 import jakarta.servlet.http.HttpSession;
@@ -18,6 +21,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -36,23 +40,51 @@ public class AdminWebController {
     private final IServiceRepository serviceRepository;
     private final IMasterRepository masterRepository;
     private final MasterService masterService;
+    private final CatalogService catalogService;
+    private final BulkCancellationService bulkCancellationService;
 
-    public AdminWebController(BookingService bookingService, UserService userService, IServiceRepository serviceRepository, IMasterRepository masterRepository, MasterService masterService) {
+    public AdminWebController(BookingService bookingService, UserService userService, IServiceRepository serviceRepository, IMasterRepository masterRepository, MasterService masterService,
+                              CatalogService catalogService, BulkCancellationService bulkCancellationService) {
         this.bookingService = bookingService;
         this.userService = userService;
         this.serviceRepository = serviceRepository;
         this.masterRepository = masterRepository;
         this.masterService = masterService;
+        this.catalogService = catalogService;
+        this.bulkCancellationService = bulkCancellationService;
     }
 
     @GetMapping("/bookings")
-    public String showAllBookings(HttpSession session, Model model) {
+    public String showAllBookings(
+            HttpSession session,
+            Model model,
+            @RequestParam(required = false) BookingStatus status,
+            @RequestParam(required = false) UUID masterId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
         User loggedInUser = (User) session.getAttribute("loggedInUser");
         if (loggedInUser == null || loggedInUser.getRole() != Role.ADMIN) {
             return "redirect:/auth/login";
         }
-        List<Booking> allBookings = bookingService.getAllBookings();
-        model.addAttribute("bookings", allBookings);
+        BookingPageDto page;
+        try {
+            page = bookingService.getBookingsPage(status, masterId, dateFrom, dateTo, cursor, size);
+        } catch (IllegalArgumentException e) {
+            // Пошкоджений курсор: починаємо журнал спочатку
+            return "redirect:/web/admin/bookings";
+        }
+        model.addAttribute("bookings", page.getBookings());
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("isFirstPage", cursor == null || cursor.isBlank());
+        model.addAttribute("statuses", BookingStatus.values());
+        model.addAttribute("masters", catalogService.getAllMasters());
+        model.addAttribute("status", status);
+        model.addAttribute("masterId", masterId);
+        model.addAttribute("dateFrom", dateFrom);
+        model.addAttribute("dateTo", dateTo);
+        model.addAttribute("size", size);
         model.addAttribute("admin", loggedInUser);
         return "admin_bookings_list";
     }
@@ -87,13 +119,12 @@ public class AdminWebController {
     }
 
     @GetMapping("/services")
-    @Transactional
     public String showAllServices(HttpSession session, Model model) {
         User loggedInUser = (User) session.getAttribute("loggedInUser");
         if (loggedInUser == null || loggedInUser.getRole() != Role.ADMIN) {
             return "redirect:/auth/login";
         }
-        List<Service> allServices = serviceRepository.findAll();
+        List<Service> allServices = catalogService.getAllServices();
         Map<String, List<Service>> groupedServices = allServices.stream()
                 .collect(Collectors.groupingBy(Service::getName));
         
@@ -105,7 +136,7 @@ public class AdminWebController {
     @GetMapping("/services/new")
     public String showServiceForm(Model model) {
         model.addAttribute("service", new com.beautysalon.booking.entity.Service());
-        model.addAttribute("masters", masterRepository.findAll());
+        model.addAttribute("masters", catalogService.getAllMasters());
         return "admin_service_form";
     }
 
@@ -129,7 +160,7 @@ public class AdminWebController {
         com.beautysalon.booking.entity.Service service = serviceRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Послугу не знайдено."));
         model.addAttribute("service", service); 
-        model.addAttribute("masters", masterRepository.findAll());
+        model.addAttribute("masters", catalogService.getAllMasters());
         return "admin_service_form"; 
     }
 
@@ -261,4 +292,34 @@ public class AdminWebController {
         
         return "redirect:/web/admin/masters/" + userId + "/schedule?month=" + YearMonth.from(workDate);
     }
-}
\ No newline at end of file
+
+    // Майстер захворів: скасувати всі записи дня з поверненням коштів
+    @PostMapping("/masters/{userId}/schedule/cancel-day")
+    public String cancelMasterDay(@PathVariable UUID userId,
+                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                  HttpSession session,
+                                  RedirectAttributes redirectAttributes) {
+        User loggedInUser = (User) session.getAttribute("loggedInUser");
+        if (loggedInUser == null || loggedInUser.getRole() != Role.ADMIN) {
+            return "redirect:/auth/login";
+        }
+
+        try {
+            Master master = masterService.findMasterByUser(userId);
+            BulkCancellationService.Result result = bulkCancellationService.cancelMasterDay(master.getMasterId(), date);
+            String message = "Скасовано записів: " + result.cancelled() + ", повідомлено клієнтів: " +
+                    result.clientsNotified() + ", повернено платежів: " + result.refunded() + ".";
+            if (!result.refundFailedBookingIds().isEmpty()) {
+                redirectAttributes.addFlashAttribute("error", "Не вдалося повернути кошти за " +
+                        result.refundFailedBookingIds().size() + " бронюваннями, повторіть повернення окремо.");
+            }
+            if (!result.refundPendingBookingIds().isEmpty()) {
+                message += " Очікують відповіді платіжного шлюзу: " + result.refundPendingBookingIds().size() + ".";
+            }
+            redirectAttributes.addFlashAttribute("success", message);
+        } catch (RuntimeException e) {
+            redirectAttributes.addFlashAttribute("error", "Помилка скасування: " + e.getMessage());
+        }
+        return "redirect:/web/admin/masters/" + userId + "/schedule?month=" + YearMonth.from(date);
+    }
+}
@@ -111,6 +111,7 @@ public class AuthController {
         if (loggedInUser != null) {
             User freshUser = userService.findByEmail(loggedInUser.getEmail()).orElse(loggedInUser);
             model.addAttribute("user", freshUser);
+            model.addAttribute("bookings", bookingService.getBookingsByClient(freshUser.getUserId()));
             return "dashboard";
         } else {
             return "redirect:/auth/login";
@@ -3,7 +3,9 @@ package com.beautysalon.booking.controller;
 import com.beautysalon.booking.entity.Booking;
 import com.beautysalon.booking.entity.BookingStatus;
 import com.beautysalon.booking.service.BookingService;
+import com.beautysalon.booking.service.IdempotencyService;
 import com.beautysalon.booking.service.PaymentFacade;
+import com.beautysalon.booking.service.TransientFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -17,28 +19,43 @@ import java.util.UUID;
 public class BookingController {
     private final BookingService bookingService;
     private final PaymentFacade paymentFacade;
+    private final IdempotencyService idempotencyService;
 
     public BookingController(
             BookingService bookingService,
-            PaymentFacade paymentFacade) {
+            PaymentFacade paymentFacade,
+            IdempotencyService idempotencyService) {
         this.bookingService = bookingService;
         this.paymentFacade = paymentFacade;
+        this.idempotencyService = idempotencyService;
     }
 
+    // Клієнти повторюють запит після тайм-ауту: з Idempotency-Key повтор отримає першу відповідь
     @PostMapping
     public ResponseEntity<?> createBooking(
             @RequestParam UUID clientId,
             @RequestParam UUID serviceId,
             @RequestParam UUID masterId,
             @RequestParam String dateTime,
-            @RequestParam(required = false, defaultValue = "false") boolean allInclusive) {
+            @RequestParam(required = false, defaultValue = "false") boolean allInclusive,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         try {
-            LocalDateTime desiredDateTime = LocalDateTime.parse(dateTime);
-            Booking newBooking = bookingService.createBooking(
-                    clientId, serviceId, masterId, desiredDateTime, allInclusive);
-            return new ResponseEntity<>(newBooking, HttpStatus.CREATED);
-        } catch (RuntimeException e) {
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            return idempotencyService.execute("create-booking", idempotencyKey,
+                    List.of(clientId, serviceId, masterId, dateTime, allInclusive), HttpStatus.CREATED, () -> {
+                        try {
+                            LocalDateTime desiredDateTime = LocalDateTime.parse(dateTime);
+                            Booking newBooking = bookingService.createBooking(
+                                    clientId, serviceId, masterId, desiredDateTime, allInclusive);
+                            return new ResponseEntity<>(newBooking, HttpStatus.CREATED);
+                        } catch (TransientFailureException e) {
+                            // Не зберігається за ключем: повтор з тим самим ключем виконає операцію знову
+                            throw e;
+                        } catch (RuntimeException e) {
+                            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+                        }
+                    });
+        } catch (TransientFailureException e) {
+            return transientFailure(e);
         }
     }
 
@@ -62,12 +79,22 @@ public class BookingController {
     public ResponseEntity<?> payBooking(
             @PathVariable UUID bookingId,
             @RequestParam(defaultValue = "CARD") String paymentMethod,
-            @RequestParam(defaultValue = "0000") String cardNumber) {
+            @RequestParam(defaultValue = "0000") String cardNumber,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         try {
-            Booking booking = paymentFacade.payForBooking(bookingId, paymentMethod, cardNumber);
-            return new ResponseEntity<>(booking, HttpStatus.OK);
-        } catch (Exception e) {
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            return idempotencyService.execute("pay-booking", idempotencyKey,
+                    List.of(bookingId, paymentMethod, cardNumber), HttpStatus.OK, () -> {
+                        try {
+                            Booking booking = paymentFacade.payForBooking(bookingId, paymentMethod, cardNumber);
+                            return new ResponseEntity<>(booking, HttpStatus.OK);
+                        } catch (TransientFailureException e) {
+                            throw e;
+                        } catch (Exception e) {
+                            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+                        }
+                    });
+        } catch (TransientFailureException e) {
+            return transientFailure(e);
         }
     }
 
@@ -104,4 +131,11 @@ public class BookingController {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         }
     }
+
+    private static ResponseEntity<String> transientFailure(TransientFailureException e) {
+        if (e.isConflict()) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        }
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(e.getMessage());
+    }
 }
@@ -1,27 +1,34 @@
 package com.beautysalon.booking.controller;
 
+import com.beautysalon.booking.availability.SlotAvailabilityStream;
+import com.beautysalon.booking.dashboard.MasterDashboardFeed;
+import com.beautysalon.booking.dto.CatalogSearchHitDto;
 import com.beautysalon.booking.dto.MasterOptionDto;
 import com.beautysalon.booking.entity.Booking;
 import com.beautysalon.booking.entity.User;
 import com.beautysalon.booking.entity.Master;
-import com.beautysalon.booking.repository.IMasterRepository;
+import com.beautysalon.booking.entity.Role;
 import com.beautysalon.booking.repository.IServiceRepository;
 import com.beautysalon.booking.service.BookingService;
+import com.beautysalon.booking.service.CatalogSearchIndex;
+import com.beautysalon.booking.service.CatalogService;
+import com.beautysalon.booking.service.MasterService;
 import com.beautysalon.booking.service.PaymentFacade;
+import com.beautysalon.booking.service.ServiceNameIndex;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -32,17 +39,32 @@ public class BookingWebController {
     private final BookingService bookingService;
     private final PaymentFacade paymentFacade;
     private final IServiceRepository serviceRepository;
-    private final IMasterRepository masterRepository;
+    private final CatalogService catalogService;
+    private final ServiceNameIndex serviceNameIndex;
+    private final CatalogSearchIndex catalogSearchIndex;
+    private final SlotAvailabilityStream slotAvailabilityStream;
+    private final MasterDashboardFeed masterDashboardFeed;
+    private final MasterService masterService;
 
     public BookingWebController(
             BookingService bookingService,
             PaymentFacade paymentFacade,
             IServiceRepository serviceRepository,
-            IMasterRepository masterRepository) {
+            CatalogService catalogService,
+            ServiceNameIndex serviceNameIndex,
+            CatalogSearchIndex catalogSearchIndex,
+            SlotAvailabilityStream slotAvailabilityStream,
+            MasterDashboardFeed masterDashboardFeed,
+            MasterService masterService) {
         this.bookingService = bookingService;
         this.paymentFacade = paymentFacade;
         this.serviceRepository = serviceRepository;
-        this.masterRepository = masterRepository;
+        this.catalogService = catalogService;
+        this.serviceNameIndex = serviceNameIndex;
+        this.catalogSearchIndex = catalogSearchIndex;
+        this.slotAvailabilityStream = slotAvailabilityStream;
+        this.masterDashboardFeed = masterDashboardFeed;
+        this.masterService = masterService;
     }
 
     @GetMapping("/new")
@@ -50,12 +72,8 @@ public class BookingWebController {
         User user = (User) session.getAttribute("loggedInUser");
         if (user == null) return "redirect:/auth/login";
 
-        Set<String> uniqueServiceNames = serviceRepository.findAll().stream()
-            .map(com.beautysalon.booking.entity.Service::getName)
-            .collect(Collectors.toSet());
-
-        model.addAttribute("uniqueServiceNames", uniqueServiceNames);
-        model.addAttribute("masters", masterRepository.findAll());
+        model.addAttribute("uniqueServiceNames", serviceNameIndex.getServiceNames());
+        model.addAttribute("masters", catalogService.getAllMasters());
         return "booking_create";
     }
 
@@ -72,23 +90,19 @@ public class BookingWebController {
         if (user == null) return "redirect:/auth/login";
 
         LocalDateTime finalDateTime = LocalDateTime.parse(bookingDate + "T" + bookingTime);
-        List<com.beautysalon.booking.entity.Service> services = serviceRepository.findByName(serviceName);
-        UUID finalServiceId = services.stream()
-            .filter(s -> s.getMaster() != null && s.getMaster().getMasterId().equals(masterId))
-            .map(s -> s.getServiceId())
-            .findFirst()
-            .orElseThrow(() -> new RuntimeException("Не вдалося знайти конкретну послугу, прив'язану до обраного майстра."));
+        ServiceNameIndex.ServiceOffer offer = serviceNameIndex.findOffer(serviceName, masterId);
+        if (offer == null) {
+            throw new RuntimeException("Не вдалося знайти конкретну послугу, прив'язану до обраного майстра.");
+        }
+        UUID finalServiceId = offer.serviceId();
 
         try {
             bookingService.createBooking(user.getUserId(), finalServiceId, masterId, finalDateTime, allInclusive);
             return "redirect:/auth/home";
         } catch (Exception e) {
             model.addAttribute("error", "Помилка створення: " + e.getMessage());
-            Set<String> uniqueServiceNames = serviceRepository.findAll().stream()
-                .map(com.beautysalon.booking.entity.Service::getName)
-                .collect(Collectors.toSet());
-            model.addAttribute("uniqueServiceNames", uniqueServiceNames);
-            model.addAttribute("masters", masterRepository.findAll());
+            model.addAttribute("uniqueServiceNames", serviceNameIndex.getServiceNames());
+            model.addAttribute("masters", catalogService.getAllMasters());
             return "booking_create";
         }
     }
@@ -179,46 +193,55 @@ public class BookingWebController {
 
     @GetMapping("/masters/by-service-name/{serviceName}")
     @ResponseBody
-    @Transactional
     public ResponseEntity<List<MasterOptionDto>> getMastersByServiceName(@PathVariable String serviceName) {
-
-        List<com.beautysalon.booking.entity.Service> services = serviceRepository.findByName(serviceName);
-
-        if (services.isEmpty()) {
-            return new ResponseEntity<>(List.of(), HttpStatus.OK);
-        }
-
-        List<MasterOptionDto> availableMasters = services.stream()
-            .map(com.beautysalon.booking.entity.Service::getMaster)
-            .filter(master -> master != null)
-            .distinct()
-            .map(master -> new MasterOptionDto(
-                master.getMasterId(),
-                master.getUser().getName(),
-                master.getSpecialization(),
-                master.getFormattedRating()
-            ))
+        List<MasterOptionDto> availableMasters = serviceNameIndex.findOffers(serviceName).stream()
+            .map(ServiceNameIndex.ServiceOffer::toMasterOption)
             .collect(Collectors.toList());
         return new ResponseEntity<>(availableMasters, HttpStatus.OK);
     }
 
+    // Підказки для вибору послуги: назви, що починаються з введеного тексту (без урахування регістру)
+    @GetMapping("/services/suggest")
+    @ResponseBody
+    public ResponseEntity<List<String>> suggestServiceNames(
+            @RequestParam(defaultValue = "") String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        return new ResponseEntity<>(serviceNameIndex.suggest(prefix, Math.min(limit, 50)), HttpStatus.OK);
+    }
+
+    // Пошук по каталогу: назва та опис послуги, ім'я та спеціалізація майстра
+    @GetMapping("/search")
+    @ResponseBody
+    public ResponseEntity<List<CatalogSearchHitDto>> searchCatalog(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        return new ResponseEntity<>(catalogSearchIndex.search(q, Math.min(limit, 50)), HttpStatus.OK);
+    }
+
     @GetMapping("/slots/available")
     @ResponseBody
     public ResponseEntity<List<String>> getAvailableTimeSlots(
             @RequestParam UUID masterId,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        List<LocalTime> allWorkingSlots = new ArrayList<>();
-        for (int hour = 8; hour < 20; hour++) {
-            allWorkingSlots.add(LocalTime.of(hour, 0));
-        }
-        Set<LocalTime> occupiedSlots = bookingService.getOccupiedSlots(masterId, date);
-        List<String> availableSlots = allWorkingSlots.stream()
-            .filter(slot -> !occupiedSlots.contains(slot))
-            .map(LocalTime::toString)
-            .collect(Collectors.toList());
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) String serviceName,
+            @RequestParam(required = false, defaultValue = "false") boolean allInclusive) {
+        int durationMinutes = bookingService.resolveDurationMinutes(masterId, serviceName, allInclusive);
+        List<String> availableSlots = bookingService.getAvailableSlots(masterId, date, durationMinutes);
         return new ResponseEntity<>(availableSlots, HttpStatus.OK);
     }
 
+    // Живий потік вільних слотів дня: знімок, а далі зміни після кожного бронювання чи скасування
+    @GetMapping(value = "/slots/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter streamAvailableTimeSlots(
+            @RequestParam UUID masterId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) String serviceName,
+            @RequestParam(required = false, defaultValue = "false") boolean allInclusive) {
+        int durationMinutes = bookingService.resolveDurationMinutes(masterId, serviceName, allInclusive);
+        return slotAvailabilityStream.subscribe(masterId, date, durationMinutes);
+    }
+
     @GetMapping("/dates/working/{masterId}")
     @ResponseBody
     public ResponseEntity<List<LocalDate>> getMasterWorkingDates(@PathVariable UUID masterId) {
@@ -248,4 +271,33 @@ public class BookingWebController {
         }
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
+
+    // Живі зміни бронювань майстра замість повторних запитів; після обриву браузер сам надсилає Last-Event-ID.
+    // Потік містить імена й телефони клієнтів: лише для самого майстра або адміністратора.
+    // Події надходять з outbox, тож зміна з'являється із затримкою booking.outbox.coalesce-window-seconds
+    @GetMapping(value = "/masters/{masterId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMasterBookings(
+            @PathVariable UUID masterId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            HttpSession session) {
+        User user = (User) session.getAttribute("loggedInUser");
+        if (user == null) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+        if (user.getRole() != Role.ADMIN && !ownsMasterProfile(user, masterId)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        return new ResponseEntity<>(masterDashboardFeed.subscribe(masterId, lastEventId), HttpStatus.OK);
+    }
+
+    private boolean ownsMasterProfile(User user, UUID masterId) {
+        if (user.getRole() != Role.MASTER) {
+            return false;
+        }
+        try {
+            return masterService.findMasterByUser(user.getUserId()).getMasterId().equals(masterId);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
 }
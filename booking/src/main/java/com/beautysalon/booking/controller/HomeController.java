@@ -1,27 +1,31 @@
 package com.beautysalon.booking.controller;
 
-import com.beautysalon.booking.repository.IMasterRepository;
-import com.beautysalon.booking.repository.IServiceRepository;
+import com.beautysalon.booking.entity.Master;
+import com.beautysalon.booking.service.CatalogService;
+import com.beautysalon.booking.service.ReviewFeedService;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Controller
 public class HomeController {
-    private final IServiceRepository serviceRepository;
-    private final IMasterRepository masterRepository;
+    private final CatalogService catalogService;
+    private final ReviewFeedService reviewFeedService;
 
-    public HomeController(IServiceRepository serviceRepository, IMasterRepository masterRepository) {
-        this.serviceRepository = serviceRepository;
-        this.masterRepository = masterRepository;
+    public HomeController(CatalogService catalogService, ReviewFeedService reviewFeedService) {
+        this.catalogService = catalogService;
+        this.reviewFeedService = reviewFeedService;
     }
 
     @GetMapping("/")
-    @Transactional
     public String showLandingPage(Model model) {
-        model.addAttribute("services", serviceRepository.findAll());
-        model.addAttribute("masters", masterRepository.findAll());
+        model.addAttribute("services", catalogService.getAllServices());
+        List<Master> masters = catalogService.getAllMasters();
+        model.addAttribute("masters", masters);
+        model.addAttribute("reviewFeed", reviewFeedService.getLatestReviews(
+                masters.stream().map(Master::getMasterId).toList()));
         return "index";
     }
 }
@@ -0,0 +1,296 @@
+package com.beautysalon.booking.dashboard;
+
+import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.BookingStatus;
+import com.beautysalon.booking.observer.IBookingObserver;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Живий потік змін бронювань для кабінету майстра (Server-Sent Events).
+ * <p>
+ * Стрічка підписана на події бронювань з outbox і перетворює кожну на компактну дельту
+ * ({@code created}, {@code confirmed}, {@code paid}, {@code completed}, {@code cancelled}) з рядком таблиці кабінету.
+ * Дельта серіалізується один раз і ставиться в чергу кожному підписнику цього майстра.
+ * <ul>
+ *     <li>Останні {@code booking.dashboard.stream.replay-size} подій майстра зберігаються в кільцевому буфері:
+ *     після обриву браузер перепідключається із заголовком {@code Last-Event-ID} і отримує пропущене.
+ *     Якщо пропущене вже витіснене (або застосунок перезапускався), надсилається {@code reset} - сторінка перечитує день.</li>
+ *     <li>Черга підписника обмежена ({@code booking.dashboard.stream.buffer-size}): повільний клієнт, що не встигає
+ *     читати, відключається, а не накопичує пам'ять, і догоняє через повторне підключення.</li>
+ *     <li>Коментар-heartbeat не дає проксі закрити бездіяльне з'єднання і виявляє клієнтів, що відключилися.</li>
+ * </ul> * <p>
+ * Дельти приходять з outbox ({@link com.beautysalon.booking.service.BookingOutboxRelay}), а не в момент коміту:
+ * подія чекає {@code booking.outbox.coalesce-window-seconds} (за замовчуванням 15 с), щоб кілька змін
+ * одного бронювання злилися в одну. Тож у кабінеті зміна з'являється з такою ж затримкою; менше вікно
+ * пришвидшує кабінет, але й сповіщення клієнтам об'єднуються рідше.
+ */
+@Component
+public class MasterDashboardFeed implements IBookingObserver {
+
+    // Ідентифікатор події: "<епоха запуску>-<номер>"; чужа епоха означає, що буфер повторів втрачено
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<UUID, MasterChannel> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final ObjectMapper objectMapper;
+    private final ExecutorService fanout;
+    private final Counter overflows;
+    private final int replaySize;
+    private final int bufferSize;
+    private final long timeoutMillis;
+
+    public MasterDashboardFeed(ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry,
+                               @Value("${booking.dashboard.stream.replay-size:256}") int replaySize,
+                               @Value("${booking.dashboard.stream.buffer-size:64}") int bufferSize,
+                               @Value("${booking.dashboard.stream.fanout-threads:2}") int fanoutThreads,
+                               @Value("${booking.dashboard.stream.timeout-minutes:60}") long timeoutMinutes) {
+        this.objectMapper = objectMapper;
+        this.replaySize = Math.max(1, replaySize);
+        this.bufferSize = Math.max(1, bufferSize);
+        this.timeoutMillis = timeoutMinutes * 60_000;
+        AtomicInteger threadIds = new AtomicInteger();
+        this.fanout = Executors.newFixedThreadPool(Math.max(1, fanoutThreads), runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-stream-" + threadIds.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("booking.dashboard.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Відкриті потоки кабінетів майстрів")
+                .register(meterRegistry);
+        this.overflows = Counter.builder("booking.dashboard.stream.overflows")
+                .description("Підписники, відключені через переповнену чергу")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        fanout.shutdownNow();
+        channels.values().forEach(channel -> channel.subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    /**
+     * Підписує кабінет майстра. Без {@code lastEventId} клієнт отримує подію {@code ready}
+     * (з поточним ідентифікатором, щоб було від чого продовжити після обриву), інакше - пропущені дельти або {@code reset}.
+     */
+    public SseEmitter subscribe(UUID masterId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, new ArrayBlockingQueue<>(bufferSize));
+        MasterChannel channel = channels.computeIfAbsent(masterId, id -> new MasterChannel());
+
+        Runnable unsubscribe = () -> {
+            if (channel.subscribers.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+        };
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+
+        // Під монітором каналу: між повтором і новими подіями нічого не загубиться і не задвоїться
+        synchronized (channel) {
+            List<Frame> backlog = lastEventId == null || lastEventId.isBlank()
+                    ? List.of(new Frame(eventId(sequence.get()), "ready", "{}"))
+                    : channel.since(lastEventId);
+            if (backlog.size() > bufferSize) {
+                backlog = List.of(new Frame(eventId(sequence.get()), "reset", "{}"));
+            }
+            subscriber.queue.addAll(backlog);
+            channel.subscribers.add(subscriber);
+            subscriberCount.incrementAndGet();
+        }
+        scheduleDrain(subscriber);
+        return emitter;
+    }
+
+    // Подія з outbox: бронювання створене або змінило статус
+    @Override
+    public void update(Booking booking) {
+        MasterChannel channel = channels.computeIfAbsent(booking.getMaster().getMasterId(), id -> new MasterChannel());
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(BookingDelta.of(booking));
+        } catch (JsonProcessingException e) {
+            // Стрічка кабінету не повинна зривати доставку листів з outbox
+            System.err.println("MasterDashboardFeed: не вдалося серіалізувати бронювання " +
+                    booking.getBookingId() + ": " + e.getMessage());
+            return;
+        }
+        synchronized (channel) {
+            long seq = sequence.incrementAndGet();
+            Frame frame = new Frame(eventId(seq), typeOf(booking.getStatus()), json);
+            channel.append(seq, frame, replaySize);
+            for (Subscriber subscriber : channel.subscribers) {
+                offer(channel, subscriber, frame);
+            }
+        }
+    }
+
+    @Scheduled(fixedRateString = "${booking.dashboard.stream.heartbeat-ms:20000}")
+    public void heartbeat() {
+        for (MasterChannel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                // Непорожня черга і так щось надішле
+                if (subscriber.queue.isEmpty()) {
+                    offer(channel, subscriber, Frame.HEARTBEAT);
+                }
+            }
+        }
+    }
+
+    private void offer(MasterChannel channel, Subscriber subscriber, Frame frame) {
+        if (subscriber.queue.offer(frame)) {
+            scheduleDrain(subscriber);
+        } else if (channel.subscribers.remove(subscriber)) {
+            subscriberCount.decrementAndGet();
+            overflows.increment();
+            // EventSource перепідключиться з Last-Event-ID і дочитає пропущене з буфера повторів
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                fanout.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                // застосунок зупиняється
+            }
+        }
+    }
+
+    // Один потік пише в одне з'єднання: порядок подій підписника зберігається
+    private void drain(Subscriber subscriber) {
+        do {
+            Frame frame;
+            while ((frame = subscriber.queue.poll()) != null) {
+                if (!send(subscriber.emitter, frame)) {
+                    subscriber.queue.clear();
+                    return;
+                }
+            }
+            subscriber.draining.set(false);
+        } while (!subscriber.queue.isEmpty() && subscriber.draining.compareAndSet(false, true));
+    }
+
+    private boolean send(SseEmitter emitter, Frame frame) {
+        try {
+            if (frame == Frame.HEARTBEAT) {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            } else {
+                emitter.send(SseEmitter.event().id(frame.id).name(frame.name).data(frame.json));
+            }
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Клієнт відключився: onError/onCompletion приберуть підписку
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private String eventId(long seq) {
+        return epoch + "-" + seq;
+    }
+
+    private static String typeOf(BookingStatus status) {
+        return switch (status) {
+            case PENDING -> "created";
+            case CONFIRMED -> "confirmed";
+            case PAID -> "paid";
+            case COMPLETED -> "completed";
+            case CANCELLED -> "cancelled";
+        };
+    }
+
+    private final class MasterChannel {
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        // Доступ лише під монітором каналу
+        private final ArrayDeque<Long> replaySeqs = new ArrayDeque<>();
+        private final ArrayDeque<Frame> replay = new ArrayDeque<>();
+        private long evictedUpTo;
+
+        void append(long seq, Frame frame, int capacity) {
+            if (replay.size() == capacity) {
+                evictedUpTo = replaySeqs.pollFirst();
+                replay.pollFirst();
+            }
+            replaySeqs.addLast(seq);
+            replay.addLast(frame);
+        }
+
+        List<Frame> since(String lastEventId) {
+            long lastSeq = parseSeq(lastEventId);
+            if (lastSeq < evictedUpTo) {
+                return List.of(new Frame(eventId(sequence.get()), "reset", "{}"));
+            }
+            List<Frame> missed = new ArrayList<>();
+            var seqs = replaySeqs.iterator();
+            for (Frame frame : replay) {
+                if (seqs.next() > lastSeq) {
+                    missed.add(frame);
+                }
+            }
+            return missed;
+        }
+
+        // Ідентифікатор з іншої епохи чи зіпсований - повтор неможливий
+        private long parseSeq(String lastEventId) {
+            int dash = lastEventId.indexOf('-');
+            if (dash < 0 || !lastEventId.substring(0, dash).equals(epoch)) {
+                return -1;
+            }
+            try {
+                return Long.parseLong(lastEventId.substring(dash + 1));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+
+    private record Frame(String id, String name, String json) {
+        static final Frame HEARTBEAT = new Frame(null, null, null);
+    }
+
+    private record Subscriber(SseEmitter emitter, BlockingQueue<Frame> queue, AtomicBoolean draining) {
+        Subscriber(SseEmitter emitter, BlockingQueue<Frame> queue) {
+            this(emitter, queue, new AtomicBoolean());
+        }
+    }
+
+    // Той самий рядок, що повертає /web/bookings/masters/{masterId}/bookings, плюс дата
+    private record BookingDelta(UUID bookingId, String date, String time, String clientName, String clientPhone,
+                                String serviceName, double price, String status) {
+        static BookingDelta of(Booking booking) {
+            return new BookingDelta(booking.getBookingId(), booking.getBookingDate().toString(),
+                    booking.getBookingTime().toString(), booking.getClient().getName(), booking.getClient().getPhone(),
+                    booking.getService().getName(), booking.getTotalPrice(), booking.getStatus().name());
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.beautysalon.booking.entity;
 
 import com.beautysalon.booking.state.*;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import org.hibernate.annotations.JdbcTypeCode;
@@ -12,50 +13,93 @@ import java.time.LocalTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "bookings")
+// Усі зв'язки ліниві; списки бронювань завантажують потрібні зв'язки цим графом одним запитом
+@NamedEntityGraph(name = Booking.DETAILS_GRAPH,
+        attributeNodes = {
+                @NamedAttributeNode("client"),
+                @NamedAttributeNode("service"),
+                @NamedAttributeNode(value = "master", subgraph = "master-user"),
+                @NamedAttributeNode("payment"),
+                @NamedAttributeNode("review")
+        },
+        subgraphs = @NamedSubgraph(name = "master-user", attributeNodes = @NamedAttributeNode("user")))
+// Для розкладу дня майстра оплата та відгук не потрібні
+@NamedEntityGraph(name = Booking.SUMMARY_GRAPH,
+        attributeNodes = {
+                @NamedAttributeNode("client"),
+                @NamedAttributeNode("service")
+        })
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@Table(name = "bookings",
+       uniqueConstraints = @UniqueConstraint(name = "uk_bookings_master_slot",
+               columnNames = {"master_id", "booking_date", "booking_time", "slot_hold"}),
+       indexes = {
+               @Index(name = "idx_bookings_master_date_time", columnList = "master_id, booking_date, booking_time"),
+               // Порядок журналу адміністратора (keyset-пагінація)
+               @Index(name = "idx_bookings_date_time_id", columnList = "booking_date, booking_time, booking_id")
+       })
 public class Booking {
+    public static final String DETAILS_GRAPH = "Booking.details";
+    public static final String SUMMARY_GRAPH = "Booking.summary";
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     @JdbcTypeCode(SqlTypes.CHAR)
     private UUID bookingId;
 
-    @ManyToOne
+    @Version
+    @Column(name = "version", columnDefinition = "bigint default 0 not null")
+    private long version;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "client_id", nullable = false)
     private User client;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "master_id", nullable = false)
     private Master master;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "service_id", nullable = false)
     private Service service;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "schedule_id")
     private Schedule schedule;
 
     private LocalDate bookingDate;
     private LocalTime bookingTime;
 
+    // Час завершення з урахуванням повної тривалості (разом з VIP-додатками)
+    private LocalTime bookingEndTime;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "status")
     private BookingStatus status;
 
+    // TRUE для активних бронювань, NULL для скасованих: унікальний індекс
+    // не дає двом активним записам почати в той самий час, але дозволяє повторно
+    // бронювати час після скасування (NULL-значення не конфліктують).
+    // Перетини з різним часом початку індекс не ловить - їх відсікає SlotReservationService.
+    @Column(name = "slot_hold")
+    private Boolean slotHold;
+
     @Transient
     private BookingState state;
 
     private double totalPrice;
 
-    @OneToOne(mappedBy = "booking", cascade = CascadeType.ALL, orphanRemoval = true)
+    // Зворотні @OneToOne стають лінивими лише завдяки bytecode enhancement (див. pom.xml)
+    @OneToOne(mappedBy = "booking", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private Payment payment;
 
-    @OneToOne(mappedBy = "booking", cascade = CascadeType.ALL)
+    @OneToOne(mappedBy = "booking", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonManagedReference
     private Review review;
 
     public Booking() {
         this.status = BookingStatus.PENDING;
+        this.slotHold = Boolean.TRUE;
         initState();
     }
 
@@ -78,6 +122,29 @@ public class Booking {
         };
     }
 
+    /**
+     * Від'єднана копія зі статусом {@code status} для доставки спостерігачам: кожна доставка
+     * отримує власний екземпляр, тому паралельні доставки не змінюють спільне бронювання.
+     * Зв'язки спільні з оригіналом і лише читаються.
+     */
+    public Booking copyWithStatus(BookingStatus status) {
+        Booking copy = new Booking();
+        copy.setBookingId(getBookingId());
+        copy.setVersion(getVersion());
+        copy.setClient(getClient());
+        copy.setMaster(getMaster());
+        copy.setService(getService());
+        copy.setSchedule(getSchedule());
+        copy.setBookingDate(getBookingDate());
+        copy.setBookingTime(getBookingTime());
+        copy.setBookingEndTime(getBookingEndTime());
+        copy.setTotalPrice(getTotalPrice());
+        copy.setPayment(getPayment());
+        copy.setReview(getReview());
+        copy.setStatus(status);
+        return copy;
+    }
+
     public void confirm() {
         state.confirm(this);
     }
@@ -102,6 +169,14 @@ public class Booking {
         this.bookingId = bookingId;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public User getClient() {
         return client;
     }
@@ -150,15 +225,33 @@ public class Booking {
         this.bookingTime = bookingTime;
     }
 
+    public LocalTime getBookingEndTime() {
+        return bookingEndTime;
+    }
+
+    public void setBookingEndTime(LocalTime bookingEndTime) {
+        this.bookingEndTime = bookingEndTime;
+    }
+
     public BookingStatus getStatus() {
         return status;
     }
 
     public void setStatus(BookingStatus status) {
         this.status = status;
+        this.slotHold = status == BookingStatus.CANCELLED ? null : Boolean.TRUE;
         initState();
     }
 
+    public Boolean getSlotHold() {
+        return slotHold;
+    }
+
+    // Лише для заповнення старих записів (DatabaseInitializer); зазвичай значення випливає зі статусу
+    public void setSlotHold(Boolean slotHold) {
+        this.slotHold = slotHold;
+    }
+
     public double getTotalPrice() {
         return totalPrice;
     }
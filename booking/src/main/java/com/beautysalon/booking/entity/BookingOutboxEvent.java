@@ -0,0 +1,112 @@
+package com.beautysalon.booking.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Запис транзакційного outbox: зміна статусу бронювання, про яку ще треба повідомити спостерігачів.
+ * Зберігається в тій самій транзакції, що й зміна статусу, тому повідомлення не губиться
+ * ні при відкаті, ні при падінні застосунку після коміту. Доставкою займається BookingOutboxRelay.
+ */
+@Entity
+@Table(name = "booking_outbox",
+       indexes = {
+               @Index(name = "idx_booking_outbox_state_id", columnList = "state, id"),
+               @Index(name = "idx_booking_outbox_booking_state", columnList = "booking_id, state"),
+               @Index(name = "idx_booking_outbox_group", columnList = "notification_group")
+       })
+public class BookingOutboxEvent {
+
+    public enum State {
+        PENDING,
+        SENT,
+        // Замінена новішою подією того ж бронювання до відправки: спостерігачі отримують лише останній статус
+        COALESCED,
+        // Вичерпано спроби доставки; лишається в таблиці для ручного розбору
+        FAILED
+    }
+
+    // Послідовний ключ задає порядок подій, зокрема в межах одного бронювання
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JdbcTypeCode(SqlTypes.CHAR)
+    @Column(name = "booking_id", nullable = false)
+    private UUID bookingId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private BookingStatus status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private State state;
+
+    // Події з однаковою групою доходять до спостерігачів одним повідомленням (масове скасування, один клієнт)
+    @Column(name = "notification_group", length = 80)
+    private String notificationGroup;
+
+    private int attempts;
+    private LocalDateTime createdAt;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime processedAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    public BookingOutboxEvent() {}
+
+    // notBefore - момент, раніше якого подія не доставляється (вікно об'єднання змін)
+    public BookingOutboxEvent(UUID bookingId, BookingStatus status, LocalDateTime notBefore) {
+        this.bookingId = bookingId;
+        this.status = status;
+        this.state = State.PENDING;
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = notBefore;
+    }
+
+    public BookingOutboxEvent(UUID bookingId, BookingStatus status, LocalDateTime notBefore, String notificationGroup) {
+        this(bookingId, status, notBefore);
+        this.notificationGroup = notificationGroup;
+    }
+
+    public void markSent() {
+        this.state = State.SENT;
+        this.attempts++;
+        this.processedAt = LocalDateTime.now();
+        this.lastError = null;
+    }
+
+    public void markCoalesced() {
+        this.state = State.COALESCED;
+        this.processedAt = LocalDateTime.now();
+    }
+
+    // Невдала спроба: або наступна спроба пізніше, або FAILED, якщо спроби вичерпано
+    public void markFailed(String error, LocalDateTime retryAt, int maxAttempts) {
+        this.attempts++;
+        this.lastError = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+        if (attempts >= maxAttempts) {
+            this.state = State.FAILED;
+            this.processedAt = LocalDateTime.now();
+        } else {
+            this.nextAttemptAt = retryAt;
+        }
+    }
+
+    // Геттери
+    public Long getId() { return id; }
+    public UUID getBookingId() { return bookingId; }
+    public BookingStatus getStatus() { return status; }
+    public State getState() { return state; }
+    public String getNotificationGroup() { return notificationGroup; }
+    public int getAttempts() { return attempts; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public LocalDateTime getProcessedAt() { return processedAt; }
+    public String getLastError() { return lastError; }
+}
@@ -0,0 +1,95 @@
+package com.beautysalon.booking.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Ключ ідемпотентності запиту REST API (заголовок Idempotency-Key) і збережена відповідь на нього.
+ * <p>
+ * Рядок вставляється до виконання операції (IN_PROGRESS): повтор того самого ключа на будь-якому екземплярі
+ * впирається в первинний ключ і не виконує операцію вдруге. {@code resourceId} записується в транзакції
+ * самої операції, тому навіть після падіння між комітом і збереженням відповіді відомо, що операцію виконано.
+ */
+@Entity
+@Table(name = "idempotency_keys",
+       indexes = @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at"))
+public class IdempotencyRecord implements Persistable<String> {
+
+    public enum State {
+        IN_PROGRESS,
+        COMPLETED
+    }
+
+    // "<операція>|<ключ клієнта>"
+    @Id
+    @Column(length = 160)
+    private String id;
+
+    // SHA-256 параметрів запиту: той самий ключ з іншими параметрами відхиляється
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private State state;
+
+    @JdbcTypeCode(SqlTypes.CHAR)
+    @Column(name = "resource_id")
+    private UUID resourceId;
+
+    private Integer responseStatus;
+
+    @Column(length = 100)
+    private String responseContentType;
+
+    @Lob
+    private String responseBody;
+
+    private LocalDateTime createdAt;
+
+    // До цього моменту IN_PROGRESS належить запиту, що його вставив; потім ключ можна перехопити
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Transient
+    private boolean isNew;
+
+    public IdempotencyRecord() {}
+
+    public IdempotencyRecord(String id, String requestHash, LocalDateTime lockedUntil, LocalDateTime expiresAt) {
+        this.id = id;
+        this.requestHash = requestHash;
+        this.state = State.IN_PROGRESS;
+        this.createdAt = LocalDateTime.now();
+        this.lockedUntil = lockedUntil;
+        this.expiresAt = expiresAt;
+        this.isNew = true;
+    }
+
+    // Ключ заданий застосунком, тому save() інакше зробив би merge замість insert
+    @Override
+    public boolean isNew() { return isNew; }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() { this.isNew = false; }
+
+    // Геттери
+    @Override
+    public String getId() { return id; }
+    public String getRequestHash() { return requestHash; }
+    public State getState() { return state; }
+    public UUID getResourceId() { return resourceId; }
+    public Integer getResponseStatus() { return responseStatus; }
+    public String getResponseContentType() { return responseContentType; }
+    public String getResponseBody() { return responseBody; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getLockedUntil() { return lockedUntil; }
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+}
@@ -1,14 +1,17 @@
 package com.beautysalon.booking.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Entity
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Table(name = "masters")
 public class Master {
     @Id
@@ -16,13 +19,25 @@ public class Master {
     @JdbcTypeCode(SqlTypes.CHAR)
     private UUID masterId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
     private String specialization;
     private int experience;
 
+    // Агрегати відгуків: змінюються лише JPQL-оновленнями IMasterRepository (addRating, rebuildRatings).
+    // Збереження профілю їх не пише, тож не затирає паралельний інкремент; з JSON вони не приймаються
+    @ColumnDefault("0")
+    @Column(name = "rating_sum", nullable = false, insertable = false, updatable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long ratingSum;
+
+    @ColumnDefault("0")
+    @Column(name = "rating_count", nullable = false, insertable = false, updatable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private int ratingCount;
+
     @JsonIgnore
     @OneToMany(mappedBy = "master", cascade = CascadeType.ALL)
     private List<Service> services;
@@ -75,6 +90,14 @@ public class Master {
         this.experience = experience;
     }
 
+    public long getRatingSum() {
+        return ratingSum;
+    }
+
+    public int getRatingCount() {
+        return ratingCount;
+    }
+
     public List<Service> getServices() {
         return services;
     }
@@ -99,26 +122,12 @@ public class Master {
         this.bookings = bookings;
     }
 
-    public List<Review> getMasterReviews() {
-        if (bookings == null) return new ArrayList<>();
-
-        return bookings.stream()
-                .map(Booking::getReview)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-    }
-
     public String getFormattedRating() {
-        List<Review> reviews = getMasterReviews();
-
-        if (reviews.isEmpty()) {
+        if (ratingCount == 0) {
             return "-";
         }
 
-        double average = reviews.stream()
-                .mapToInt(Review::getRating)
-                .average()
-                .orElse(0.0);
+        double average = (double) ratingSum / ratingCount;
 
         return String.format("%.1f", average).replace(',', '.');
     }
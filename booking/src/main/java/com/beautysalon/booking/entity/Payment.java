@@ -16,9 +16,14 @@ public class Payment {
     @JdbcTypeCode(SqlTypes.CHAR)
     private UUID paymentId;
 
+    @Version
+    @Column(name = "version", columnDefinition = "bigint default 0 not null")
+    private long version;
+
+    // Унікальний: друга паралельна оплата того самого бронювання не пройде резерв (PaymentFacade)
     @JsonIgnore
-    @OneToOne
-    @JoinColumn(name = "booking_id", nullable = false)
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "booking_id", nullable = false, unique = true)
     private Booking booking;
 
     private double amount;
@@ -45,6 +50,14 @@ public class Payment {
         this.paymentId = paymentId;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public Booking getBooking() {
         return booking;
     }
@@ -1,6 +1,7 @@
 package com.beautysalon.booking.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
@@ -11,14 +12,16 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "schedules")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@Table(name = "schedules",
+       indexes = @Index(name = "idx_schedules_master_work_date", columnList = "master_id, work_date"))
 public class Schedule {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     @JdbcTypeCode(SqlTypes.CHAR)
     private UUID scheduleId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "master_id", nullable = false)
     private Master master;
 
@@ -4,6 +4,7 @@ package com.beautysalon.booking.entity;
 import com.beautysalon.booking.composite.BookableItem;
 // === Кінець змін ===
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
@@ -12,6 +13,7 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Table(name = "services")
 // === Зміни для ЛР8 (Composite) ===
 public class Service implements BookableItem {
@@ -28,7 +30,7 @@ public class Service implements BookableItem {
     @Column(name = "duration_minutes")
     private int durationMinutes;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "master_id")
     private Master master;
 
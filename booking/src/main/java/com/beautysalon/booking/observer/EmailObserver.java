@@ -3,78 +3,73 @@ package com.beautysalon.booking.observer;
 import com.beautysalon.booking.entity.Booking;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 @Component
 public class EmailObserver implements IBookingObserver {
 
-    private final JavaMailSender mailSender;
+    private final MailBatchSender mailBatchSender;
+    private final StatusMailTemplates templates = new StatusMailTemplates();
 
     @Autowired
-    public EmailObserver(JavaMailSender mailSender) {
-        this.mailSender = mailSender;
+    public EmailObserver(MailBatchSender mailBatchSender) {
+        this.mailBatchSender = mailBatchSender;
     }
 
     @Override
-    @Async 
     public void update(Booking booking) {
-        try {
-            String toEmail = booking.getClient().getEmail();
-            String clientName = booking.getClient().getName();
-            String serviceName = booking.getService().getName();
-            String masterName = booking.getMaster().getUser().getName();
-            String bookingTime = booking.getBookingDate() + " о " + booking.getBookingTime();
-            String status = booking.getStatus().name(); // PENDING, CONFIRMED...
-            
-            // 1. Перекладаємо статус на українську мову
-            String statusUa = switch (status) {
-                case "PENDING" -> "Очікує підтвердження";
-                case "CONFIRMED" -> "Підтверджено адміністратором";
-                case "PAID" -> "Оплачено";
-                case "COMPLETED" -> "Виконано (Завершено)";
-                case "CANCELLED" -> "Скасовано";
-                default -> status;
-            };
+        await(updateAsync(booking));
+    }
 
-            String subject = "Оновлення статусу: " + statusUa;
-            
-            StringBuilder text = new StringBuilder();
-            text.append("Вітаємо, ").append(clientName).append("!\n\n");
-            text.append("Статус вашого запису на послугу \"").append(serviceName).append("\" змінено.\n");
-            text.append("--------------------------------------------------\n");
-            text.append("Майстер: ").append(masterName).append("\n");
-            text.append("Час візиту: ").append(bookingTime).append("\n");
-            text.append("Новий статус: ").append(statusUa.toUpperCase()).append("\n");
-            text.append("--------------------------------------------------\n\n");
-            
-            // Додаємо підказки залежно від статусу
-            if ("CONFIRMED".equals(status)) {
-                text.append("✅ Ваше бронювання підтверджено! Будь ласка, перейдіть до особистого кабінету для оплати:\n");
-                text.append("http://localhost:8080/auth/login\n\n"); // Посилання на вхід
-            } else if ("PAID".equals(status)) {
-                text.append("💰 Оплата пройшла успішно. Чекаємо на вас у салоні!\n\n");
-            } else if ("COMPLETED".equals(status)) {
-                text.append("Дякуємо, що завітали до нас! Будемо вдячні за ваш відгук про майстра.\n");
-                text.append("Ви можете залишити його у своєму кабінеті:\n");
-                text.append("http://localhost:8080/auth/home\n\n");
-            }
+    @Override
+    public void remind(Booking booking, Duration timeLeft) {
+        await(remindAsync(booking, timeLeft));
+    }
 
-            text.append("З повагою,\nКоманда Beauty Salon");
+    /**
+     * Лист ставиться в пакет MailBatchSender; результат завершується після відправки пакета.
+     * Помилку передаємо далі: подія лишиться в outbox і лист буде надіслано повторно.
+     */
+    @Override
+    public CompletableFuture<Void> updateAsync(Booking booking) {
+        return send(templates.render(booking));
+    }
 
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom("noreply.beautysalon@gmail.com");
-            message.setTo(toEmail);
-            message.setSubject(subject);
-            message.setText(text.toString());
+    // Один лист на клієнта з усіма змінами замість листа на кожне бронювання
+    @Override
+    public CompletableFuture<Void> updateAllAsync(List<Booking> bookings) {
+        return send(templates.renderDigest(bookings));
+    }
+
+    @Override
+    public CompletableFuture<Void> remindAsync(Booking booking, Duration timeLeft) {
+        return send(templates.renderReminder(booking, timeLeft));
+    }
 
-            mailSender.send(message);
-            
-            System.out.println("📧 [EmailObserver] Лист успішно відправлено на " + toEmail);
+    private CompletableFuture<Void> send(SimpleMailMessage message) {
+        String toEmail = String.join(", ", message.getTo());
+        return mailBatchSender.submit(message).whenComplete((ignored, error) -> {
+            if (error == null) {
+                System.out.println("📧 [EmailObserver] Лист успішно відправлено на " + toEmail);
+            } else {
+                System.err.println("❌ [EmailObserver] Помилка відправки пошти: " + error.getMessage());
+            }
+        });
+    }
 
-        } catch (Exception e) {
-            System.err.println("❌ [EmailObserver] Помилка відправки пошти: " + e.getMessage());
+    private static void await(CompletableFuture<Void> result) {
+        try {
+            result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
         }
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,39 @@
 package com.beautysalon.booking.observer;
 import com.beautysalon.booking.entity.Booking;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface IBookingObserver {
     void update(Booking booking);
+
+    /**
+     * Варіант update для спостерігачів, що завершують роботу пізніше (наприклад, пакетна відправка листів):
+     * потік доставки не блокується, результат повідомляє про успіх чи помилку.
+     */
+    default CompletableFuture<Void> updateAsync(Booking booking) {
+        update(booking);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Кілька змін одного клієнта, про які він має дізнатися одним повідомленням (масове скасування дня майстра).
+     * За замовчуванням кожне бронювання обробляється як окрема зміна.
+     */
+    default CompletableFuture<Void> updateAllAsync(List<Booking> bookings) {
+        return CompletableFuture.allOf(bookings.stream().map(this::updateAsync).toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Нагадування про візит: до початку бронювання лишилось {@code timeLeft}.
+     * За замовчуванням спостерігач нагадування ігнорує.
+     */
+    default void remind(Booking booking, Duration timeLeft) {
+    }
+
+    default CompletableFuture<Void> remindAsync(Booking booking, Duration timeLeft) {
+        remind(booking, timeLeft);
+        return CompletableFuture.completedFuture(null);
+    }
 }
@@ -0,0 +1,136 @@
+package com.beautysalon.booking.observer;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пакетна відправка листів. Листи накопичуються протягом {@code booking.mail.batch.window-ms}
+ * (або до {@code booking.mail.batch.max-size}) і відправляються одним викликом
+ * {@link JavaMailSender#send(SimpleMailMessage...)}: на весь пакет відкривається одне SMTP-з'єднання,
+ * а не окреме на кожен лист. Результат кожного листа повертається окремо -
+ * невдалі листи повторить outbox, вдалі повторно не відправляються.
+ */
+@Component
+public class MailBatchSender {
+
+    private final JavaMailSender mailSender;
+    private final BlockingQueue<PendingMail> queue;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final DistributionSummary batchSizes;
+    private Thread flusher;
+    private volatile boolean running;
+
+    public MailBatchSender(JavaMailSender mailSender,
+                           MeterRegistry meterRegistry,
+                           @Value("${booking.mail.batch.window-ms:200}") long windowMillis,
+                           @Value("${booking.mail.batch.max-size:50}") int maxBatchSize,
+                           @Value("${booking.mail.batch.queue-capacity:5000}") int queueCapacity) {
+        this.mailSender = mailSender;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, windowMillis));
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSizes = DistributionSummary.builder("booking.mail.batch.size")
+                .description("Кількість листів в одному SMTP-з'єднанні")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        flusher = new Thread(this::run, "mail-batcher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // Відправити вже прийняті листи, потім зупинити потік
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        flusher.interrupt();
+    }
+
+    public CompletableFuture<Void> submit(SimpleMailMessage message) {
+        PendingMail mail = new PendingMail(message, new CompletableFuture<>());
+        if (!running) {
+            send(List.of(mail)); // застосунок зупиняється: відправляємо одразу
+        } else if (!queue.offer(mail)) {
+            mail.result.completeExceptionally(new RejectedExecutionException("Черга листів заповнена"));
+        }
+        return mail.result;
+    }
+
+    private void run() {
+        List<PendingMail> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingMail first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    // Те, що вже в черзі, забираємо без очікування
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long left = deadline - System.nanoTime();
+                    PendingMail next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(mail -> mail.result.completeExceptionally(e));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(List<PendingMail> batch) {
+        batchSizes.record(batch.size());
+        SimpleMailMessage[] messages = batch.stream().map(PendingMail::message).toArray(SimpleMailMessage[]::new);
+        try {
+            mailSender.send(messages);
+            batch.forEach(mail -> mail.result.complete(null));
+        } catch (MailSendException e) {
+            // JavaMailSenderImpl продовжує пакет після помилки окремого листа і повертає лише невдалі
+            Map<Object, Exception> failed = e.getFailedMessages();
+            for (PendingMail mail : batch) {
+                Exception error = failed.isEmpty() ? e : failed.get(mail.message);
+                if (error == null) {
+                    mail.result.complete(null);
+                } else {
+                    mail.result.completeExceptionally(error);
+                }
+            }
+        } catch (RuntimeException e) {
+            batch.forEach(mail -> mail.result.completeExceptionally(e));
+        }
+    }
+
+    private record PendingMail(SimpleMailMessage message, CompletableFuture<Void> result) {}
+}
@@ -3,6 +3,8 @@ package com.beautysalon.booking.observer;
 import com.beautysalon.booking.entity.Booking;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+
 /**
  * Конкретний спостерігач, який "надсилає SMS".
  */
@@ -19,4 +21,15 @@ public class SmsObserver implements IBookingObserver {
             "\n---------------------"
         );
     }
+
+    @Override
+    public void remind(Booking booking, Duration timeLeft) {
+        System.out.println(
+            "--- [SmsObserver] ---" +
+            "\nНадсилаємо SMS на номер: " + booking.getClient().getPhone() +
+            "\nТекст: Нагадуємо про візит " + booking.getBookingDate() + " о " + booking.getBookingTime() +
+            " (через " + timeLeft.toHours() + " год)" +
+            "\n---------------------"
+        );
+    }
 }
\ No newline at end of file
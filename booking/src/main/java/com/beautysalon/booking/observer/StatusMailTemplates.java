@@ -0,0 +1,185 @@
+package com.beautysalon.booking.observer;
+
+import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.BookingStatus;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Шаблони листів про зміну статусу бронювання та нагадувань про візит.
+ * Текст для кожного статусу збирається один раз при створенні і розбивається на
+ * незмінні фрагменти та місця підстановки; для листа лишається лише вставити дані бронювання.
+ */
+final class StatusMailTemplates {
+
+    private static final String FROM = "noreply.beautysalon@gmail.com";
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{(client|service|master|time|left)}");
+
+    private final Map<BookingStatus, Template> templates = new EnumMap<>(BookingStatus.class);
+    private final Template reminder = Template.of("Нагадування: ваш візит через {left}",
+            "Вітаємо, {client}!\n\n" +
+            "Нагадуємо, що через {left} у вас запис на послугу \"{service}\".\n" +
+            "--------------------------------------------------\n" +
+            "Майстер: {master}\n" +
+            "Час візиту: {time}\n" +
+            "--------------------------------------------------\n\n" +
+            "Якщо ваші плани змінились, скасуйте запис у кабінеті:\n" +
+            "http://localhost:8080/auth/home\n\n" +
+            "З повагою,\nКоманда Beauty Salon");
+
+    StatusMailTemplates() {
+        for (BookingStatus status : BookingStatus.values()) {
+            String statusUa = translate(status);
+            String body = "Вітаємо, {client}!\n\n" +
+                    "Статус вашого запису на послугу \"{service}\" змінено.\n" +
+                    "--------------------------------------------------\n" +
+                    "Майстер: {master}\n" +
+                    "Час візиту: {time}\n" +
+                    "Новий статус: " + statusUa.toUpperCase() + "\n" +
+                    "--------------------------------------------------\n\n" +
+                    hint(status) +
+                    "З повагою,\nКоманда Beauty Salon";
+            templates.put(status, Template.of("Оновлення статусу: " + statusUa, body));
+        }
+    }
+
+    SimpleMailMessage render(Booking booking) {
+        return render(templates.get(booking.getStatus()), booking, "");
+    }
+
+    /**
+     * Один лист про зміну статусу кількох записів клієнта (масове скасування).
+     * Кількість записів змінна, тому текст збирається без шаблону.
+     */
+    SimpleMailMessage renderDigest(List<Booking> bookings) {
+        Booking first = bookings.get(0);
+        boolean sameStatus = bookings.stream().allMatch(booking -> booking.getStatus() == first.getStatus());
+        StringBuilder text = new StringBuilder(256 + bookings.size() * 96)
+                .append("Вітаємо, ").append(first.getClient().getName()).append("!\n\n")
+                .append("Змінено статус ваших записів (").append(bookings.size()).append("):\n")
+                .append("--------------------------------------------------\n");
+        for (Booking booking : bookings) {
+            text.append(booking.getBookingDate()).append(" о ").append(booking.getBookingTime())
+                    .append(" - \"").append(booking.getService().getName()).append("\", майстер ")
+                    .append(booking.getMaster().getUser().getName())
+                    .append(": ").append(translate(booking.getStatus()).toUpperCase()).append('\n');
+        }
+        text.append("--------------------------------------------------\n\n");
+        if (sameStatus) {
+            text.append(hint(first.getStatus()));
+        }
+        if (sameStatus && first.getStatus() == BookingStatus.CANCELLED) {
+            text.append("Вибачте за незручності. Оплачені записи буде повернено на вашу картку.\n" +
+                    "Обрати інший час можна у кабінеті:\nhttp://localhost:8080/auth/home\n\n");
+        }
+        text.append("З повагою,\nКоманда Beauty Salon");
+
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(FROM);
+        message.setTo(first.getClient().getEmail());
+        message.setSubject(sameStatus
+                ? "Оновлення статусу: " + translate(first.getStatus()) + " (записів: " + bookings.size() + ")"
+                : "Оновлення статусу ваших записів");
+        message.setText(text.toString());
+        return message;
+    }
+
+    SimpleMailMessage renderReminder(Booking booking, Duration timeLeft) {
+        return render(reminder, booking, formatTimeLeft(timeLeft));
+    }
+
+    private static SimpleMailMessage render(Template template, Booking booking, String timeLeft) {
+        String[] values = {
+                booking.getClient().getName(),
+                booking.getService().getName(),
+                booking.getMaster().getUser().getName(),
+                booking.getBookingDate() + " о " + booking.getBookingTime(),
+                timeLeft
+        };
+
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(FROM);
+        message.setTo(booking.getClient().getEmail());
+        message.setSubject(template.subject.render(values));
+        message.setText(template.body.render(values));
+        return message;
+    }
+
+    private static String formatTimeLeft(Duration timeLeft) {
+        long minutes = timeLeft.toMinutes();
+        return minutes % 60 == 0 ? minutes / 60 + " год" : minutes + " хв";
+    }
+
+    private static String translate(BookingStatus status) {
+        return switch (status) {
+            case PENDING -> "Очікує підтвердження";
+            case CONFIRMED -> "Підтверджено адміністратором";
+            case PAID -> "Оплачено";
+            case COMPLETED -> "Виконано (Завершено)";
+            case CANCELLED -> "Скасовано";
+        };
+    }
+
+    // Підказки залежно від статусу
+    private static String hint(BookingStatus status) {
+        return switch (status) {
+            case CONFIRMED -> "✅ Ваше бронювання підтверджено! Будь ласка, перейдіть до особистого кабінету для оплати:\n" +
+                    "http://localhost:8080/auth/login\n\n";
+            case PAID -> "💰 Оплата пройшла успішно. Чекаємо на вас у салоні!\n\n";
+            case COMPLETED -> "Дякуємо, що завітали до нас! Будемо вдячні за ваш відгук про майстра.\n" +
+                    "Ви можете залишити його у своєму кабінеті:\n" +
+                    "http://localhost:8080/auth/home\n\n";
+            default -> "";
+        };
+    }
+
+    private record Template(Fragments subject, Fragments body) {
+        static Template of(String subject, String body) {
+            return new Template(Fragments.compile(subject), Fragments.compile(body));
+        }
+    }
+
+    /**
+     * Текст, розбитий на фрагменти: literals[i], потім значення slots[i], ..., останній фрагмент literals[n].
+     * Номери в slots відповідають порядку значень у {@link #render(Template, Booking, String)}:
+     * client, service, master, time, left.
+     */
+    private record Fragments(String[] literals, int[] slots, int literalLength) {
+
+        private static final List<String> NAMES = List.of("client", "service", "master", "time", "left");
+
+        static Fragments compile(String text) {
+            List<String> literals = new ArrayList<>();
+            List<Integer> slots = new ArrayList<>();
+            Matcher matcher = PLACEHOLDER.matcher(text);
+            int from = 0;
+            while (matcher.find()) {
+                literals.add(text.substring(from, matcher.start()));
+                slots.add(NAMES.indexOf(matcher.group(1)));
+                from = matcher.end();
+            }
+            literals.add(text.substring(from));
+            int literalLength = literals.stream().mapToInt(String::length).sum();
+            return new Fragments(literals.toArray(String[]::new),
+                    slots.stream().mapToInt(Integer::intValue).toArray(), literalLength);
+        }
+
+        String render(String[] values) {
+            if (slots.length == 0) {
+                return literals[0];
+            }
+            StringBuilder text = new StringBuilder(literalLength + 128);
+            for (int i = 0; i < slots.length; i++) {
+                text.append(literals[i]).append(values[slots[i]]);
+            }
+            return text.append(literals[slots.length]).toString();
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.beautysalon.booking.payment;
 
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 public class CardPaymentStrategy implements PaymentStrategy {
 
@@ -32,4 +34,13 @@ public class CardPaymentStrategy implements PaymentStrategy {
         }
         return false;
     }
+
+    @Override
+    public List<Boolean> processRefunds(List<Double> amounts) {
+        List<Boolean> results = amounts.stream().map(amount -> amount > 0).toList();
+        double total = amounts.stream().filter(amount -> amount > 0).mapToDouble(Double::doubleValue).sum();
+        System.out.println("💳 [Strategy: CARD] Пакетне повернення: " + results.stream().filter(Boolean::booleanValue).count() +
+                " з " + amounts.size() + " платежів, " + total + " грн.");
+        return results;
+    }
 }
\ No newline at end of file
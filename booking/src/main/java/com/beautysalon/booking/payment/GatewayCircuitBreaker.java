@@ -0,0 +1,66 @@
+package com.beautysalon.booking.payment;
+
+/**
+ * Запобіжник платіжного шлюзу.
+ * <p>
+ * Після {@code failureThreshold} збоїв поспіль (помилка або тайм-аут, але не відмова банку) розмикається:
+ * протягом {@code openMillis} звернення до шлюзу відхиляються одразу, без очікування.
+ * Потім пропускається один пробний виклик: успіх замикає запобіжник, збій розмикає знову.
+ */
+final class GatewayCircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    GatewayCircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+    }
+
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    synchronized void onFailure() {
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            consecutiveFailures = 0;
+        }
+    }
+
+    // Дозвіл отримано, але виклик так і не відбувся (переповнена черга шлюзу)
+    synchronized void release() {
+        trialInFlight = false;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+}
@@ -0,0 +1,202 @@
+package com.beautysalon.booking.payment;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import com.beautysalon.booking.service.TransientFailureException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Звернення до платіжних стратегій через ізольований пул потоків (bulkhead).
+ * <p>
+ * Виклики шлюзу виконуються в окремому обмеженому пулі {@code booking.payment.gateway.threads}
+ * з чергою {@code queue-capacity}: повільний шлюз не забирає потоки решти застосунку, а надлишкові
+ * запити отримують відмову одразу. Кожен виклик обмежений {@code timeout-ms}, повторні збої
+ * розмикають {@link GatewayCircuitBreaker}.
+ * <p>
+ * Викликається поза транзакцією: під час очікування шлюзу з'єднання з БД не утримується.
+ * Списання, що завершилося успіхом уже після тайм-ауту, автоматично повертається.
+ */
+@Component
+public class PaymentGateway {
+
+    private final ThreadPoolExecutor executor;
+    private final GatewayCircuitBreaker circuitBreaker;
+    private final long timeoutMillis;
+    private final MeterRegistry meterRegistry;
+
+    public PaymentGateway(MeterRegistry meterRegistry,
+                          @Value("${booking.payment.gateway.threads:8}") int threads,
+                          @Value("${booking.payment.gateway.queue-capacity:32}") int queueCapacity,
+                          @Value("${booking.payment.gateway.timeout-ms:5000}") long timeoutMillis,
+                          @Value("${booking.payment.gateway.breaker.failure-threshold:5}") int failureThreshold,
+                          @Value("${booking.payment.gateway.breaker.open-seconds:30}") long openSeconds) {
+        this.meterRegistry = meterRegistry;
+        this.timeoutMillis = timeoutMillis;
+        this.circuitBreaker = new GatewayCircuitBreaker(failureThreshold, TimeUnit.SECONDS.toMillis(openSeconds));
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "payment-gateway-" + threadIds.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Gauge.builder("booking.payment.gateway.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Виклики платіжного шлюзу, що виконуються")
+                .register(meterRegistry);
+        Gauge.builder("booking.payment.gateway.queued", executor, pool -> pool.getQueue().size())
+                .description("Виклики платіжного шлюзу в черзі")
+                .register(meterRegistry);
+        Gauge.builder("booking.payment.gateway.breaker.open", circuitBreaker,
+                        breaker -> breaker.state() == GatewayCircuitBreaker.State.CLOSED ? 0 : 1)
+                .description("1 - запобіжник шлюзу розімкнено")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * @return {@code true} - кошти списано, {@code false} - платіж відхилено
+     * @throws TransientFailureException шлюз недоступний, перевантажений, завершився помилкою
+     *                                   або не відповів вчасно; коштів не списано
+     */
+    public boolean charge(PaymentStrategy strategy, double amount, String cardNumber) {
+        return call("charge", strategy, () -> strategy.processPayment(amount, cardNumber), PaymentGateway::outcome,
+                approved -> {
+                    if (Boolean.TRUE.equals(approved)) {
+                        compensateLateCharge(strategy, amount);
+                    }
+                }, "Платіжний шлюз не відповів вчасно. Кошти не списано, спробуйте ще раз.");
+    }
+
+    /**
+     * @param onLateResult результат повернення, що завершилося вже після {@link GatewayTimeoutException}:
+     *                     {@code null}, якщо шлюз завершився помилкою
+     * @throws GatewayTimeoutException шлюз не відповів вчасно; чи повернено кошти, невідомо до onLateResult
+     */
+    public boolean refund(PaymentStrategy strategy, double amount, Consumer<Boolean> onLateResult) {
+        return call("refund", strategy, () -> strategy.processRefund(amount), PaymentGateway::outcome, onLateResult,
+                "Платіжний шлюз не відповів вчасно, результат повернення коштів ще невідомий.");
+    }
+
+    /**
+     * Пакет повернень одним зверненням до шлюзу ({@link PaymentStrategy#processRefunds}):
+     * один дозвіл запобіжника, одне місце в пулі й один тайм-аут на весь пакет.
+     *
+     * @return результат для кожної суми в порядку {@code amounts}
+     * @see #refund(PaymentStrategy, double, Consumer)
+     */
+    public List<Boolean> refundAll(PaymentStrategy strategy, List<Double> amounts, Consumer<List<Boolean>> onLateResult) {
+        return call("refund-batch", strategy, () -> strategy.processRefunds(amounts),
+                results -> results.contains(Boolean.FALSE) ? "partial" : "success", onLateResult,
+                "Платіжний шлюз не відповів вчасно, результат пакета повернень ще невідомий.");
+    }
+
+    private <T> T call(String operation, PaymentStrategy strategy, Supplier<T> work,
+                       Function<T, String> outcomeOf, Consumer<T> onLateResult, String timeoutMessage) {
+        if (!circuitBreaker.tryAcquire()) {
+            record(operation, strategy, "breaker-open", 0);
+            throw TransientFailureException.unavailable("Платіжний шлюз тимчасово недоступний. Спробуйте пізніше.");
+        }
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(work, executor);
+        } catch (RejectedExecutionException e) {
+            circuitBreaker.release();
+            record(operation, strategy, "rejected", 0);
+            throw TransientFailureException.unavailable("Платіжний шлюз перевантажений. Спробуйте за хвилину.");
+        }
+
+        long started = System.nanoTime();
+        boolean settled = false;
+        try {
+            T result = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            circuitBreaker.onSuccess();
+            settled = true;
+            record(operation, strategy, outcomeOf.apply(result), System.nanoTime() - started);
+            return result;
+        } catch (TimeoutException e) {
+            circuitBreaker.onFailure();
+            settled = true;
+            record(operation, strategy, "timeout", System.nanoTime() - started);
+            // Виклик не скасувати: його результат (списання чи повернення) ще треба врахувати
+            future.whenComplete((lateResult, error) -> onLateResult.accept(error == null ? lateResult : null));
+            throw new GatewayTimeoutException(timeoutMessage);
+        } catch (ExecutionException e) {
+            circuitBreaker.onFailure();
+            settled = true;
+            record(operation, strategy, "error", System.nanoTime() - started);
+            throw new GatewayErrorException("Помилка платіжного шлюзу: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            record(operation, strategy, "interrupted", System.nanoTime() - started);
+            // Виклик у пулі триває так само, як після тайм-ауту
+            future.whenComplete((lateResult, error) -> onLateResult.accept(error == null ? lateResult : null));
+            throw new GatewayTimeoutException("Очікування платіжного шлюзу перервано. " + timeoutMessage);
+        } finally {
+            // Стан шлюзу невідомий (перервано очікування): дозвіл повертається без оцінки, інакше пробний
+            // виклик напіврозімкненого запобіжника лишився б зайнятим назавжди
+            if (!settled) {
+                circuitBreaker.release();
+            }
+        }
+    }
+
+    private static String outcome(boolean approved) {
+        return approved ? "success" : "declined";
+    }
+
+    private void compensateLateCharge(PaymentStrategy strategy, double amount) {
+        try {
+            boolean refunded = strategy.processRefund(amount);
+            System.out.println("PaymentGateway: списання " + amount + " грн після тайм-ауту " +
+                    (refunded ? "повернено" : "НЕ ВДАЛОСЯ повернути - потрібна ручна звірка"));
+        } catch (RuntimeException e) {
+            System.err.println("PaymentGateway: не вдалося повернути списання після тайм-ауту: " + e.getMessage());
+        }
+    }
+
+    private void record(String operation, PaymentStrategy strategy, String outcome, long nanos) {
+        Timer.builder("booking.payment.gateway.calls")
+                .description("Виклики платіжного шлюзу")
+                .tag("operation", operation)
+                .tag("method", strategy.getId())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Шлюз не відповів за {@code timeout-ms}, але виклик триває: результат операції невідомий,
+     * поки не спрацює переданий обробник пізнього результату.
+     */
+    public static class GatewayTimeoutException extends TransientFailureException {
+        GatewayTimeoutException(String message) {
+            super(message, false, null);
+        }
+    }
+
+    private static class GatewayErrorException extends TransientFailureException {
+        GatewayErrorException(String message, Throwable cause) {
+            super(message, false, cause);
+        }
+    }
+}
@@ -1,7 +1,30 @@
 package com.beautysalon.booking.payment;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface PaymentStrategy {
     String getId();
     boolean processPayment(double amount, String cardNumber);
     boolean processRefund(double amount);
-}
\ No newline at end of file
+
+    /**
+     * Пакетне повернення (масове скасування): результат для кожної суми в тому ж порядку.
+     * За замовчуванням - послідовні {@link #processRefund}; стратегія, чий шлюз приймає пакет
+     * одним запитом, перевизначає метод.
+     */
+    default List<Boolean> processRefunds(List<Double> amounts) {
+        List<Boolean> results = new ArrayList<>(amounts.size());
+        for (double amount : amounts) {
+            boolean refunded;
+            try {
+                refunded = processRefund(amount);
+            } catch (RuntimeException e) {
+                // Збій одного повернення не скасовує решту пакета
+                refunded = false;
+            }
+            results.add(refunded);
+        }
+        return results;
+    }
+}
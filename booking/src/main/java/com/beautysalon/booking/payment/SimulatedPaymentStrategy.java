@@ -0,0 +1,76 @@
+package com.beautysalon.booking.payment;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Імітація повільного платіжного шлюзу для навантажувальних перевірок: {@code paymentMethod=SIMULATED}.
+ * Вмикається лише {@code booking.payment.simulated.enabled=true}.
+ * <p>
+ * Кожен виклик "спить" {@code latency-ms} ± {@code jitter-ms}; частка {@code failure-rate} викликів
+ * завершується помилкою шлюзу, картки на 0000 відхиляються.
+ */
+@Service
+@ConditionalOnProperty(name = "booking.payment.simulated.enabled", havingValue = "true")
+public class SimulatedPaymentStrategy implements PaymentStrategy {
+
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double failureRate;
+
+    public SimulatedPaymentStrategy(@Value("${booking.payment.simulated.latency-ms:2000}") long latencyMillis,
+                                    @Value("${booking.payment.simulated.jitter-ms:0}") long jitterMillis,
+                                    @Value("${booking.payment.simulated.failure-rate:0}") double failureRate) {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.failureRate = failureRate;
+        System.out.println("SimulatedPaymentStrategy: затримка " + latencyMillis + "±" + jitterMillis +
+                " мс, частка збоїв " + failureRate);
+    }
+
+    @Override
+    public String getId() {
+        return "SIMULATED";
+    }
+
+    @Override
+    public boolean processPayment(double amount, String cardNumber) {
+        simulateGateway();
+        boolean approved = amount > 0 && !cardNumber.endsWith("0000");
+        System.out.println("🧪 [Strategy: SIMULATED] " + (approved ? "Успішна оплата " : "Відхилено ") + amount + " грн.");
+        return approved;
+    }
+
+    @Override
+    public boolean processRefund(double amount) {
+        simulateGateway();
+        System.out.println("🧪 [Strategy: SIMULATED] Повернення " + amount + " грн.");
+        return amount > 0;
+    }
+
+    // Пакет - один запит до шлюзу: одна затримка на всі суми
+    @Override
+    public List<Boolean> processRefunds(List<Double> amounts) {
+        simulateGateway();
+        System.out.println("🧪 [Strategy: SIMULATED] Пакетне повернення " + amounts.size() + " платежів");
+        return amounts.stream().map(amount -> amount > 0).toList();
+    }
+
+    private void simulateGateway() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = latencyMillis + (jitterMillis > 0 ? random.nextLong(-jitterMillis, jitterMillis + 1) : 0);
+        try {
+            Thread.sleep(Math.max(0, delay));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Імітацію шлюзу перервано");
+        }
+        if (random.nextDouble() < failureRate) {
+            throw new IllegalStateException("Імітована помилка шлюзу");
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.beautysalon.booking.reminder;
+
+import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.BookingStatus;
+import com.beautysalon.booking.observer.IBookingObserver;
+import com.beautysalon.booking.repository.IBookingRepository;
+import com.beautysalon.booking.service.BookingEventPublisher;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Нагадування клієнтам про візит ("через 24 год", "через 2 год").
+ * <p>
+ * Нагадування майбутніх бронювань зберігаються в {@link TimingWheel}: при старті завантажуються
+ * ключ і час початку всіх бронювань, що ще відбудуться, а далі колесо синхронізується з потоком
+ * подій бронювань - планувальник підписаний як спостерігач і отримує кожну зміну статусу з outbox.
+ * Створення, скасування чи перенесення бронювання - O(1) операції над колесом, без опитування таблиці bookings.
+ * <p>
+ * Нагадування, час якого настав, доставляється спостерігачам через
+ * {@link BookingEventPublisher#remindObservers}. Перед цим бронювання перечитується з БД:
+ * скасоване або перенесене бронювання нагадування не отримує. Нагадування, пропущені
+ * під час зупинки застосунку, після старту не надсилаються.
+ */
+@Component
+public class AppointmentReminderScheduler implements IBookingObserver {
+
+    private static final int LOAD_CHUNK = 500;
+
+    private final IBookingRepository bookingRepository;
+    private final BookingEventPublisher eventPublisher;
+    private final List<Duration> leadTimes;
+    private final Duration lastLeadTime;
+    private final TimingWheel<Reminder> wheel;
+    private final Map<UUID, BookingReminders> scheduled = new ConcurrentHashMap<>();
+
+    public AppointmentReminderScheduler(IBookingRepository bookingRepository,
+                                        BookingEventPublisher eventPublisher,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${booking.reminders.lead-minutes:1440,120}") long[] leadMinutes,
+                                        @Value("${booking.reminders.tick-ms:60000}") long tickMillis) {
+        this.bookingRepository = bookingRepository;
+        this.eventPublisher = eventPublisher;
+        this.leadTimes = Arrays.stream(leadMinutes).filter(minutes -> minutes > 0).distinct()
+                .mapToObj(Duration::ofMinutes).sorted(Comparator.reverseOrder()).toList();
+        if (leadTimes.isEmpty()) {
+            throw new IllegalArgumentException("booking.reminders.lead-minutes має містити хоча б одне додатне значення");
+        }
+        this.lastLeadTime = leadTimes.get(leadTimes.size() - 1);
+        this.wheel = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+        Gauge.builder("booking.reminders.scheduled", wheel, TimingWheel::size)
+                .description("Заплановані нагадування про візит")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadUpcoming() {
+        List<Object[]> rows = bookingRepository.findUpcomingStarts(LocalDate.now());
+        for (Object[] row : rows) {
+            schedule((UUID) row[0], LocalDateTime.of((LocalDate) row[1], (LocalTime) row[2]));
+        }
+        System.out.println("AppointmentReminderScheduler: заплановано " + wheel.size() + " нагадувань для " +
+                scheduled.size() + " бронювань");
+    }
+
+    // Подія з outbox: бронювання створене, змінило статус або час
+    @Override
+    public void update(Booking booking) {
+        if (booking.getStatus() == BookingStatus.CANCELLED || booking.getStatus() == BookingStatus.COMPLETED) {
+            BookingReminders removed = scheduled.remove(booking.getBookingId());
+            if (removed != null) {
+                removed.cancel();
+            }
+        } else {
+            schedule(booking.getBookingId(), startOf(booking));
+        }
+    }
+
+    @Scheduled(fixedRateString = "${booking.reminders.tick-ms:60000}")
+    public void tick() {
+        List<Reminder> due = wheel.advance(System.currentTimeMillis());
+        if (due.isEmpty()) {
+            return;
+        }
+        for (int from = 0; from < due.size(); from += LOAD_CHUNK) {
+            List<Reminder> chunk = due.subList(from, Math.min(due.size(), from + LOAD_CHUNK));
+            Map<UUID, Booking> bookings = bookingRepository.findWithDetailsByBookingIdIn(
+                            chunk.stream().map(Reminder::bookingId).collect(Collectors.toSet())).stream()
+                    .collect(Collectors.toMap(Booking::getBookingId, Function.identity()));
+            for (Reminder reminder : chunk) {
+                fire(reminder, bookings.get(reminder.bookingId()));
+            }
+        }
+    }
+
+    private void fire(Reminder reminder, Booking booking) {
+        if (reminder.leadTime().equals(lastLeadTime)) {
+            scheduled.computeIfPresent(reminder.bookingId(),
+                    (id, entry) -> entry.start().equals(reminder.start()) ? null : entry);
+        }
+        // Стан у БД важливіший за колесо: подія скасування могла ще не дійти з outbox
+        if (booking == null || !startOf(booking).equals(reminder.start())
+                || booking.getStatus() == BookingStatus.CANCELLED || booking.getStatus() == BookingStatus.COMPLETED) {
+            return;
+        }
+        System.out.println("AppointmentReminderScheduler: нагадування за " + reminder.leadTime().toMinutes() +
+                " хв для бронювання " + booking.getBookingId());
+        eventPublisher.remindObservers(booking, reminder.leadTime());
+    }
+
+    // Повторне планування з тим самим часом нічого не змінює; новий час скасовує попередні нагадування
+    private void schedule(UUID bookingId, LocalDateTime start) {
+        scheduled.compute(bookingId, (id, existing) -> {
+            if (existing != null) {
+                if (existing.start().equals(start)) {
+                    return existing;
+                }
+                existing.cancel();
+            }
+            long now = System.currentTimeMillis();
+            long startMillis = start.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            List<TimingWheel.Timeout<Reminder>> timeouts = new ArrayList<>(leadTimes.size());
+            for (Duration lead : leadTimes) {
+                long fireAt = startMillis - lead.toMillis();
+                if (fireAt > now) {
+                    timeouts.add(wheel.schedule(fireAt, new Reminder(id, start, lead)));
+                }
+            }
+            return timeouts.isEmpty() ? null : new BookingReminders(start, timeouts);
+        });
+    }
+
+    private static LocalDateTime startOf(Booking booking) {
+        return LocalDateTime.of(booking.getBookingDate(), booking.getBookingTime());
+    }
+
+    private record Reminder(UUID bookingId, LocalDateTime start, Duration leadTime) {}
+
+    private record BookingReminders(LocalDateTime start, List<TimingWheel.Timeout<Reminder>> timeouts) {
+        void cancel() {
+            timeouts.forEach(TimingWheel.Timeout::cancel);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.beautysalon.booking.reminder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ієрархічне колесо таймерів (hashed hierarchical timing wheel).
+ * <p>
+ * Рівень 0 має {@value #WHEEL_SIZE} комірок по одному тіку, кожен наступний рівень - {@value #WHEEL_SIZE}
+ * комірок по {@value #WHEEL_SIZE}^L тіків. Таймер кладеться на найнижчий рівень, що вміщує його
+ * відстань до поточного тіку, а коли настає період його комірки на вищому рівні - переноситься нижче.
+ * Комірки - двобічні списки, тому додавання і скасування таймера виконуються за O(1)
+ * незалежно від кількості запланованих таймерів; {@link #advance(long)} обробляє лише комірки поточного тіку.
+ * <p>
+ * Потокобезпечний: операції над колесом виконуються під монітором колеса,
+ * прострочені таймери повертаються викликачу для обробки поза ним.
+ */
+public class TimingWheel<T> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    // 64^5 тіків: при тіку в хвилину - понад 60 років
+    private static final int LEVELS = 5;
+    private static final long MAX_TICKS = (1L << (LEVELS * WHEEL_BITS)) - 1;
+
+    private final long tickMillis;
+    private final Bucket[][] buckets = new Bucket[LEVELS][WHEEL_SIZE];
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Тік колеса таймерів має бути додатним");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        for (Bucket[] level : buckets) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                level[i] = new Bucket();
+            }
+        }
+    }
+
+    /**
+     * Планує таймер на момент {@code deadlineMillis} (з точністю до тіку).
+     * Таймер, час якого вже настав, спрацює при наступному {@link #advance(long)}.
+     */
+    public synchronized Timeout<T> schedule(long deadlineMillis, T payload) {
+        long deadlineTick = Math.min(Math.max(deadlineMillis / tickMillis, currentTick + 1), currentTick + MAX_TICKS);
+        Timeout<T> timeout = new Timeout<>(this, deadlineTick, payload);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Просуває колесо до моменту {@code nowMillis} і повертає таймери, що спрацювали, в порядку їх часу.
+     */
+    public List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = nowMillis / tickMillis;
+            while (currentTick < targetTick) {
+                currentTick++;
+                // Спершу вищі рівні: таймери з комірки, чий період почався, переносяться нижче
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    int shift = level * WHEEL_BITS;
+                    if ((currentTick & ((1L << shift) - 1)) == 0) {
+                        cascade(buckets[level][(int) ((currentTick >>> shift) & WHEEL_MASK)]);
+                    }
+                }
+                Bucket due = buckets[0][(int) (currentTick & WHEEL_MASK)];
+                for (Timeout<?> timeout = due.head; timeout != null; timeout = due.head) {
+                    due.unlink(timeout);
+                    size--;
+                    @SuppressWarnings("unchecked")
+                    T payload = (T) timeout.payload;
+                    expired.add(payload);
+                }
+            }
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void cascade(Bucket bucket) {
+        for (Timeout<?> timeout = bucket.head; timeout != null; timeout = bucket.head) {
+            bucket.unlink(timeout);
+            place(timeout);
+        }
+    }
+
+    private void place(Timeout<?> timeout) {
+        long ticks = timeout.deadlineTick - currentTick;
+        int level = 0;
+        // Найнижчий рівень, на якому відстань до таймера вміщується в одне коло
+        while (level < LEVELS - 1 && ticks >= 1L << ((level + 1) * WHEEL_BITS)) {
+            level++;
+        }
+        // При перенесенні таймер поточного тіку потрапляє в комірку, яку advance обробить одразу після цього
+        long tick = Math.max(timeout.deadlineTick, currentTick);
+        buckets[level][(int) ((tick >>> (level * WHEEL_BITS)) & WHEEL_MASK)].link(timeout);
+    }
+
+    private synchronized boolean cancel(Timeout<?> timeout) {
+        if (timeout.bucket == null) {
+            return false;
+        }
+        timeout.bucket.unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Запланований таймер. {@link #cancel()} прибирає його з колеса за O(1).
+     */
+    public static final class Timeout<T> {
+        private final TimingWheel<T> wheel;
+        private final long deadlineTick;
+        private final T payload;
+        private Bucket bucket;
+        private Timeout<?> prev;
+        private Timeout<?> next;
+
+        private Timeout(TimingWheel<T> wheel, long deadlineTick, T payload) {
+            this.wheel = wheel;
+            this.deadlineTick = deadlineTick;
+            this.payload = payload;
+        }
+
+        public T getPayload() { return payload; }
+
+        // false, якщо таймер уже спрацював або скасований
+        public boolean cancel() {
+            return wheel.cancel(this);
+        }
+    }
+
+    private static final class Bucket {
+        private Timeout<?> head;
+        private Timeout<?> tail;
+
+        void link(Timeout<?> timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void unlink(Timeout<?> timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.beautysalon.booking.repository;
+
+import com.beautysalon.booking.dto.BookingCursor;
+import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.BookingStatus;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * Умови для журналу бронювань. До запиту потрапляють лише задані фільтри,
+ * тому кожна комбінація отримує простий предикат, який БД може обслужити індексом.
+ */
+public final class BookingSpecifications {
+
+    private BookingSpecifications() {}
+
+    public static Specification<Booking> hasStatus(BookingStatus status) {
+        return (root, query, cb) -> status == null ? null : cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<Booking> hasMaster(UUID masterId) {
+        return (root, query, cb) -> masterId == null ? null : cb.equal(root.get("master").get("masterId"), masterId);
+    }
+
+    public static Specification<Booking> dateFrom(LocalDate from) {
+        return (root, query, cb) -> from == null ? null : cb.greaterThanOrEqualTo(root.get("bookingDate"), from);
+    }
+
+    public static Specification<Booking> dateTo(LocalDate to) {
+        return (root, query, cb) -> to == null ? null : cb.lessThanOrEqualTo(root.get("bookingDate"), to);
+    }
+
+    /**
+     * Записи, що йдуть після курсора в порядку (дата, час, id) за спаданням.
+     * Окреме обмеження {@code bookingDate <= date} дає БД діапазон для сканування індексу.
+     */
+    public static Specification<Booking> before(BookingCursor cursor) {
+        return (root, query, cb) -> {
+            if (cursor == null) {
+                return null;
+            }
+            var date = root.<LocalDate>get("bookingDate");
+            var time = root.<LocalTime>get("bookingTime");
+            var id = root.<UUID>get("bookingId");
+            return cb.and(
+                    cb.lessThanOrEqualTo(date, cursor.getBookingDate()),
+                    cb.or(
+                            cb.lessThan(date, cursor.getBookingDate()),
+                            cb.and(cb.equal(date, cursor.getBookingDate()), cb.lessThan(time, cursor.getBookingTime())),
+                            cb.and(cb.equal(date, cursor.getBookingDate()), cb.equal(time, cursor.getBookingTime()),
+                                    cb.lessThan(id, cursor.getBookingId()))));
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package com.beautysalon.booking.repository;
+
+import com.beautysalon.booking.dto.BookingCursor;
+import com.beautysalon.booking.entity.Booking;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Фрагмент репозиторію для журналу бронювань: перша фаза keyset-пагінації.
+ */
+public interface IBookingJournalRepository {
+
+    /**
+     * Ключі (дата, час, id) перших {@code limit} бронювань, що задовольняють фільтр,
+     * у порядку від новіших до старіших. Запит не торкається інших таблиць.
+     */
+    List<BookingCursor> findJournalKeys(Specification<Booking> filter, int limit);
+}
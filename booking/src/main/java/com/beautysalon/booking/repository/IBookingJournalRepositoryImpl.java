@@ -0,0 +1,49 @@
+package com.beautysalon.booking.repository;
+
+import com.beautysalon.booking.dto.BookingCursor;
+import com.beautysalon.booking.entity.Booking;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+
+class IBookingJournalRepositoryImpl implements IBookingJournalRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<BookingCursor> findJournalKeys(Specification<Booking> filter, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Booking> root = query.from(Booking.class);
+
+        Path<LocalDate> date = root.get("bookingDate");
+        Path<LocalTime> time = root.get("bookingTime");
+        Path<UUID> id = root.get("bookingId");
+
+        query.multiselect(date, time, id);
+        Predicate predicate = filter.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(cb.desc(date), cb.desc(time), cb.desc(id));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(t -> new BookingCursor(t.get(0, LocalDate.class), t.get(1, LocalTime.class), t.get(2, UUID.class)))
+                .toList();
+    }
+}
@@ -0,0 +1,48 @@
+package com.beautysalon.booking.repository;
+
+import com.beautysalon.booking.entity.BookingOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface IBookingOutboxRepository extends JpaRepository<BookingOutboxEvent, Long> {
+
+    // Події, час яких настав, у порядку запису. Подія не береться, поки раніша подія того ж
+    // бронювання чекає на повторну спробу: так клієнт не отримає "Скасовано" раніше за "Підтверджено"
+    @Query("SELECT e FROM BookingOutboxEvent e WHERE e.state = com.beautysalon.booking.entity.BookingOutboxEvent.State.PENDING " +
+           "AND e.nextAttemptAt <= :now AND NOT EXISTS (SELECT p FROM BookingOutboxEvent p " +
+           "WHERE p.bookingId = e.bookingId AND p.state = com.beautysalon.booking.entity.BookingOutboxEvent.State.PENDING " +
+           "AND p.id < e.id AND p.nextAttemptAt > :now) ORDER BY e.id")
+    List<BookingOutboxEvent> findReady(LocalDateTime now, Pageable page);
+
+    // Решта подій груп, що потрапили в пакет: група доставляється цілою, навіть якщо пакет її розрізав
+    List<BookingOutboxEvent> findByStateAndNotificationGroupIn(BookingOutboxEvent.State state, Collection<String> groups);
+
+    // Масове скасування: по події з поточним статусом на кожне бронювання одним INSERT ... SELECT,
+    // група - операція плюс клієнт, тож кожен клієнт отримає одне повідомлення
+    @Modifying
+    @Query("INSERT INTO BookingOutboxEvent (bookingId, status, state, attempts, createdAt, nextAttemptAt, notificationGroup) " +
+           "SELECT b.bookingId, b.status, com.beautysalon.booking.entity.BookingOutboxEvent.State.PENDING, 0, :now, :notBefore, " +
+           "CONCAT(:groupPrefix, CAST(b.client.userId AS String)) FROM Booking b WHERE b.bookingId IN :bookingIds " +
+           "ORDER BY b.client.userId, b.bookingTime")
+    int insertGroupedByClient(Collection<UUID> bookingIds, String groupPrefix, LocalDateTime now, LocalDateTime notBefore);
+
+    long countByState(BookingOutboxEvent.State state);
+
+    // Найновіша подія, що очікує, для кожного з бронювань: старіші замінюються нею
+    @Query("SELECT MAX(e.id) FROM BookingOutboxEvent e WHERE e.state = com.beautysalon.booking.entity.BookingOutboxEvent.State.PENDING " +
+           "AND e.bookingId IN :bookingIds GROUP BY e.bookingId")
+    List<Long> findLatestPendingIds(Collection<UUID> bookingIds);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM BookingOutboxEvent e WHERE e.state IN (com.beautysalon.booking.entity.BookingOutboxEvent.State.SENT, " +
+           "com.beautysalon.booking.entity.BookingOutboxEvent.State.COALESCED) AND e.processedAt < :before")
+    int deleteDeliveredBefore(LocalDateTime before);
+}
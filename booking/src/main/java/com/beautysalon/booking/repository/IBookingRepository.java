@@ -1,17 +1,89 @@
 package com.beautysalon.booking.repository;
 
 import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.BookingStatus;
+import org.springframework.data.jpa.repository.EntityGraph;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import java.time.LocalDate;
 import java.util.Optional;
 import java.time.LocalTime;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.UUID;
 import java.util.List;
 
-public interface IBookingRepository extends JpaRepository<Booking, UUID> {
+public interface IBookingRepository extends JpaRepository<Booking, UUID>, IBookingJournalRepository {
     Optional<Booking> findByMasterMasterIdAndBookingDateAndBookingTime(UUID masterId, LocalDate date, LocalTime time);
+
+    // Списки для сторінок і REST: клієнт, послуга, майстер з користувачем, оплата та відгук одним запитом
+    @EntityGraph(Booking.DETAILS_GRAPH)
     List<Booking> findByClientUserIdOrderByBookingDateDesc(UUID userId);
+
+    @EntityGraph(Booking.DETAILS_GRAPH)
     List<Booking> findByMasterMasterIdOrderByBookingDateDesc(UUID masterId);
+
+    @EntityGraph(Booking.SUMMARY_GRAPH)
     List<Booking> findByMasterMasterIdAndBookingDate(UUID masterId, LocalDate date);
+
+    // Бронювання з усіма зв'язками, потрібними спостерігачам (вони працюють поза транзакцією)
+    @EntityGraph(Booking.DETAILS_GRAPH)
+    Optional<Booking> findWithDetailsByBookingId(UUID bookingId);
+
+    // Те саме для пакета подій outbox
+    @EntityGraph(Booking.DETAILS_GRAPH)
+    List<Booking> findWithDetailsByBookingIdIn(Collection<UUID> bookingIds);
+
+    // Друга фаза сторінки журналу: бронювання зі зв'язками для вже відібраних ключів
+    @Query("SELECT b FROM Booking b JOIN FETCH b.client JOIN FETCH b.service " +
+           "JOIN FETCH b.master m JOIN FETCH m.user LEFT JOIN FETCH b.payment WHERE b.bookingId IN :ids " +
+           "ORDER BY b.bookingDate DESC, b.bookingTime DESC, b.bookingId DESC")
+    List<Booking> fetchJournalDetails(Collection<UUID> ids);
+
+    // Для індексу доступності потрібні лише інтервали активних бронювань: [bookingTime, bookingEndTime]
+    @Query("SELECT b.bookingTime, b.bookingEndTime FROM Booking b WHERE b.master.masterId = :masterId " +
+           "AND b.bookingDate = :date AND b.status <> com.beautysalon.booking.entity.BookingStatus.CANCELLED")
+    List<Object[]> findActiveIntervals(UUID masterId, LocalDate date);
+
+    List<Booking> findByBookingEndTimeIsNull();
+
+    // Активні бронювання, створені до появи slot_hold
+    List<Booking> findBySlotHoldIsNullAndStatusNot(BookingStatus status);
+
+    @Query("SELECT b.master.masterId, b.bookingDate, b.bookingTime FROM Booking b WHERE b.slotHold = true")
+    List<Object[]> findHeldSlots();
+
+    // Масове скасування: активні бронювання майстра на день, заблоковані до кінця транзакції (SELECT ... FOR UPDATE)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "3000"))
+    @Query("SELECT b FROM Booking b WHERE b.master.masterId = :masterId AND b.bookingDate = :date " +
+           "AND b.status IN (com.beautysalon.booking.entity.BookingStatus.PENDING, " +
+           "com.beautysalon.booking.entity.BookingStatus.CONFIRMED, com.beautysalon.booking.entity.BookingStatus.PAID) " +
+           "ORDER BY b.bookingTime")
+    List<Booking> lockActiveByMasterAndDate(UUID masterId, LocalDate date);
+
+    // Одне UPDATE на всі бронювання; версія збільшується, тож паралельний перехід, що прочитав
+    // бронювання раніше, отримає конфлікт версій і перечитає вже скасований запис
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = com.beautysalon.booking.entity.BookingStatus.CANCELLED, " +
+           "b.slotHold = NULL, b.version = b.version + 1 WHERE b.bookingId IN :bookingIds")
+    int cancelAll(Collection<UUID> bookingIds);
+
+    // Для планувальника нагадувань: ключ і початок майбутніх бронювань, що ще відбудуться
+    @Query("SELECT b.bookingId, b.bookingDate, b.bookingTime FROM Booking b WHERE b.bookingDate >= :fromDate " +
+           "AND b.status IN (com.beautysalon.booking.entity.BookingStatus.PENDING, " +
+           "com.beautysalon.booking.entity.BookingStatus.CONFIRMED, com.beautysalon.booking.entity.BookingStatus.PAID)")
+    List<Object[]> findUpcomingStarts(LocalDate fromDate);
+
+    // Діапазонний запит по індексу (master_id, booking_date, booking_time): чи є активне бронювання,
+    // що перетинається з інтервалом [startTime, endTime)
+    @Query("SELECT COUNT(b) > 0 FROM Booking b WHERE b.master.masterId = :masterId AND b.bookingDate = :date " +
+           "AND b.bookingTime < :endTime AND b.bookingEndTime > :startTime " +
+           "AND b.status <> com.beautysalon.booking.entity.BookingStatus.CANCELLED")
+    boolean existsOverlapping(UUID masterId, LocalDate date, LocalTime startTime, LocalTime endTime);
 }
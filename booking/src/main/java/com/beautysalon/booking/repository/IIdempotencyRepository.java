@@ -0,0 +1,47 @@
+package com.beautysalon.booking.repository;
+
+import com.beautysalon.booking.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Після вставки запис змінюється лише запитами UPDATE: у відкритій сесії (OSIV) лишається його застаріла копія,
+// і її flush не повинен затерти resourceId, записаний транзакцією операції
+public interface IIdempotencyRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Викликається в транзакції самої операції
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.resourceId = :resourceId WHERE r.id = :id " +
+           "AND r.state = com.beautysalon.booking.entity.IdempotencyRecord.State.IN_PROGRESS")
+    int bindResource(String id, UUID resourceId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.state = com.beautysalon.booking.entity.IdempotencyRecord.State.COMPLETED, " +
+           "r.responseStatus = :status, r.responseContentType = :contentType, r.responseBody = :body, r.lockedUntil = NULL " +
+           "WHERE r.id = :id")
+    int complete(String id, int status, String contentType, String body);
+
+    // Запит, що вставив ключ, завис або впав до коміту операції: ключ переходить до повтору
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.lockedUntil = :lockedUntil WHERE r.id = :id AND r.requestHash = :requestHash " +
+           "AND r.state = com.beautysalon.booking.entity.IdempotencyRecord.State.IN_PROGRESS " +
+           "AND r.resourceId IS NULL AND r.lockedUntil < :now")
+    int takeOver(String id, String requestHash, LocalDateTime lockedUntil, LocalDateTime now);
+
+    // Операція не виконалась (непередбачена помилка): ключ звільняється для повтору
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id " +
+           "AND r.state = com.beautysalon.booking.entity.IdempotencyRecord.State.IN_PROGRESS AND r.resourceId IS NULL")
+    int release(String id);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(LocalDateTime now);
+}
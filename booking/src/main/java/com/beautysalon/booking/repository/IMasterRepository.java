@@ -1,10 +1,37 @@
 package com.beautysalon.booking.repository;
 
 import com.beautysalon.booking.entity.Master;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import java.util.List;
 import java.util.UUID;
 import java.util.Optional;
 
 public interface IMasterRepository extends JpaRepository<Master, UUID> {
     Optional<Master> findByUserUserId(UUID userId);
+
+    // Сторінки зі списком майстрів завжди показують ім'я користувача
+    @Override
+    @EntityGraph(attributePaths = "user")
+    List<Master> findAll();
+
+    @EntityGraph(attributePaths = "user")
+    Optional<Master> findWithUserByMasterId(UUID masterId);
+
+    // Атомарний інкремент у БД: паралельні відгуки одному майстру не губляться
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Master m SET m.ratingSum = m.ratingSum + :rating, m.ratingCount = m.ratingCount + 1 " +
+           "WHERE m.masterId = :masterId")
+    int addRating(UUID masterId, int rating);
+
+    // Перераховує агрегати з таблиці reviews лише для майстрів, у яких вони розійшлися
+    @Modifying
+    @Query("UPDATE Master m SET " +
+           "m.ratingSum = (SELECT COALESCE(SUM(r.rating), 0) FROM Review r WHERE r.booking.master = m), " +
+           "m.ratingCount = (SELECT COUNT(r) FROM Review r WHERE r.booking.master = m) " +
+           "WHERE m.ratingSum <> (SELECT COALESCE(SUM(r.rating), 0) FROM Review r WHERE r.booking.master = m) " +
+           "OR m.ratingCount <> (SELECT COUNT(r) FROM Review r WHERE r.booking.master = m)")
+    int rebuildRatings();
 }
\ No newline at end of file
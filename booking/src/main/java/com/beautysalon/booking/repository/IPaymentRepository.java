@@ -2,8 +2,31 @@ package com.beautysalon.booking.repository;
 
 import com.beautysalon.booking.entity.Payment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 public interface IPaymentRepository extends JpaRepository<Payment, UUID> {
     Payment findByBookingBookingId(UUID bookingId);
-}
\ No newline at end of file
+
+    List<Payment> findByPaymentStatusAndBookingBookingIdIn(String paymentStatus, Collection<UUID> bookingIds);
+
+    // Зміна статусу пакета платежів одним UPDATE; лише тих, що досі мають статус expected
+    @Modifying
+    @Transactional
+    @Query("UPDATE Payment p SET p.paymentStatus = :status, p.version = p.version + 1 " +
+           "WHERE p.paymentId IN :paymentIds AND p.paymentStatus = :expected")
+    int updateStatus(Collection<UUID> paymentIds, String expected, String status);
+
+    // Резерв PENDING бронювання, старший за before, переводиться у статус status
+    @Modifying
+    @Transactional
+    @Query("UPDATE Payment p SET p.paymentStatus = :status, p.version = p.version + 1 " +
+           "WHERE p.booking.bookingId = :bookingId AND p.paymentStatus = 'PENDING' AND p.paymentDate < :before")
+    int updateStalePending(UUID bookingId, LocalDateTime before, String status);
+}
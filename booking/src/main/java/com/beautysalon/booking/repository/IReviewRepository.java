@@ -2,7 +2,22 @@ package com.beautysalon.booking.repository;
 
 import com.beautysalon.booking.entity.Review;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 public interface IReviewRepository extends JpaRepository<Review, UUID> {
-}
\ No newline at end of file
+
+    // Останні perMaster відгуків кожного майстра одним запитом:
+    // [master_id, ім'я клієнта, rating, comment, created_at]
+    @Query(value = "SELECT ranked.master_id, ranked.client_name, ranked.rating, ranked.comment, ranked.created_at FROM (" +
+                   " SELECT b.master_id AS master_id, u.name AS client_name, r.rating AS rating, r.comment AS comment," +
+                   " r.created_at AS created_at," +
+                   " ROW_NUMBER() OVER (PARTITION BY b.master_id ORDER BY r.created_at DESC) AS rn" +
+                   " FROM reviews r JOIN bookings b ON b.booking_id = r.booking_id JOIN users u ON u.user_id = b.client_id" +
+                   " WHERE b.master_id IN (:masterIds)) ranked" +
+                   " WHERE ranked.rn <= :perMaster ORDER BY ranked.master_id, ranked.created_at DESC",
+           nativeQuery = true)
+    List<Object[]> findLatestByMasters(Collection<String> masterIds, int perMaster);
+}
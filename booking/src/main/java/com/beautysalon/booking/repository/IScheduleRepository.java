@@ -1,8 +1,12 @@
 package com.beautysalon.booking.repository;
 
 import com.beautysalon.booking.entity.Schedule;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -18,4 +22,10 @@ public interface IScheduleRepository extends JpaRepository<Schedule, UUID> {
     List<LocalDate> findDistinctWorkDatesByMasterId(UUID masterId);
 
     List<Schedule> findByMasterMasterIdAndWorkDateBetween(UUID masterId, LocalDate startDate, LocalDate endDate);
+
+    // SELECT ... FOR UPDATE по рядку розкладу: серіалізує бронювання майстра на день між вузлами кластера
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "3000"))
+    @Query("SELECT s FROM Schedule s WHERE s.master.masterId = :masterId AND s.workDate = :workDate")
+    List<Schedule> lockByMasterIdAndWorkDate(UUID masterId, LocalDate workDate);
 }
@@ -1,10 +1,30 @@
 package com.beautysalon.booking.repository;
 
 import com.beautysalon.booking.entity.Service;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface IServiceRepository extends JpaRepository<Service, UUID> {
+    @EntityGraph(attributePaths = {"master", "master.user"})
     List<Service> findByName(String name);
+
+    // Каталог послуг показується разом з майстром та його ім'ям
+    @Override
+    @EntityGraph(attributePaths = {"master", "master.user"})
+    List<Service> findAll();
+
+    @EntityGraph(attributePaths = {"master", "master.user"})
+    Optional<Service> findWithMasterByServiceId(UUID serviceId);
+
+    @EntityGraph(attributePaths = {"master", "master.user"})
+    List<Service> findByMasterMasterId(UUID masterId);
+
+    // Один запит для ланцюжка валідації: [Service (з майстром і його користувачем), User-клієнт]
+    @Query("SELECT s, c FROM Service s LEFT JOIN FETCH s.master m LEFT JOIN FETCH m.user, User c " +
+           "WHERE s.serviceId = :serviceId AND c.userId = :clientId")
+    List<Object[]> findForBooking(UUID serviceId, UUID clientId);
 }
\ No newline at end of file
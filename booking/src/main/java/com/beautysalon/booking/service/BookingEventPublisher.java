@@ -2,39 +2,269 @@ package com.beautysalon.booking.service;
 
 import com.beautysalon.booking.entity.Booking;
 import com.beautysalon.booking.observer.IBookingObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * "Суб'єкт" (Publisher) в патерні Observer.
  * Це "ручна" реалізація без використання Spring Events.
  * Він керує списком підписників (спостерігачів) і повідомляє їх.
+ *
+ * Повідомлення доставляються асинхронно: кожна пара (спостерігач, бронювання) стає окремим
+ * завданням в обмеженій черзі, яку розбирають фонові робочі потоки.
+ * Повільний спостерігач (SMTP) не затримує ні запит, ні інших спостерігачів.
+ * Поведінку при переповненій черзі задає {@code booking.events.overflow}, див. {@link OverflowPolicy}.
+ * Повідомлення надходять з {@link BookingOutboxRelay}, який за результатом доставки
+ * позначає подію outbox відправленою або планує повторну спробу.
  */
 @Service
 public class BookingEventPublisher {
 
-    private final List<IBookingObserver> observers = new ArrayList<>();
+    /**
+     * Що робити, якщо черга повідомлень заповнена.
+     */
+    public enum OverflowPolicy {
+        /** Чекати місця до {@code booking.events.block-timeout-ms}, потім доставити в потоці виклику. */
+        BLOCK,
+        /** Одразу доставити в потоці виклику (зворотний тиск на запит). */
+        CALLER_RUNS,
+        /** Відкинути нове повідомлення. */
+        DROP_NEWEST,
+        /** Відкинути найстаріше повідомлення в черзі і поставити нове. */
+        DROP_OLDEST
+    }
+
+    private final CopyOnWriteArrayList<IBookingObserver> observers = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<Delivery> queue;
+    private final int workerCount;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMillis;
+    private final MeterRegistry meterRegistry;
+    private final Map<Class<?>, Timer> observerTimers = new ConcurrentHashMap<>();
+    private final Map<OverflowPolicy, Counter> overflowCounters = new ConcurrentHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    public BookingEventPublisher(MeterRegistry meterRegistry,
+                                 @Value("${booking.events.workers:4}") int workerCount,
+                                 @Value("${booking.events.queue-capacity:1000}") int queueCapacity,
+                                 @Value("${booking.events.overflow:BLOCK}") OverflowPolicy overflowPolicy,
+                                 @Value("${booking.events.block-timeout-ms:200}") long blockTimeoutMillis) {
+        this.meterRegistry = meterRegistry;
+        this.workerCount = Math.max(1, workerCount);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+        Gauge.builder("booking.events.queue.depth", queue, BlockingQueue::size)
+                .description("Повідомлення спостерігачам, що очікують доставки")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::drain, "booking-events-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        System.out.println("BookingEventPublisher: " + workerCount + " робочих потоків, черга " +
+                queue.remainingCapacity() + ", при переповненні " + overflowPolicy);
+    }
+
+    // Дочекатись доставки вже прийнятих повідомлень (не довше 5 с), потім зупинити потоки
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        for (Thread worker : workers) {
+            worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            worker.interrupt();
+        }
+        if (!queue.isEmpty()) {
+            // Події лишаються в outbox і будуть доставлені після перезапуску
+            System.err.println("BookingEventPublisher: не доставлено " + queue.size() + " повідомлень при зупинці");
+            Delivery pending;
+            while ((pending = queue.poll()) != null) {
+                pending.result.completeExceptionally(new RejectedExecutionException("Застосунок зупиняється"));
+            }
+        }
+    }
 
     public void subscribe(IBookingObserver observer) {
         System.out.println("BookingEventPublisher: Новий підписник -> " + observer.getClass().getSimpleName());
-        observers.add(observer);
+        observers.addIfAbsent(observer);
     }
 
     public void unsubscribe(IBookingObserver observer) {
         observers.remove(observer);
     }
 
-    public void notifyObservers(Booking booking) {
+    /**
+     * Ставить повідомлення всім спостерігачам у чергу.
+     * Результат завершується, коли їх обробили всі спостерігачі, і завершується з помилкою,
+     * якщо хоч один спостерігач впав або повідомлення відкинуто через переповнення черги.
+     */
+    public CompletableFuture<Void> notifyObservers(Booking booking) {
         System.out.println("BookingEventPublisher: Повідомляємо " + observers.size() + " спостерігачів про зміну статусу...");
+        return dispatch(List.of(booking), null);
+    }
+
+    /**
+     * Кілька змін одного клієнта, що мають дійти одним повідомленням (масове скасування):
+     * кожен спостерігач отримує їх одним викликом {@link IBookingObserver#updateAllAsync}.
+     */
+    public CompletableFuture<Void> notifyObservers(List<Booking> bookings) {
+        if (bookings.size() == 1) {
+            return notifyObservers(bookings.get(0));
+        }
+        System.out.println("BookingEventPublisher: Повідомляємо " + observers.size() + " спостерігачів про " +
+                bookings.size() + " змін одним повідомленням...");
+        return dispatch(bookings, null);
+    }
+
+    /**
+     * Нагадування про візит через {@code timeLeft}: та сама черга і ті самі спостерігачі,
+     * але викликається {@link IBookingObserver#remindAsync}.
+     */
+    public CompletableFuture<Void> remindObservers(Booking booking, Duration timeLeft) {
+        return dispatch(List.of(booking), timeLeft);
+    }
+
+    private CompletableFuture<Void> dispatch(List<Booking> bookings, Duration reminder) {
+        if (observers.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // Спостерігачі працюють в інших потоках, без сесії Hibernate: завантажуємо зв'язки тут
+        bookings.forEach(BookingEventPublisher::initializeAssociations);
+        List<CompletableFuture<Void>> results = new ArrayList<>(observers.size());
         for (IBookingObserver observer : observers) {
+            Delivery delivery = new Delivery(observer, bookings, reminder, new CompletableFuture<>());
+            results.add(delivery.result);
+            if (!running || !queue.offer(delivery)) {
+                handleOverflow(delivery);
+            }
+        }
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new));
+    }
+
+    private void handleOverflow(Delivery delivery) {
+        if (!running) {
+            deliver(delivery); // застосунок зупиняється: доставляємо синхронно
+            return;
+        }
+        overflowCounters.computeIfAbsent(overflowPolicy, policy -> Counter.builder("booking.events.overflow")
+                .description("Повідомлення, що не вмістились у чергу")
+                .tag("policy", policy.name())
+                .register(meterRegistry)).increment();
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                try {
+                    if (queue.offer(delivery, blockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                deliver(delivery);
+            }
+            case CALLER_RUNS -> deliver(delivery);
+            case DROP_NEWEST -> {
+                System.err.println("BookingEventPublisher: черга заповнена, повідомлення для " +
+                        delivery.observer.getClass().getSimpleName() + " відкинуто");
+                delivery.result.completeExceptionally(new RejectedExecutionException("Черга повідомлень заповнена"));
+            }
+            case DROP_OLDEST -> {
+                Delivery dropped = queue.poll();
+                if (dropped != null) {
+                    System.err.println("BookingEventPublisher: черга заповнена, відкинуто найстаріше повідомлення для " +
+                            dropped.observer.getClass().getSimpleName());
+                    dropped.result.completeExceptionally(new RejectedExecutionException("Черга повідомлень заповнена"));
+                }
+                if (!queue.offer(delivery)) {
+                    deliver(delivery);
+                }
+            }
+        }
+    }
+
+    private void drain() {
+        while (running || !queue.isEmpty()) {
             try {
-                observer.update(booking);
-            } catch (Exception e) {
-                System.err.println("Помилка при повідомленні спостерігача " + 
-                                   observer.getClass().getSimpleName() + ": " + e.getMessage());
+                Delivery delivery = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (delivery != null) {
+                    deliver(delivery);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void deliver(Delivery delivery) {
+        IBookingObserver observer = delivery.observer;
+        Timer timer = observerTimers.computeIfAbsent(observer.getClass(), type -> Timer.builder("booking.events.observer")
+                .description("Час обробки повідомлення спостерігачем")
+                .tag("observer", type.getSimpleName())
+                .register(meterRegistry));
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<Void> update;
+        try {
+            if (delivery.reminder != null) {
+                update = observer.remindAsync(delivery.bookings.get(0), delivery.reminder);
+            } else if (delivery.bookings.size() == 1) {
+                update = observer.updateAsync(delivery.bookings.get(0));
+            } else {
+                update = observer.updateAllAsync(delivery.bookings);
             }
+        } catch (Exception e) {
+            update = CompletableFuture.failedFuture(e);
         }
+        update.whenComplete((ignored, error) -> {
+            sample.stop(timer);
+            if (error == null) {
+                delivery.result.complete(null);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            System.err.println("Помилка при повідомленні спостерігача " +
+                               observer.getClass().getSimpleName() + ": " + cause.getMessage());
+            delivery.result.completeExceptionally(cause);
+        });
     }
-}
\ No newline at end of file
+
+    private static void initializeAssociations(Booking booking) {
+        Hibernate.initialize(booking.getClient());
+        Hibernate.initialize(booking.getService());
+        if (booking.getMaster() != null) {
+            Hibernate.initialize(booking.getMaster());
+            Hibernate.initialize(booking.getMaster().getUser());
+        }
+    }
+
+    // reminder == null - повідомлення про зміну статусу (кількох бронювань - одним викликом), інакше нагадування
+    private record Delivery(IBookingObserver observer, List<Booking> bookings, Duration reminder,
+                            CompletableFuture<Void> result) {}
+}
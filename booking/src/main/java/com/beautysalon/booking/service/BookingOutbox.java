@@ -0,0 +1,60 @@
+package com.beautysalon.booking.service;
+
+import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.BookingOutboxEvent;
+import com.beautysalon.booking.repository.IBookingOutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Запис змін статусу бронювань у таблицю booking_outbox.
+ * Викликається лише всередині транзакції, що змінює статус: подія фіксується
+ * або разом зі зміною, або не фіксується зовсім. Спостерігачам її доставляє {@link BookingOutboxRelay}.
+ * <p>
+ * Подія стає доступною для доставки через {@code booking.outbox.coalesce-window-seconds}: якщо за цей час
+ * статус бронювання зміниться ще раз (PENDING → CONFIRMED → PAID), клієнт отримає одне повідомлення
+ * з останнім статусом замість кількох. Подія створення бронювання ({@link #recordCreated}) вікна не чекає:
+ * підтвердження запису клієнт отримує одразу, а об'єднуються наступні зміни.
+ */
+@Component
+public class BookingOutbox {
+
+    private final IBookingOutboxRepository outboxRepository;
+    private final Duration coalesceWindow;
+
+    public BookingOutbox(IBookingOutboxRepository outboxRepository,
+                         @Value("${booking.outbox.coalesce-window-seconds:15}") long coalesceWindowSeconds) {
+        this.outboxRepository = outboxRepository;
+        this.coalesceWindow = Duration.ofSeconds(Math.max(0, coalesceWindowSeconds));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(Booking booking) {
+        outboxRepository.save(new BookingOutboxEvent(booking.getBookingId(), booking.getStatus(), LocalDateTime.now()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Booking booking) {
+        outboxRepository.save(new BookingOutboxEvent(booking.getBookingId(), booking.getStatus(),
+                LocalDateTime.now().plus(coalesceWindow)));
+    }
+
+    /**
+     * Зміна статусу кількох бронювань, про яку кожен клієнт дізнається одним повідомленням
+     * ({@link com.beautysalon.booking.observer.IBookingObserver#updateAllAsync}). Статус уже змінено
+     * масовим UPDATE, тому події пишуться одним INSERT ... SELECT з поточного стану бронювань.
+     *
+     * @param operationId спільний для всієї операції; група події - operationId:клієнт
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordGroupedByClient(Collection<UUID> bookingIds, String operationId) {
+        LocalDateTime now = LocalDateTime.now();
+        outboxRepository.insertGroupedByClient(bookingIds, operationId + ":", now, now.plus(coalesceWindow));
+    }}
@@ -0,0 +1,262 @@
+package com.beautysalon.booking.service;
+
+import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.BookingOutboxEvent;
+import com.beautysalon.booking.repository.IBookingOutboxRepository;
+import com.beautysalon.booking.repository.IBookingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Фоновий ретранслятор outbox: пакетами забирає події з booking_outbox
+ * і передає їх спостерігачам через {@link BookingEventPublisher}.
+ * <p>
+ * Доставка "щонайменше один раз": подія позначається відправленою лише після того,
+ * як її обробили всі спостерігачі. При помилці наступна спроба планується з експоненційною
+ * затримкою, після {@code booking.outbox.max-attempts} спроб подія переходить у FAILED.
+ * Події одного бронювання доставляються строго по черзі, різних бронювань - паралельно.
+ * Якщо для бронювання вже є новіша подія, старіша не доставляється (COALESCED): спостерігачі
+ * отримують лише останній статус. Разом з вікном {@link BookingOutbox} це об'єднує швидкі
+ * послідовні зміни, а після збою доставки - і накопичені події.
+ * Події з однією групою ({@link BookingOutbox#recordGroupedByClient}) доставляються разом одним повідомленням.
+ * Спостерігачі мають бути готові до повторів (наприклад, при зупинці застосунку під час доставки).
+ */
+@Component
+public class BookingOutboxRelay {
+
+    private final IBookingOutboxRepository outboxRepository;
+    private final IBookingRepository bookingRepository;
+    private final BookingEventPublisher eventPublisher;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration deliveryTimeout;
+    private final Duration retention;
+    private final Counter coalesced;
+
+    public BookingOutboxRelay(IBookingOutboxRepository outboxRepository,
+                              IBookingRepository bookingRepository,
+                              BookingEventPublisher eventPublisher,
+                              MeterRegistry meterRegistry,
+                              @Value("${booking.outbox.batch-size:100}") int batchSize,
+                              @Value("${booking.outbox.max-attempts:10}") int maxAttempts,
+                              @Value("${booking.outbox.initial-backoff-seconds:5}") long initialBackoffSeconds,
+                              @Value("${booking.outbox.max-backoff-seconds:600}") long maxBackoffSeconds,
+                              @Value("${booking.outbox.delivery-timeout-seconds:60}") long deliveryTimeoutSeconds,
+                              @Value("${booking.outbox.retention-days:7}") long retentionDays) {
+        this.outboxRepository = outboxRepository;
+        this.bookingRepository = bookingRepository;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = Duration.ofSeconds(Math.max(1, initialBackoffSeconds));
+        this.maxBackoff = Duration.ofSeconds(Math.max(initialBackoffSeconds, maxBackoffSeconds));
+        this.deliveryTimeout = Duration.ofSeconds(Math.max(1, deliveryTimeoutSeconds));
+        this.retention = Duration.ofDays(Math.max(0, retentionDays));
+        Gauge.builder("booking.outbox.pending", outboxRepository,
+                        repository -> repository.countByState(BookingOutboxEvent.State.PENDING))
+                .description("Події outbox, що очікують доставки")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("booking.outbox.coalesced")
+                .description("Події, замінені новішою подією того ж бронювання до відправки")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${booking.outbox.poll-interval-ms:1000}")
+    public void relay() {
+        // Повністю оброблений пакет означає, що в таблиці може бути ще - не чекаємо наступного запуску
+        while (relayBatch() >= batchSize) {
+            // продовжуємо
+        }
+    }
+
+    // Видаляє відправлені та об'єднані події старші за booking.outbox.retention-days; FAILED лишаються
+    @Scheduled(cron = "${booking.outbox.cleanup-cron:0 0 4 * * *}")
+    public void cleanup() {
+        int removed = outboxRepository.deleteDeliveredBefore(LocalDateTime.now().minus(retention));
+        if (removed > 0) {
+            System.out.println("BookingOutboxRelay: видалено " + removed + " відправлених подій");
+        }
+    }
+
+    int relayBatch() {
+        List<BookingOutboxEvent> batch = outboxRepository.findReady(LocalDateTime.now(), PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        batch = withWholeGroups(batch);
+
+        Map<UUID, List<BookingOutboxEvent>> byBooking = batch.stream().collect(Collectors.groupingBy(
+                BookingOutboxEvent::getBookingId, LinkedHashMap::new, Collectors.toList()));
+        Map<UUID, Booking> bookings = bookingRepository.findWithDetailsByBookingIdIn(byBooking.keySet()).stream()
+                .collect(Collectors.toMap(Booking::getBookingId, Function.identity()));
+
+        List<BookingOutboxEvent> resolved = new ArrayList<>(batch.size());
+        Set<Long> latestIds = new HashSet<>(outboxRepository.findLatestPendingIds(byBooking.keySet()));
+        List<CompletableFuture<Void>> chains = new ArrayList<>(byBooking.size());
+        Map<String, List<BookingOutboxEvent>> groups = new LinkedHashMap<>();
+        // Результат доставки кожної події: порожній - доставлено, інакше помилка
+        Map<BookingOutboxEvent, Optional<Throwable>> outcomes = new ConcurrentHashMap<>();
+        for (Map.Entry<UUID, List<BookingOutboxEvent>> entry : byBooking.entrySet()) {
+            Booking booking = bookings.get(entry.getKey());
+            if (booking == null) {
+                // Бронювання видалено: повідомляти нікого
+                entry.getValue().forEach(event -> event.markFailed("Бронювання не знайдено", null, 0));
+                resolved.addAll(entry.getValue());
+                continue;
+            }
+            List<BookingOutboxEvent> events = new ArrayList<>(entry.getValue().size());
+            for (BookingOutboxEvent event : entry.getValue()) {
+                if (latestIds.contains(event.getId()) && event.getNotificationGroup() != null) {
+                    groups.computeIfAbsent(event.getNotificationGroup(), group -> new ArrayList<>()).add(event);
+                } else if (latestIds.contains(event.getId())) {
+                    events.add(event);
+                } else {
+                    event.markCoalesced();
+                    resolved.add(event);
+                    coalesced.increment();
+                }
+            }
+            if (!events.isEmpty()) {
+                chains.add(deliverInOrder(booking, events, outcomes));
+            }
+        }
+        for (List<BookingOutboxEvent> group : groups.values()) {
+            chains.add(deliverGroup(group, bookings, outcomes));
+        }
+
+        try {
+            CompletableFuture.allOf(chains.toArray(CompletableFuture[]::new))
+                    .get(deliveryTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            System.err.println("BookingOutboxRelay: доставка пакета не завершилась за " + deliveryTimeout.toSeconds() +
+                    " с, незавершені події буде повторено");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // помилки доставки вже зібрано в outcomes
+        }
+
+        // Зберігаємо лише події з відомим результатом; решта лишається PENDING і буде взята повторно
+        for (BookingOutboxEvent event : batch) {
+            Optional<Throwable> outcome = outcomes.get(event);
+            if (outcome == null) {
+                continue;
+            }
+            if (outcome.isEmpty()) {
+                event.markSent();
+            } else {
+                Throwable error = outcome.get();
+                event.markFailed(error.getClass().getSimpleName() + ": " + error.getMessage(),
+                        LocalDateTime.now().plus(backoff(event.getAttempts())), maxAttempts);
+                if (event.getState() == BookingOutboxEvent.State.FAILED) {
+                    System.err.println("BookingOutboxRelay: подію " + event.getId() + " бронювання " +
+                            event.getBookingId() + " не доставлено після " + event.getAttempts() + " спроб");
+                }
+            }
+            resolved.add(event);
+        }
+        outboxRepository.saveAll(resolved);
+        return resolved.size();
+    }
+
+    /**
+     * Події одного бронювання - послідовно: наступна подія передається спостерігачам лише після
+     * успішної доставки попередньої. Якщо подія не доставлена, наступні чекають у PENDING.
+     * Бронювання завантажене один раз; кожна доставка отримує його копію зі статусом з події
+     * ({@link Booking#copyWithStatus}) - спостерігач бачить стан на момент зміни, а потоки доставки
+     * не змінюють спільний екземпляр.
+     */
+    private CompletableFuture<Void> deliverInOrder(Booking booking, List<BookingOutboxEvent> events,
+                                                   Map<BookingOutboxEvent, Optional<Throwable>> outcomes) {
+        CompletableFuture<Boolean> chain = CompletableFuture.completedFuture(true);
+        for (BookingOutboxEvent event : events) {
+            chain = chain.thenCompose(previousDelivered -> {
+                if (!previousDelivered) {
+                    return CompletableFuture.completedFuture(false);
+                }
+                return eventPublisher.notifyObservers(booking.copyWithStatus(event.getStatus())).handle((ignored, error) -> {
+                    if (error == null) {
+                        outcomes.put(event, Optional.empty());
+                        return true;
+                    }
+                    outcomes.put(event, Optional.of(error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error));
+                    return false;
+                });
+            });
+        }
+        return chain.thenApply(delivered -> null);
+    }
+
+    /**
+     * Події однієї групи (масове скасування, один клієнт) - одним повідомленням спостерігачам.
+     * Результат спільний: або доставлено всі, або всі чекають повторної спроби.
+     */
+    private CompletableFuture<Void> deliverGroup(List<BookingOutboxEvent> events, Map<UUID, Booking> bookings,
+                                                 Map<BookingOutboxEvent, Optional<Throwable>> outcomes) {
+        List<Booking> grouped = new ArrayList<>(events.size());
+        for (BookingOutboxEvent event : events) {
+            grouped.add(bookings.get(event.getBookingId()).copyWithStatus(event.getStatus()));
+        }
+        return eventPublisher.notifyObservers(grouped).handle((ignored, error) -> {
+            Optional<Throwable> outcome = error == null ? Optional.empty()
+                    : Optional.of(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            events.forEach(event -> outcomes.put(event, outcome));
+            return null;
+        });
+    }
+
+    // Пакет обрізається за batch-size, а група масового скасування має дійти цілою: дочитуємо її решту
+    private List<BookingOutboxEvent> withWholeGroups(List<BookingOutboxEvent> batch) {
+        Set<String> groups = batch.stream()
+                .map(BookingOutboxEvent::getNotificationGroup)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (groups.isEmpty()) {
+            return batch;
+        }
+        Set<Long> taken = batch.stream().map(BookingOutboxEvent::getId).collect(Collectors.toSet());
+        List<BookingOutboxEvent> whole = new ArrayList<>(batch);
+        for (BookingOutboxEvent event : outboxRepository.findByStateAndNotificationGroupIn(
+                BookingOutboxEvent.State.PENDING, groups)) {
+            if (taken.add(event.getId())) {
+                whole.add(event);
+            }
+        }
+        return whole;
+    }
+
+    // 5 с, 10 с, 20 с ... але не більше booking.outbox.max-backoff-seconds
+    private Duration backoff(int attempt) {
+        long factor = 1L << Math.min(attempt, 20);
+        Duration delay = initialBackoff.multipliedBy(factor);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+}
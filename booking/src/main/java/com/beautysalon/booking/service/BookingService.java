@@ -1,6 +1,11 @@
 package com.beautysalon.booking.service;
 
+import com.beautysalon.booking.availability.SlotAvailabilityIndex;
+import com.beautysalon.booking.availability.SlotReservationService;
+import com.beautysalon.booking.dto.BookingCursor;
+import com.beautysalon.booking.dto.BookingPageDto;
 import com.beautysalon.booking.entity.*;
+import com.beautysalon.booking.repository.BookingSpecifications;
 import com.beautysalon.booking.repository.IBookingRepository;
 import com.beautysalon.booking.repository.IMasterRepository;
 import com.beautysalon.booking.repository.IReviewRepository;
@@ -10,25 +15,39 @@ import com.beautysalon.booking.repository.IUserRepository;
 import com.beautysalon.booking.validation.*;
 import com.beautysalon.booking.composite.BookableItem;
 import com.beautysalon.booking.composite.ServicePackage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 @Service
 public class BookingService {
+    private static final int DEFAULT_DURATION_MINUTES = 60;
+    private static final int VIP_ADDONS_DURATION_MINUTES = 15;
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final IBookingRepository bookingRepository;
     private final IBookingValidationHandler validationChain;
-    private final BookingEventPublisher eventPublisher;
+    private final BookingOutbox bookingOutbox;
+    private final IdempotencyService idempotencyService;
     private final PaymentFacade paymentFacade;
     private final IServiceRepository serviceRepository;
     private final IScheduleRepository scheduleRepository;
     private final IReviewRepository reviewRepository;
+    private final IMasterRepository masterRepository;
+    private final ReviewFeedService reviewFeedService;
+    private final SlotAvailabilityIndex availabilityIndex;
+    private final SlotReservationService reservationService;
+    private final BookingTransitionExecutor transitionExecutor;
+    private final ApplicationEventPublisher applicationEvents;
+    private final ServiceNameIndex serviceNameIndex;
 
     public BookingService(
             IBookingRepository bookingRepository,
@@ -37,73 +56,71 @@ public class BookingService {
             IMasterRepository masterRepository,
             IScheduleRepository scheduleRepository,
             IReviewRepository reviewRepository,
-            BookingEventPublisher eventPublisher,
+            BookingOutbox bookingOutbox,
+            IdempotencyService idempotencyService,
+            SlotAvailabilityIndex availabilityIndex,
+            SlotReservationService reservationService,
+            BookingTransitionExecutor transitionExecutor,
+            ReviewFeedService reviewFeedService,
+            ApplicationEventPublisher applicationEvents,
+            ServiceNameIndex serviceNameIndex,
+            @Value("${booking.validation.prefetch:true}") boolean prefetchValidationContext,
+            @Value("${booking.reservation.mode:local}") String reservationMode,
             @Lazy PaymentFacade paymentFacade) {
         this.bookingRepository = bookingRepository;
         this.serviceRepository = serviceRepository;
         this.scheduleRepository = scheduleRepository;
         this.reviewRepository = reviewRepository;
-        this.eventPublisher = eventPublisher;
+        this.masterRepository = masterRepository;
+        this.reviewFeedService = reviewFeedService;
+        this.bookingOutbox = bookingOutbox;
+        this.idempotencyService = idempotencyService;
         this.paymentFacade = paymentFacade;
+        this.availabilityIndex = availabilityIndex;
+        this.reservationService = reservationService;
+        this.transitionExecutor = transitionExecutor;
+        this.applicationEvents = applicationEvents;
+        this.serviceNameIndex = serviceNameIndex;
 
         IBookingValidationHandler clientHandler = new ClientExistenceHandler(userRepository);
         IBookingValidationHandler masterHandler = new MasterExistenceHandler(masterRepository);
         IBookingValidationHandler serviceHandler = new ServiceExistenceHandler(serviceRepository);
         IBookingValidationHandler compatibilityHandler = new MasterServiceCompatibilityHandler();
+        IBookingValidationHandler conflictHandler = new BookingConflictHandler(availabilityIndex, bookingRepository,
+                scheduleRepository, "cluster".equalsIgnoreCase(reservationMode));
 
         clientHandler.setNext(masterHandler);
         masterHandler.setNext(serviceHandler);
         serviceHandler.setNext(compatibilityHandler);
-        this.validationChain = clientHandler;
-    }
+        compatibilityHandler.setNext(conflictHandler);
 
-    private Set<LocalTime> getAllPossibleSlots() {
-        Set<LocalTime> allSlots = new HashSet<>();
-        for (int hour = 8; hour < 20; hour++) {
-            allSlots.add(LocalTime.of(hour, 0));
+        if (prefetchValidationContext) {
+            // Заповнюємо контекст одним запитом, решта ланцюжка працює без звернень до БД
+            IBookingValidationHandler prefetchHandler = new PrefetchContextHandler(serviceRepository);
+            prefetchHandler.setNext(clientHandler);
+            this.validationChain = prefetchHandler;
+        } else {
+            this.validationChain = clientHandler;
         }
-        return allSlots;
     }
 
-    public Set<LocalTime> getOccupiedSlots(UUID masterId, LocalDate date) {
-        List<Booking> bookings = bookingRepository.findByMasterMasterIdAndBookingDate(masterId, date);
-        Set<LocalTime> occupiedSlots = new HashSet<>();
-
-        for (Booking booking : bookings) {
-            if (booking.getStatus() == BookingStatus.CANCELLED) {
-                continue;
-            }
-
-            int durationMinutes = booking.getService().getDurationMinutes();
-            LocalTime startTime = booking.getBookingTime().truncatedTo(ChronoUnit.HOURS);
-            int numberOfSlots = durationMinutes / 60;
-            for (int i = 0; i < numberOfSlots; i++) {
-                occupiedSlots.add(startTime.plusHours(i));
-            }
-        }
-
-        List<Schedule> masterSchedules = scheduleRepository.findByMasterMasterIdAndWorkDate(masterId, date);
-
-        if (masterSchedules.isEmpty()) {
-            return getAllPossibleSlots();
-        }
-
-        Schedule schedule = masterSchedules.get(0);
-        LocalTime workStart = schedule.getStartTime();
-        LocalTime workEnd = schedule.getEndTime();
-
-        Set<LocalTime> allPossibleSlots = getAllPossibleSlots();
-
-        for (LocalTime slot : allPossibleSlots) {
-            int minServiceDurationHours = 1;
-            LocalTime slotEnd = slot.plusHours(minServiceDurationHours);
+    public List<String> getAvailableSlots(UUID masterId, LocalDate date, int durationMinutes) {
+        return availabilityIndex.getAvailableStarts(masterId, date, durationMinutes);
+    }
 
-            if (slot.isBefore(workStart) || slotEnd.isAfter(workEnd)) {
-                occupiedSlots.add(slot);
+    /**
+     * Повна тривалість послуги майстра за назвою (з VIP-додатками, якщо обрано).
+     * Якщо послугу не знайдено, використовується тривалість за замовчуванням.
+     */
+    public int resolveDurationMinutes(UUID masterId, String serviceName, boolean allInclusive) {
+        int duration = DEFAULT_DURATION_MINUTES;
+        if (serviceName != null && !serviceName.isBlank()) {
+            ServiceNameIndex.ServiceOffer offer = serviceNameIndex.findOffer(serviceName, masterId);
+            if (offer != null) {
+                duration = offer.durationMinutes();
             }
         }
-
-        return occupiedSlots;
+        return allInclusive ? duration + VIP_ADDONS_DURATION_MINUTES : duration;
     }
 
     public List<LocalDate> getMasterWorkingDates(UUID masterId) {
@@ -112,6 +129,7 @@ public class BookingService {
 
     public Booking createBooking(UUID clientId, UUID serviceId, UUID masterId, LocalDateTime desiredDateTime, boolean allInclusive) {
         BookingValidationContext context = new BookingValidationContext(clientId, masterId, serviceId, desiredDateTime);
+        context.setAddonMinutes(allInclusive ? VIP_ADDONS_DURATION_MINUTES : 0);
         validationChain.handle(context);
         if (context.hasError()) {
             throw new RuntimeException(context.getErrorMessage());
@@ -125,7 +143,7 @@ public class BookingService {
             vipPackage.addItem(baseService);
 
             com.beautysalon.booking.entity.Service addons =
-                new com.beautysalon.booking.entity.Service("VIP-додатки (Косметика, Масаж, Напої)", "All Inclusive", 200, 15);
+                new com.beautysalon.booking.entity.Service("VIP-додатки (Косметика, Масаж, Напої)", "All Inclusive", 200, VIP_ADDONS_DURATION_MINUTES);
 
             vipPackage.addItem(addons);
             finalItem = vipPackage;
@@ -139,38 +157,38 @@ public class BookingService {
         newBooking.setService(context.getService());
         newBooking.setBookingDate(context.getDateTime().toLocalDate());
         newBooking.setBookingTime(context.getDateTime().toLocalTime());
+        newBooking.setBookingEndTime(context.getDateTime().toLocalTime().plusMinutes(finalItem.getDurationMinutes()));
         newBooking.setTotalPrice(finalItem.getPrice());
         newBooking.setStatus(BookingStatus.PENDING);
 
-        Booking savedBooking = bookingRepository.save(newBooking);
-        eventPublisher.notifyObservers(savedBooking);
+        Booking savedBooking = reservationService.reserve(masterId, newBooking.getBookingDate(),
+                newBooking.getBookingTime(), finalItem.getDurationMinutes(), () -> {
+                    Booking saved = bookingRepository.save(newBooking);
+                    bookingOutbox.recordCreated(saved);
+                    idempotencyService.bindResource(saved.getBookingId());
+                    return saved;
+                });
         return savedBooking;
     }
 
     public Booking confirmBooking(UUID bookingId) {
-        Booking booking = bookingRepository.findById(bookingId)
-                .orElseThrow(() -> new RuntimeException("Бронювання не знайдено."));
-        booking.confirm();
-        Booking savedBooking = bookingRepository.save(booking);
-        eventPublisher.notifyObservers(savedBooking);
-        return savedBooking;
+        return transitionExecutor.transition(bookingId, "confirm", Booking::confirm);
     }
 
     public Booking completeBooking(UUID bookingId) {
-        Booking booking = bookingRepository.findById(bookingId)
-                .orElseThrow(() -> new RuntimeException("Бронювання не знайдено."));
-        booking.complete();
-        Booking savedBooking = bookingRepository.save(booking);
-        eventPublisher.notifyObservers(savedBooking);
-        return savedBooking;
+        return transitionExecutor.transition(bookingId, "complete", Booking::complete);
     }
 
     public Booking cancelBooking(UUID bookingId) {
-        Booking booking = bookingRepository.findById(bookingId)
-                .orElseThrow(() -> new RuntimeException("Бронювання не знайдено."));
-        booking.cancel();
-        Booking savedBooking = bookingRepository.save(booking);
-        eventPublisher.notifyObservers(savedBooking);
+        boolean[] released = new boolean[1];
+        Booking savedBooking = transitionExecutor.transition(bookingId, "cancel", booking -> {
+            released[0] = booking.getStatus() != BookingStatus.CANCELLED;
+            booking.cancel();
+        });
+        if (released[0]) {
+            availabilityIndex.bookingCancelled(savedBooking.getMaster().getMasterId(), savedBooking.getBookingDate(),
+                    savedBooking.getBookingTime(), SlotAvailabilityIndex.durationOf(savedBooking));
+        }
         return savedBooking;
     }
 
@@ -182,8 +200,42 @@ public class BookingService {
         return bookingRepository.findByMasterMasterIdOrderByBookingDateDesc(masterId);
     }
 
-    public List<Booking> getAllBookings() {
-        return bookingRepository.findAll(Sort.by(Sort.Direction.DESC, "bookingDate", "bookingTime"));
+    /**
+     * Сторінка журналу бронювань (від новіших до старіших) з keyset-пагінацією:
+     * замість OFFSET запит продовжується від ключа останнього показаного запису,
+     * тому вартість сторінки не залежить від розміру таблиці та її номера.
+     * <p>
+     * Ключі відбираються запитом лише по таблиці bookings (його обслуговує індекс
+     * booking_date, booking_time, booking_id), а бронювання зі зв'язками для цих ключів
+     * завантажуються другим запитом: з JOIN у першому запиті БД обирає інший порядок
+     * з'єднань і сортує всю таблицю.
+     *
+     * @param cursor значення {@link BookingPageDto#getNextCursor()} попередньої сторінки або null
+     */
+    public BookingPageDto getBookingsPage(BookingStatus status, UUID masterId, LocalDate dateFrom, LocalDate dateTo,
+                                          String cursor, int pageSize) {
+        int size = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+        BookingCursor after = cursor == null || cursor.isBlank() ? null : BookingCursor.decode(cursor);
+
+        Specification<Booking> filter = Specification.allOf(
+                BookingSpecifications.hasStatus(status),
+                BookingSpecifications.hasMaster(masterId),
+                BookingSpecifications.dateFrom(dateFrom),
+                BookingSpecifications.dateTo(dateTo),
+                BookingSpecifications.before(after));
+
+        // Беремо на один ключ більше, щоб дізнатися, чи є наступна сторінка
+        List<BookingCursor> keys = bookingRepository.findJournalKeys(filter, size + 1);
+
+        String nextCursor = null;
+        if (keys.size() > size) {
+            keys = keys.subList(0, size);
+            nextCursor = keys.get(size - 1).encode();
+        }
+        List<Booking> page = keys.isEmpty()
+                ? new ArrayList<>()
+                : bookingRepository.fetchJournalDetails(keys.stream().map(BookingCursor::getBookingId).toList());
+        return new BookingPageDto(page, nextCursor);
     }
 
     public List<Booking> getBookingsByMasterAndDate(UUID masterId, LocalDate date) {
@@ -191,29 +243,31 @@ public class BookingService {
     }
 
     public com.beautysalon.booking.entity.Service addService(com.beautysalon.booking.entity.Service service) {
-        return serviceRepository.save(service);
+        com.beautysalon.booking.entity.Service saved = serviceRepository.save(service);
+        applicationEvents.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Part.SERVICES)
+                .forService(saved.getServiceId()));
+        return saved;
     }
 
     public void deleteService(UUID serviceId) {
         serviceRepository.deleteById(serviceId);
+        applicationEvents.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Part.SERVICES)
+                .forService(serviceId));
     }
 
     public Optional<com.beautysalon.booking.entity.Service> findServiceById(UUID serviceId) {
         return serviceRepository.findById(serviceId);
     }
 
-    public void notifyPaymentObservers(Booking booking) {
-        eventPublisher.notifyObservers(booking);
-    }
-
     public Optional<Booking> getBookingByMasterAndDateTime(UUID masterId, LocalDate date, LocalTime time) {
         return bookingRepository.findByMasterMasterIdAndBookingDateAndBookingTime(masterId, date, time);
     }
 
     public Optional<Booking> findBookingById(UUID id) {
-        return bookingRepository.findById(id);
+        return bookingRepository.findWithDetailsByBookingId(id);
     }
 
+    @Transactional
     public void addReview(UUID bookingId, int rating, String comment) {
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new RuntimeException("Бронювання не знайдено"));
@@ -222,5 +276,10 @@ public class BookingService {
         }
         Review review = new Review(rating, comment, booking);
         reviewRepository.save(review);
+        masterRepository.addRating(booking.getMaster().getMasterId(), rating);
+        reviewFeedService.reviewAdded(booking.getMaster().getMasterId());
+        // Рейтинг показується у закешованому списку майстрів
+        applicationEvents.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Part.RATINGS)
+                .forMaster(booking.getMaster().getMasterId()));
     }
 }
@@ -0,0 +1,101 @@
+package com.beautysalon.booking.service;
+
+import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.BookingStatus;
+import com.beautysalon.booking.repository.IBookingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Виконує перехід стану бронювання з оптимістичним блокуванням (@Version).
+ * <p>
+ * Якщо запис паралельно змінив хтось інший, транзакція відкочується,
+ * бронювання перечитується і перехід застосовується повторно до свіжого стану.
+ * Чи дозволений перехід, вирішують класи {@code BookingState}: повторне
+ * підтвердження/скасування стає no-op, а недозволений перехід кидає
+ * IllegalStateException без повторних спроб. Перехід, що не змінив статус
+ * (наприклад, повтор скасування після конфлікту версій), не зберігається і не потрапляє в outbox.
+ */
+@Component
+public class BookingTransitionExecutor {
+
+    private final IBookingRepository bookingRepository;
+    private final BookingOutbox bookingOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+
+    public BookingTransitionExecutor(IBookingRepository bookingRepository,
+                                     BookingOutbox bookingOutbox,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${booking.transitions.max-attempts:3}") int maxAttempts) {
+        this.bookingRepository = bookingRepository;
+        this.bookingOutbox = bookingOutbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * Перехід стану з записом події в outbox. Якщо бронювання вже має цільовий статус,
+     * повертається без збереження і без події.
+     *
+     * @param transition перехід стану, наприклад {@code Booking::confirm}
+     */
+    public Booking transition(UUID bookingId, String action, Consumer<Booking> transition) {
+        return execute(bookingId, action, booking -> {
+            BookingStatus before = booking.getStatus();
+            transition.accept(booking);
+            if (booking.getStatus() == before) {
+                return booking;
+            }
+            Booking saved = bookingRepository.saveAndFlush(booking);
+            bookingOutbox.record(saved);
+            return saved;
+        });
+    }
+
+    /**
+     * @param action назва операції (тег метрик: confirm, pay, cancel ...)
+     * @param work   дія над керованою сутністю всередині транзакції
+     */
+    public <T> T execute(UUID bookingId, String action, Function<Booking, T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> {
+                    // Зв'язки завантажуються разом з бронюванням: після транзакції його читають спостерігачі
+                    Booking booking = bookingRepository.findWithDetailsByBookingId(bookingId)
+                            .orElseThrow(() -> new RuntimeException("Бронювання не знайдено."));
+                    return work.apply(booking);
+                });
+            } catch (OptimisticLockingFailureException e) {
+                conflictCounter(action).increment();
+                if (attempt >= maxAttempts) {
+                    Counter.builder("booking.transition.retries.exhausted")
+                            .tag("action", action)
+                            .register(meterRegistry)
+                            .increment();
+                    throw TransientFailureException.conflict("Бронювання щойно змінено іншим користувачем. Оновіть сторінку та спробуйте ще раз.");
+                }
+                System.out.println("BookingTransitionExecutor: конфлікт версій (" + action + "), спроба " + attempt);
+            }
+        }
+    }
+
+    private Counter conflictCounter(String action) {
+        return Counter.builder("booking.transition.conflicts")
+                .description("Конфлікти оптимістичного блокування при зміні стану бронювання")
+                .tag("action", action)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,105 @@
+package com.beautysalon.booking.service;
+
+import com.beautysalon.booking.availability.SlotAvailabilityIndex;
+import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.Payment;
+import com.beautysalon.booking.repository.IBookingRepository;
+import com.beautysalon.booking.repository.IPaymentRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Скасування всіх бронювань майстра на день (майстер захворів) однією операцією.
+ * <p>
+ * Одна транзакція: активні бронювання дня блокуються (SELECT ... FOR UPDATE), скасовуються одним UPDATE
+ * зі збільшенням версії, їхні оплачені платежі одним UPDATE позначаються REFUND_PENDING, а в outbox одним
+ * INSERT ... SELECT пишеться по події на бронювання з групою на кожного клієнта - клієнт отримає один лист
+ * про всі свої записи.
+ * Паралельний перехід того самого бронювання чекає на блокування, а потім отримує конфлікт версій
+ * і перечитує вже скасований запис.
+ * <p>
+ * Після коміту кошти повертаються пакетами через {@link PaymentFacade#refundAll}.
+ */
+@Service
+public class BulkCancellationService {
+
+    private final IBookingRepository bookingRepository;
+    private final IPaymentRepository paymentRepository;
+    private final BookingOutbox bookingOutbox;
+    private final PaymentFacade paymentFacade;
+    private final SlotAvailabilityIndex availabilityIndex;
+    private final TransactionTemplate transactionTemplate;
+
+    public BulkCancellationService(IBookingRepository bookingRepository,
+                                   IPaymentRepository paymentRepository,
+                                   BookingOutbox bookingOutbox,
+                                   PaymentFacade paymentFacade,
+                                   SlotAvailabilityIndex availabilityIndex,
+                                   PlatformTransactionManager transactionManager) {
+        this.bookingRepository = bookingRepository;
+        this.paymentRepository = paymentRepository;
+        this.bookingOutbox = bookingOutbox;
+        this.paymentFacade = paymentFacade;
+        this.availabilityIndex = availabilityIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public Result cancelMasterDay(UUID masterId, LocalDate date) {
+        Cancelled cancelled = transactionTemplate.execute(status -> {
+            List<Booking> active = bookingRepository.lockActiveByMasterAndDate(masterId, date);
+            if (active.isEmpty()) {
+                return new Cancelled(0, 0, List.of());
+            }
+            List<UUID> bookingIds = active.stream().map(Booking::getBookingId).toList();
+            long clients = active.stream().map(booking -> booking.getClient().getUserId()).distinct().count();
+            // Платежі читаються до UPDATE: воно очищає сесію
+            List<Payment> paid = paymentRepository.findByPaymentStatusAndBookingBookingIdIn("PAID", bookingIds);
+
+            bookingRepository.cancelAll(bookingIds);
+            if (!paid.isEmpty()) {
+                paymentRepository.updateStatus(paid.stream().map(Payment::getPaymentId).toList(), "PAID", "REFUND_PENDING");
+            }
+            bookingOutbox.recordGroupedByClient(bookingIds, UUID.randomUUID().toString());
+            return new Cancelled(bookingIds.size(), (int) clients, paid);
+        });
+
+        if (cancelled.count() == 0) {
+            return new Result(0, 0, 0, 0, List.of(), List.of());
+        }
+        availabilityIndex.invalidate(masterId, date);
+
+        PaymentFacade.RefundOutcome refunds = paymentFacade.refundAll(cancelled.paid());
+        List<Payment> failed = refunds.failed();
+        List<Payment> pending = refunds.pending();
+        int refunded = cancelled.paid().size() - failed.size() - pending.size();
+        double refundedAmount = cancelled.paid().stream()
+                .filter(payment -> !failed.contains(payment) && !pending.contains(payment))
+                .mapToDouble(Payment::getAmount).sum();
+        System.out.println("BulkCancellationService: майстер " + masterId + ", " + date + " - скасовано " +
+                cancelled.count() + " бронювань " + cancelled.clients() + " клієнтів, повернено " + refunded + " платежів" +
+                (failed.isEmpty() ? "" : ", не вдалося повернути " + failed.size()) +
+                (pending.isEmpty() ? "" : ", очікують відповіді шлюзу " + pending.size()));
+        return new Result(cancelled.count(), cancelled.clients(), refunded, refundedAmount,
+                bookingIdsOf(failed), bookingIdsOf(pending));
+    }
+
+    private static List<UUID> bookingIdsOf(List<Payment> payments) {
+        return payments.stream().map(payment -> payment.getBooking().getBookingId()).toList();
+    }
+
+    /**
+     * @param refundFailedBookingIds бронювання, кошти за якими не повернено: платіж лишився PAID,
+     *                               повернення можна повторити для кожного окремо
+     * @param refundPendingBookingIds шлюз не відповів вчасно: платіж REFUND_PENDING, статус визначить
+     *                                пізня відповідь шлюзу
+     */
+    public record Result(int cancelled, int clientsNotified, int refunded, double refundedAmount,
+                         List<UUID> refundFailedBookingIds, List<UUID> refundPendingBookingIds) {}
+
+    private record Cancelled(int count, int clients, List<Payment> paid) {}
+}
@@ -0,0 +1,57 @@
+package com.beautysalon.booking.service;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Подія зміни каталогу: які саме списки (послуги, майстри, рейтинги) застаріли.
+ * Публікується сервісами всередині транзакції, кеші та індекси оновлюються після її коміту.
+ * Якщо відомо, яка саме послуга чи майстер змінились, їх id дозволяють оновити індекси точково;
+ * без id слухачі перебудовують дані повністю.
+ */
+public class CatalogChangedEvent {
+
+    public enum Part { SERVICES, MASTERS, RATINGS }
+
+    private final Set<Part> parts;
+    private final UUID serviceId;
+    private final UUID masterId;
+
+    public CatalogChangedEvent(Part first, Part... rest) {
+        this(EnumSet.of(first, rest), null, null);
+    }
+
+    private CatalogChangedEvent(Set<Part> parts, UUID serviceId, UUID masterId) {
+        this.parts = parts;
+        this.serviceId = serviceId;
+        this.masterId = masterId;
+    }
+
+    public CatalogChangedEvent forService(UUID serviceId) {
+        return new CatalogChangedEvent(parts, serviceId, masterId);
+    }
+
+    public CatalogChangedEvent forMaster(UUID masterId) {
+        return new CatalogChangedEvent(parts, serviceId, masterId);
+    }
+
+    public boolean affects(Part part) {
+        return parts.contains(part);
+    }
+
+    public UUID getServiceId() {
+        return serviceId;
+    }
+
+    public UUID getMasterId() {
+        return masterId;
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogChangedEvent" + parts
+                + (serviceId != null ? " service=" + serviceId : "")
+                + (masterId != null ? " master=" + masterId : "");
+    }
+}
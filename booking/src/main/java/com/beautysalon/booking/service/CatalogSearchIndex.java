@@ -0,0 +1,385 @@
+package com.beautysalon.booking.service;
+
+import com.beautysalon.booking.dto.CatalogSearchHitDto;
+import com.beautysalon.booking.entity.Master;
+import com.beautysalon.booking.repository.IServiceRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Триграмний індекс для пошуку по каталогу (typeahead у формі бронювання).
+ * Документ - послуга конкретного майстра; індексуються назва послуги, опис, ім'я майстра
+ * та спеціалізація з різною вагою. Кожне слово доповнюється пробілами ("  слово "),
+ * тому навіть одна-дві введені літери знаходять слова, що з них починаються,
+ * а одруківка всередині слова дає частковий збіг замість порожнього результату.
+ *
+ * Документи нумеруються послідовно, списки входжень триграм - масиви номерів документів,
+ * а бали рахуються в масивах, що перевикористовуються потоком, тож запит не створює
+ * об'єктів на кожен знайдений документ.
+ * Індекс - незмінний знімок: читачі працюють без блокувань, а зміна каталогу
+ * (подія {@link CatalogChangedEvent}) створює новий знімок, копіюючи лише списки
+ * триграм зміненої послуги. Видалені документи лишаються "надгробками", доки їх
+ * не стане забагато, - тоді знімок ущільнюється в пам'яті, без звернення до БД.
+ */
+@Component
+public class CatalogSearchIndex {
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float MASTER_WEIGHT = 2f;
+    private static final float SPECIALIZATION_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    // Частка триграм запиту, яка має знайтись у документі
+    private static final float MIN_MATCH_RATIO = 0.5f;
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 64;
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern APOSTROPHES = Pattern.compile("['’ʼ`]");
+
+    private final IServiceRepository serviceRepository;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    private volatile Snapshot snapshot; // null - ще не завантажено
+
+    public CatalogSearchIndex(IServiceRepository serviceRepository) {
+        this.serviceRepository = serviceRepository;
+    }
+
+    /**
+     * Повертає до {@code limit} найрелевантніших послуг за запитом (без урахування регістру).
+     */
+    public List<CatalogSearchHitDto> search(String query, int limit) {
+        if (query == null || limit <= 0) {
+            return List.of();
+        }
+        Snapshot current = loaded();
+        String[] grams = queryTrigrams(query);
+        if (grams.length == 0) {
+            return List.of();
+        }
+
+        Scratch buffers = scratch.get();
+        buffers.ensureCapacity(current.docs.length);
+        float[] scores = buffers.scores;
+        short[] matched = buffers.matched;
+        int[] touched = buffers.touched;
+        int touchedCount = 0;
+        for (String gram : grams) {
+            Posting posting = current.postings.get(gram);
+            if (posting == null) {
+                continue;
+            }
+            int[] docs = posting.docs;
+            float[] weights = posting.weights;
+            for (int i = 0; i < docs.length; i++) {
+                int doc = docs[i];
+                if (matched[doc]++ == 0) {
+                    touched[touchedCount++] = doc;
+                }
+                scores[doc] += weights[i];
+            }
+        }
+
+        String phrase = normalize(query).strip();
+        float maxScore = grams.length * NAME_WEIGHT;
+        int minMatches = Math.max(1, Math.round(grams.length * MIN_MATCH_RATIO));
+        TopK top = new TopK(limit);
+        for (int i = 0; i < touchedCount; i++) {
+            int doc = touched[i];
+            Document document = current.docs[doc];
+            // Бонус за збіг фрази з назвою рахуємо лише для документів, що можуть потрапити в топ
+            if (document != null && matched[doc] >= minMatches) {
+                float score = scores[doc] / maxScore;
+                if (top.accepts(score + 0.5f)) {
+                    if (document.normalizedName.startsWith(phrase)) {
+                        score += 0.5f;
+                    } else if (document.normalizedName.contains(phrase)) {
+                        score += 0.25f;
+                    }
+                    top.offer(doc, score);
+                }
+            }
+            scores[doc] = 0f;
+            matched[doc] = 0;
+        }
+
+        List<CatalogSearchHitDto> hits = new ArrayList<>(top.size);
+        for (int i = 0; i < top.size; i++) {
+            hits.add(current.docs[top.docs[i]].toHit(Math.round(top.scores[i] * 1000) / 1000.0));
+        }
+        return hits;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onCatalogChanged(CatalogChangedEvent event) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return; // перший пошук і так завантажить актуальний каталог
+        }
+        if (!event.affects(CatalogChangedEvent.Part.SERVICES) && !event.affects(CatalogChangedEvent.Part.MASTERS)) {
+            return; // рейтинги не індексуються
+        }
+        if (event.getServiceId() != null) {
+            UUID serviceId = event.getServiceId();
+            snapshot = current.without(List.of(serviceId))
+                    .with(serviceRepository.findWithMasterByServiceId(serviceId).stream()
+                            .map(CatalogSearchIndex::toDocument).toList());
+        } else if (event.getMasterId() != null) {
+            UUID masterId = event.getMasterId();
+            List<UUID> stale = Arrays.stream(current.docs)
+                    .filter(doc -> doc != null && masterId.equals(doc.masterId))
+                    .map(Document::serviceId)
+                    .toList();
+            snapshot = current.without(stale)
+                    .with(serviceRepository.findByMasterMasterId(masterId).stream()
+                            .map(CatalogSearchIndex::toDocument).toList());
+        } else {
+            snapshot = null;
+        }
+    }
+
+    private Snapshot loaded() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                long started = System.nanoTime();
+                snapshot = Snapshot.EMPTY.with(serviceRepository.findAll().stream()
+                        .map(CatalogSearchIndex::toDocument).toList());
+                System.out.println("CatalogSearchIndex: проіндексовано " + snapshot.live + " послуг за "
+                        + (System.nanoTime() - started) / 1_000_000 + " мс");
+            }
+            return snapshot;
+        }
+    }
+
+    private static Document toDocument(com.beautysalon.booking.entity.Service service) {
+        Master master = service.getMaster();
+        if (master == null || service.getName() == null) {
+            return null;
+        }
+        Map<String, Float> grams = new LinkedHashMap<>();
+        collect(grams, service.getName(), NAME_WEIGHT);
+        collect(grams, master.getUser().getName(), MASTER_WEIGHT);
+        collect(grams, master.getSpecialization(), SPECIALIZATION_WEIGHT);
+        collect(grams, service.getDescription(), DESCRIPTION_WEIGHT);
+
+        String[] keys = grams.keySet().toArray(new String[0]);
+        float[] weights = new float[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            weights[i] = grams.get(keys[i]);
+        }
+        return new Document(service.getServiceId(), service.getName(), master.getMasterId(),
+                master.getUser().getName(), master.getSpecialization(), service.getPrice(),
+                service.getDurationMinutes(), normalize(service.getName()), keys, weights);
+    }
+
+    private static void collect(Map<String, Float> grams, String text, float weight) {
+        if (text == null) {
+            return;
+        }
+        for (String word : WORD_SEPARATOR.split(normalize(text))) {
+            if (!word.isEmpty()) {
+                addWordTrigrams(grams, word, true, weight);
+            }
+        }
+    }
+
+    // Останнє слово запиту ще може дописуватись, тож для нього не додаємо триграму кінця слова
+    private static String[] queryTrigrams(String query) {
+        Map<String, Float> grams = new LinkedHashMap<>();
+        String normalized = normalize(query);
+        String[] words = WORD_SEPARATOR.split(normalized);
+        boolean lastWordComplete = !normalized.isEmpty()
+                && !Character.isLetterOrDigit(normalized.charAt(normalized.length() - 1));
+        for (int i = 0; i < words.length; i++) {
+            if (!words[i].isEmpty()) {
+                addWordTrigrams(grams, words[i], i < words.length - 1 || lastWordComplete, 0f);
+            }
+        }
+        return grams.keySet().toArray(new String[0]);
+    }
+
+    private static void addWordTrigrams(Map<String, Float> grams, String word, boolean complete, float weight) {
+        String padded = "  " + word + (complete ? " " : "");
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.merge(padded.substring(i, i + 3), weight, Math::max);
+        }
+    }
+
+    private static String normalize(String text) {
+        // Апостроф у словах (прив'язка / привʼязка / привязка) не має впливати на пошук
+        return APOSTROPHES.matcher(text.toLowerCase(Locale.ROOT)).replaceAll("");
+    }
+
+    /**
+     * Незмінний стан індексу. {@code docs[i] == null} - видалений документ (надгробок).
+     */
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new Document[0], 0, Map.of(), Map.of());
+
+        final Document[] docs;
+        final int live;
+        final Map<String, Posting> postings;
+        final Map<UUID, Integer> docByService;
+
+        Snapshot(Document[] docs, int live, Map<String, Posting> postings, Map<UUID, Integer> docByService) {
+            this.docs = docs;
+            this.live = live;
+            this.postings = postings;
+            this.docByService = docByService;
+        }
+
+        Snapshot with(Collection<Document> added) {
+            List<Document> documents = added.stream().filter(doc -> doc != null).toList();
+            if (documents.isEmpty()) {
+                return this;
+            }
+            Document[] newDocs = Arrays.copyOf(docs, docs.length + documents.size());
+            Map<UUID, Integer> newDocByService = new HashMap<>(docByService);
+            // Нові номери документів більші за наявні, тож списки входжень лишаються відсортованими
+            Map<String, PostingBuilder> appended = new HashMap<>();
+            int next = docs.length;
+            for (Document doc : documents) {
+                newDocs[next] = doc;
+                newDocByService.put(doc.serviceId, next);
+                for (int i = 0; i < doc.grams.length; i++) {
+                    appended.computeIfAbsent(doc.grams[i], g -> new PostingBuilder()).add(next, doc.weights[i]);
+                }
+                next++;
+            }
+            Map<String, Posting> newPostings = new HashMap<>(postings);
+            appended.forEach((gram, builder) -> newPostings.put(gram, builder.appendTo(postings.get(gram))));
+            return new Snapshot(newDocs, live + documents.size(), newPostings, newDocByService);
+        }
+
+        Snapshot without(Collection<UUID> serviceIds) {
+            Document[] newDocs = null;
+            Map<UUID, Integer> newDocByService = null;
+            int removed = 0;
+            for (UUID serviceId : serviceIds) {
+                Integer doc = docByService.get(serviceId);
+                if (doc == null) {
+                    continue;
+                }
+                if (newDocs == null) {
+                    newDocs = docs.clone();
+                    newDocByService = new HashMap<>(docByService);
+                }
+                newDocs[doc] = null;
+                newDocByService.remove(serviceId);
+                removed++;
+            }
+            if (removed == 0) {
+                return this;
+            }
+            Snapshot result = new Snapshot(newDocs, live - removed, postings, newDocByService);
+            int tombstones = newDocs.length - result.live;
+            return tombstones >= MIN_TOMBSTONES_TO_COMPACT && tombstones > result.live / 4 ? result.compact() : result;
+        }
+
+        Snapshot compact() {
+            return EMPTY.with(Arrays.stream(docs).filter(doc -> doc != null).toList());
+        }
+    }
+
+    private record Posting(int[] docs, float[] weights) {}
+
+    private static final class PostingBuilder {
+        private int[] docs = new int[4];
+        private float[] weights = new float[4];
+        private int size;
+
+        void add(int doc, float weight) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = doc;
+            weights[size] = weight;
+            size++;
+        }
+
+        Posting appendTo(Posting existing) {
+            int base = existing == null ? 0 : existing.docs.length;
+            int[] newDocs = new int[base + size];
+            float[] newWeights = new float[base + size];
+            if (existing != null) {
+                System.arraycopy(existing.docs, 0, newDocs, 0, base);
+                System.arraycopy(existing.weights, 0, newWeights, 0, base);
+            }
+            System.arraycopy(docs, 0, newDocs, base, size);
+            System.arraycopy(weights, 0, newWeights, base, size);
+            return new Posting(newDocs, newWeights);
+        }
+    }
+
+    /**
+     * Буфери підрахунку балів одного потоку; після кожного запиту торкнуті комірки обнуляються.
+     */
+    private static final class Scratch {
+        float[] scores = new float[0];
+        short[] matched = new short[0];
+        int[] touched = new int[0];
+
+        void ensureCapacity(int docs) {
+            if (scores.length < docs) {
+                int capacity = Math.max(docs, scores.length * 2);
+                scores = new float[capacity];
+                matched = new short[capacity];
+                touched = new int[capacity];
+            }
+        }
+    }
+
+    /**
+     * Найкращі {@code limit} документів, відсортовані за спаданням балу (вставкою: limit невеликий).
+     */
+    private static final class TopK {
+        final int[] docs;
+        final float[] scores;
+        int size;
+
+        TopK(int limit) {
+            this.docs = new int[limit];
+            this.scores = new float[limit];
+        }
+
+        boolean accepts(float score) {
+            return size < docs.length || score > scores[size - 1];
+        }
+
+        void offer(int doc, float score) {
+            if (!accepts(score)) {
+                return;
+            }
+            int pos = size == docs.length ? size - 1 : size++;
+            while (pos > 0 && scores[pos - 1] < score) {
+                docs[pos] = docs[pos - 1];
+                scores[pos] = scores[pos - 1];
+                pos--;
+            }
+            docs[pos] = doc;
+            scores[pos] = score;
+        }
+    }
+
+    private record Document(UUID serviceId, String name, UUID masterId, String masterName, String specialization,
+                            double price, int durationMinutes, String normalizedName, String[] grams, float[] weights) {
+
+        CatalogSearchHitDto toHit(double score) {
+            return new CatalogSearchHitDto(serviceId, name, masterId, masterName, specialization,
+                    price, durationMinutes, score);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.beautysalon.booking.service;
+
+import com.beautysalon.booking.entity.Master;
+import com.beautysalon.booking.repository.IMasterRepository;
+import com.beautysalon.booking.repository.IServiceRepository;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Read-through кеш каталогу: списки послуг і майстрів, які показуються на головній,
+ * у формі бронювання та в адмінці. Сутності завантажуються разом з майстром/користувачем
+ * (entity graph у репозиторіях), тож після від'єднання від сесії їх можна безпечно рендерити.
+ * Списки незмінні - вони спільні для всіх запитів.
+ *
+ * Розмір, TTL і статистика задаються в {@code spring.cache.caffeine.spec};
+ * метрики доступні як {@code cache.gets} / {@code cache.evictions} в /actuator/metrics.
+ */
+@Service
+public class CatalogService {
+
+    public static final String SERVICES_CACHE = "catalog-services";
+    public static final String MASTERS_CACHE = "catalog-masters";
+
+    private final IServiceRepository serviceRepository;
+    private final IMasterRepository masterRepository;
+    private final CacheManager cacheManager;
+
+    public CatalogService(IServiceRepository serviceRepository, IMasterRepository masterRepository,
+                          CacheManager cacheManager) {
+        this.serviceRepository = serviceRepository;
+        this.masterRepository = masterRepository;
+        this.cacheManager = cacheManager;
+    }
+
+    @Cacheable(cacheNames = SERVICES_CACHE, key = "'all'", sync = true)
+    public List<com.beautysalon.booking.entity.Service> getAllServices() {
+        return List.copyOf(serviceRepository.findAll());
+    }
+
+    @Cacheable(cacheNames = MASTERS_CACHE, key = "'all'", sync = true)
+    public List<Master> getAllMasters() {
+        return List.copyOf(masterRepository.findAll());
+    }
+
+    // Скидаємо лише ті списки, яких стосується зміна, і лише після коміту:
+    // інакше паралельний запит встиг би закешувати ще старий стан БД
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.affects(CatalogChangedEvent.Part.SERVICES)) {
+            clear(SERVICES_CACHE);
+        }
+        if (event.affects(CatalogChangedEvent.Part.MASTERS) || event.affects(CatalogChangedEvent.Part.RATINGS)) {
+            clear(MASTERS_CACHE);
+        }
+    }
+
+    private void clear(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
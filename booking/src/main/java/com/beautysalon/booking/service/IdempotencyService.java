@@ -0,0 +1,243 @@
+package com.beautysalon.booking.service;
+
+import com.beautysalon.booking.entity.IdempotencyRecord;
+import com.beautysalon.booking.repository.IBookingRepository;
+import com.beautysalon.booking.repository.IIdempotencyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Ідемпотентність операцій REST API за заголовком {@value #HEADER}.
+ * <p>
+ * Перший запит з ключем вставляє рядок idempotency_keys і виконує операцію, відповідь зберігається
+ * в таблиці та в пам'яті (Caffeine). Повтор з тим самим ключем отримує збережену відповідь
+ * без ланцюжка валідації і без звернення до платіжної стратегії; повтор на іншому екземплярі
+ * знаходить відповідь у таблиці. Той самий ключ з іншими параметрами відхиляється (422),
+ * а повтор, поки перший запит ще виконується, отримує 409.
+ * Виняток з операції (зокрема {@link TransientFailureException}) або відповідь 5xx звільняє ключ без збереження
+ * відповіді: повтор виконає операцію знову, а не отримає збережену помилку перевантаження.
+ * <p>
+ * Операція позначає свій результат через {@link #bindResource(UUID)} у власній транзакції: якщо застосунок
+ * впаде після коміту, але до збереження відповіді, повтор поверне поточний стан створеного/оплаченого
+ * бронювання, а не виконає операцію вдруге. Записи живуть {@code booking.idempotency.ttl-hours}.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 100;
+
+    // Ключ запиту, що виконується в цьому потоці: операція прив'язує до нього результат
+    private static final ThreadLocal<String> CURRENT_KEY = new ThreadLocal<>();
+
+    private final IIdempotencyRepository idempotencyRepository;
+    private final IBookingRepository bookingRepository;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, StoredResponse> responses;
+    private final Duration ttl;
+    private final Duration lease;
+    private final Counter replays;
+
+    public IdempotencyService(IIdempotencyRepository idempotencyRepository,
+                              IBookingRepository bookingRepository,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${booking.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${booking.idempotency.lease-seconds:60}") long leaseSeconds,
+                              @Value("${booking.idempotency.memory-size:10000}") long memorySize) {
+        this.idempotencyRepository = idempotencyRepository;
+        this.bookingRepository = bookingRepository;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(memorySize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.replays = Counter.builder("booking.idempotency.replays")
+                .description("Повтори запитів, що отримали збережену відповідь")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param operation     назва операції; ключі різних операцій не перетинаються
+     * @param key           значення заголовка; без нього операція виконується як раніше
+     * @param request       параметри запиту, з яких рахується відбиток
+     * @param successStatus статус відповіді, якщо її доводиться відновлювати за бронюванням
+     */
+    public ResponseEntity<?> execute(String operation, String key, List<?> request,
+                                     HttpStatus successStatus, Supplier<ResponseEntity<?>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return new ResponseEntity<>("Некоректний " + HEADER + ": від 1 до " + MAX_KEY_LENGTH + " символів.",
+                    HttpStatus.BAD_REQUEST);
+        }
+        String id = operation + "|" + key;
+        String requestHash = fingerprint(operation, request);
+
+        StoredResponse cached = responses.getIfPresent(id);
+        if (cached != null) {
+            return replay(cached, requestHash);
+        }
+        if (!claim(id, requestHash)) {
+            return resolveExisting(id, requestHash, successStatus);
+        }
+
+        ResponseEntity<?> response = null;
+        try {
+            CURRENT_KEY.set(id);
+            response = action.get();
+        } finally {
+            CURRENT_KEY.remove();
+            if (response == null || response.getStatusCode().is5xxServerError()) {
+                idempotencyRepository.release(id);
+            }
+        }
+        if (!response.getStatusCode().is5xxServerError()) {
+            store(id, requestHash, response);
+        }
+        return response;
+    }
+
+    /**
+     * Прив'язує результат операції до ключа поточного запиту. Викликається всередині транзакції операції,
+     * поруч з записом в outbox; без ключа нічого не робить.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bindResource(UUID resourceId) {
+        String id = CURRENT_KEY.get();
+        if (id != null) {
+            idempotencyRepository.bindResource(id, resourceId);
+        }
+    }
+
+    @Scheduled(cron = "${booking.idempotency.sweep-cron:0 */15 * * * *}")
+    public void sweep() {
+        int removed = idempotencyRepository.deleteExpired(LocalDateTime.now());
+        if (removed > 0) {
+            System.out.println("IdempotencyService: видалено " + removed + " прострочених ключів");
+        }
+    }
+
+    private boolean claim(String id, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        // Звичайний повтор бачить ключ одразу; первинний ключ розсуджує лише одночасні запити
+        if (!idempotencyRepository.existsById(id)) {
+            try {
+                idempotencyRepository.saveAndFlush(new IdempotencyRecord(id, requestHash, now.plus(lease), now.plus(ttl)));
+                return true;
+            } catch (DataIntegrityViolationException e) {
+                // ключ щойно вставив паралельний запит
+            }
+        }
+        return idempotencyRepository.takeOver(id, requestHash, now.plus(lease), now) == 1;
+    }
+
+    private ResponseEntity<?> resolveExisting(String id, String requestHash, HttpStatus successStatus) {
+        IdempotencyRecord record = idempotencyRepository.findById(id).orElse(null);
+        if (record == null) {
+            return new ResponseEntity<>("Попередній запит з цим ключем не завершився. Повторіть його.", HttpStatus.CONFLICT);
+        }
+        if (!record.getRequestHash().equals(requestHash)) {
+            return mismatch();
+        }
+        if (record.getState() == IdempotencyRecord.State.COMPLETED) {
+            StoredResponse stored = new StoredResponse(requestHash, record.getResponseStatus(),
+                    record.getResponseContentType(), record.getResponseBody());
+            responses.put(id, stored);
+            return replay(stored, requestHash);
+        }
+        if (record.getResourceId() != null) {
+            // Операцію виконано, але відповідь не збережено: віддаємо поточний стан бронювання
+            replays.increment();
+            return bookingRepository.findWithDetailsByBookingId(record.getResourceId())
+                    .<ResponseEntity<?>>map(booking -> ResponseEntity.status(successStatus)
+                            .header("Idempotent-Replayed", "true").body(booking))
+                    .orElseGet(() -> new ResponseEntity<>("Бронювання не знайдено.", HttpStatus.NOT_FOUND));
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT).header("Retry-After", "1")
+                .body("Запит з цим ключем ще виконується.");
+    }
+
+    private void store(String id, String requestHash, ResponseEntity<?> response) {
+        Object body = response.getBody();
+        String contentType;
+        String text;
+        if (body == null) {
+            contentType = null;
+            text = null;
+        } else if (body instanceof String message) {
+            contentType = MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8";
+            text = message;
+        } else {
+            contentType = MediaType.APPLICATION_JSON_VALUE;
+            try {
+                text = objectMapper.writeValueAsString(body);
+            } catch (JsonProcessingException e) {
+                // Ключ лишається IN_PROGRESS: повтор відновить відповідь за прив'язаним бронюванням
+                System.err.println("IdempotencyService: не вдалося зберегти відповідь для " + id + ": " + e.getMessage());
+                return;
+            }
+        }
+        int status = response.getStatusCode().value();
+        idempotencyRepository.complete(id, status, contentType, text);
+        responses.put(id, new StoredResponse(requestHash, status, contentType, text));
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            return mismatch();
+        }
+        replays.increment();
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.status()).header("Idempotent-Replayed", "true");
+        if (stored.contentType() != null) {
+            builder.contentType(MediaType.parseMediaType(stored.contentType()));
+        }
+        return builder.body(stored.body());
+    }
+
+    private static ResponseEntity<?> mismatch() {
+        return new ResponseEntity<>(HEADER + " вже використано для запиту з іншими параметрами.",
+                HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    private static String fingerprint(String operation, List<?> request) {
+        StringBuilder canonical = new StringBuilder(operation);
+        for (Object value : request) {
+            canonical.append('\n').append(value);
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступний", e);
+        }
+    }
+
+    private record StoredResponse(String requestHash, int status, String contentType, String body) {}
+}
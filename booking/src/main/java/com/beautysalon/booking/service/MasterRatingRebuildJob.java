@@ -0,0 +1,38 @@
+package com.beautysalon.booking.service;
+
+import com.beautysalon.booking.repository.IMasterRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Відновлює агрегати рейтингу майстрів (сума та кількість оцінок) з таблиці reviews.
+ * Запускається при старті (заповнює агрегати для вже наявних відгуків)
+ * і за розкладом {@code booking.ratings.rebuild-cron}, щоб виправити розбіжності,
+ * наприклад після ручних змін у БД.
+ */
+@Component
+public class MasterRatingRebuildJob {
+
+    private final IMasterRepository masterRepository;
+    private final ApplicationEventPublisher applicationEvents;
+
+    public MasterRatingRebuildJob(IMasterRepository masterRepository, ApplicationEventPublisher applicationEvents) {
+        this.masterRepository = masterRepository;
+        this.applicationEvents = applicationEvents;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${booking.ratings.rebuild-cron:0 30 3 * * *}")
+    @Transactional
+    public void rebuild() {
+        int repaired = masterRepository.rebuildRatings();
+        if (repaired > 0) {
+            System.out.println("MasterRatingRebuildJob: перераховано рейтинг для " + repaired + " майстрів");
+            applicationEvents.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Part.RATINGS));
+        }
+    }
+}
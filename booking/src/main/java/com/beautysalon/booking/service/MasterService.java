@@ -1,10 +1,12 @@
 package com.beautysalon.booking.service;
 
+import com.beautysalon.booking.availability.SlotAvailabilityIndex;
 import com.beautysalon.booking.dto.ScheduleDayDto;
 import com.beautysalon.booking.entity.Master;
 import com.beautysalon.booking.entity.Schedule;
 import com.beautysalon.booking.repository.IMasterRepository;
 import com.beautysalon.booking.repository.IScheduleRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,14 +24,22 @@ public class MasterService {
 
     private final IMasterRepository masterRepository;
     private final IScheduleRepository scheduleRepository;
+    private final SlotAvailabilityIndex availabilityIndex;
+    private final ApplicationEventPublisher applicationEvents;
 
-    public MasterService(IMasterRepository masterRepository, IScheduleRepository scheduleRepository) {
+    public MasterService(IMasterRepository masterRepository, IScheduleRepository scheduleRepository,
+                         SlotAvailabilityIndex availabilityIndex, ApplicationEventPublisher applicationEvents) {
         this.masterRepository = masterRepository;
         this.scheduleRepository = scheduleRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.applicationEvents = applicationEvents;
     }
 
     public Master addMaster(Master newMaster) {
-        return masterRepository.save(newMaster);
+        Master saved = masterRepository.save(newMaster);
+        applicationEvents.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Part.MASTERS)
+                .forMaster(saved.getMasterId()));
+        return saved;
     }
 
     public Master findMasterByUser(UUID userId) {
@@ -49,6 +59,9 @@ public class MasterService {
         master.setSpecialization(specialization);
         master.setExperience(experience);
         masterRepository.save(master);
+        // Спеціалізація майстра показується і в списку послуг
+        applicationEvents.publishEvent(new CatalogChangedEvent(
+                CatalogChangedEvent.Part.MASTERS, CatalogChangedEvent.Part.SERVICES).forMaster(masterId));
     }
 
     public List<Schedule> getMasterSchedule(UUID masterId) {
@@ -85,7 +98,10 @@ public class MasterService {
     }
 
     public void deleteSchedule(UUID scheduleId) {
-        scheduleRepository.deleteById(scheduleId);
+        scheduleRepository.findById(scheduleId).ifPresent(schedule -> {
+            scheduleRepository.delete(schedule);
+            availabilityIndex.invalidate(schedule.getMaster().getMasterId(), schedule.getWorkDate());
+        });
     }
 
     public void upsertSchedule(UUID scheduleId, UUID masterId, LocalDate workDate, LocalTime startTime, LocalTime endTime) {
@@ -101,10 +117,17 @@ public class MasterService {
                  schedule.setMaster(masterRepository.findById(masterId).orElseThrow());
             }
         }
+        LocalDate previousDate = schedule.getWorkDate();
         schedule.setWorkDate(workDate);
         schedule.setStartTime(startTime);
         schedule.setEndTime(endTime);
         scheduleRepository.save(schedule);
+
+        UUID scheduleMasterId = schedule.getMaster().getMasterId();
+        if (previousDate != null && !previousDate.equals(workDate)) {
+            availabilityIndex.invalidate(scheduleMasterId, previousDate);
+        }
+        availabilityIndex.scheduleChanged(scheduleMasterId, workDate, startTime, endTime);
     }
     
     // Для сумісності зі старим кодом AdminController (якщо використовується)
@@ -5,83 +5,334 @@ import com.beautysalon.booking.entity.BookingStatus;
 import com.beautysalon.booking.entity.Payment;
 import com.beautysalon.booking.repository.IBookingRepository;
 import com.beautysalon.booking.repository.IPaymentRepository;
+import com.beautysalon.booking.payment.PaymentGateway;
 import com.beautysalon.booking.payment.PaymentStrategy;
 import com.beautysalon.booking.payment.PaymentStrategyFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.resource.jdbc.spi.LogicalConnectionImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 public class PaymentFacade {
     private final IBookingRepository bookingRepository;
     private final IPaymentRepository paymentRepository;
-    private final BookingService bookingService;
+    private final BookingOutbox bookingOutbox;
+    private final IdempotencyService idempotencyService;
     private final PaymentStrategyFactory strategyFactory;
+    private final BookingTransitionExecutor transitionExecutor;
+    private final PaymentGateway paymentGateway;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Duration pendingExpiry;
+    private final int refundBatchSize;
 
     public PaymentFacade(
             IBookingRepository bookingRepository,
             IPaymentRepository paymentRepository,
-            BookingService bookingService,
-            PaymentStrategyFactory strategyFactory) {
+            BookingOutbox bookingOutbox,
+            IdempotencyService idempotencyService,
+            PaymentStrategyFactory strategyFactory,
+            BookingTransitionExecutor transitionExecutor,
+            PaymentGateway paymentGateway,
+            PlatformTransactionManager transactionManager,
+            EntityManagerFactory entityManagerFactory,
+            @Value("${booking.payment.pending-expiry-minutes:10}") long pendingExpiryMinutes,
+            @Value("${booking.payment.refund-batch-size:50}") int refundBatchSize) {
         this.bookingRepository = bookingRepository;
         this.paymentRepository = paymentRepository;
-        this.bookingService = bookingService;
+        this.bookingOutbox = bookingOutbox;
+        this.idempotencyService = idempotencyService;
         this.strategyFactory = strategyFactory;
+        this.transitionExecutor = transitionExecutor;
+        this.paymentGateway = paymentGateway;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManagerFactory = entityManagerFactory;
+        this.pendingExpiry = Duration.ofMinutes(pendingExpiryMinutes);
+        this.refundBatchSize = Math.max(1, refundBatchSize);
     }
 
-    @Transactional
+    /**
+     * Оплата у три фази, щоб повільний шлюз не тримав транзакцію і з'єднання з БД:
+     * <ol>
+     *     <li>резерв - коротка транзакція: бронювання має бути підтверджене, створюється платіж PENDING
+     *     (унікальний booking_id не дає двом паралельним оплатам дійти до шлюзу);</li>
+     *     <li>виклик стратегії через {@link PaymentGateway} - поза транзакцією і без з'єднання з БД
+     *     (див. {@link #releaseRequestConnection()}), з тайм-аутом і запобіжником;</li>
+     *     <li>фіналізація - транзакція з перевіркою версії: перехід у PAID, платіж PAID, подія в outbox.</li>
+     * </ol>
+     * Якщо шлюз відмовив, резерв знімається. Якщо кошти списано, а бронювання тим часом скасували,
+     * списання повертається.
+     */
     public Booking payForBooking(UUID bookingId, String paymentMethod, String cardNumber) {
-        Booking booking = bookingRepository.findById(bookingId)
-                .orElseThrow(() -> new RuntimeException("Бронювання не знайдено."));
-
-        booking.pay();
-
         PaymentStrategy strategy = strategyFactory.getStrategy(paymentMethod);
+        Payment reserved = reserve(bookingId, strategy, cardNumber);
 
-        if (!strategy.processPayment(booking.getTotalPrice(), cardNumber)) {
+        releaseRequestConnection();
+        boolean charged;
+        try {
+            charged = paymentGateway.charge(strategy, reserved.getAmount(), cardNumber);
+        } catch (RuntimeException e) {
+            releaseReservation(reserved.getPaymentId());
+            throw e;
+        }
+        if (!charged) {
+            releaseReservation(reserved.getPaymentId());
             throw new RuntimeException("Зовнішній платіж " + strategy.getId() + " не вдалося виконати.");
         }
 
-        Payment payment = new Payment();
-        payment.setBooking(booking);
-        payment.setAmount(booking.getTotalPrice());
-        payment.setPaymentMethod(strategy.getId());
-        payment.setPaymentStatus("PAID");
-        payment.setPaymentDate(LocalDateTime.now());
-        payment.setCardNumber(cardNumber);
-        paymentRepository.save(payment);
+        try {
+            return transitionExecutor.execute(bookingId, "pay", booking -> {
+                booking.pay();
+                Booking paidBooking = bookingRepository.saveAndFlush(booking);
 
-        Booking savedBooking = bookingRepository.save(booking);
-        bookingService.notifyPaymentObservers(savedBooking);
-        return savedBooking;
+                Payment payment = paymentRepository.findById(reserved.getPaymentId())
+                        .orElseThrow(() -> new IllegalStateException("Резерв платежу не знайдено."));
+                payment.setPaymentStatus("PAID");
+                payment.setPaymentDate(LocalDateTime.now());
+                paymentRepository.save(payment);
+                bookingOutbox.record(paidBooking);
+                idempotencyService.bindResource(paidBooking.getBookingId());
+                return paidBooking;
+            });
+        } catch (RuntimeException e) {
+            // Кошти списано, але зарахувати оплату не можна
+            compensate(reserved, strategy);
+            if (e instanceof TransientFailureException failure) {
+                throw failure.withMessage(e.getMessage() + " Списані кошти повернено.");
+            }
+            throw new RuntimeException(e.getMessage() + " Списані кошти повернено.", e);
+        }
     }
 
-    @Transactional
-    public String refundBooking(UUID bookingId) {
-        Booking booking = bookingRepository.findById(bookingId)
-                .orElseThrow(() -> new RuntimeException("Бронювання не знайдено."));
+    /**
+     * Резерв PENDING, не завершений за {@code booking.payment.pending-expiry-minutes}, лишився після падіння
+     * під час виклику шлюзу: списання могло відбутися, а стратегії не мають ключа ідемпотентності, тож повторна
+     * оплата могла б списати кошти двічі. Такий резерв переходить у RECONCILE і чекає звірки адміністратором.
+     */
+    private Payment reserve(UUID bookingId, PaymentStrategy strategy, String cardNumber) {
+        if (paymentRepository.updateStalePending(bookingId, LocalDateTime.now().minus(pendingExpiry), "RECONCILE") > 0) {
+            System.err.println("PaymentFacade: покинутий резерв платежу бронювання " + bookingId + " передано на звірку");
+        }
+        try {
+            return transitionExecutor.execute(bookingId, "pay-reserve", booking -> {
+                if (booking.getStatus() != BookingStatus.CONFIRMED) {
+                    booking.pay(); // стан бронювання пояснить, чому оплата неможлива
+                }
+                Payment payment = booking.getPayment();
+                if (payment != null) {
+                    throw new IllegalStateException("PENDING".equals(payment.getPaymentStatus())
+                            ? "Оплата цього бронювання вже обробляється."
+                            : "Платіж бронювання потребує звірки адміністратором.");
+                }
+                payment = new Payment();
+                payment.setBooking(booking);
+                payment.setAmount(booking.getTotalPrice());
+                payment.setPaymentMethod(strategy.getId());
+                payment.setPaymentStatus("PENDING");
+                payment.setPaymentDate(LocalDateTime.now());
+                payment.setCardNumber(cardNumber);
+                return paymentRepository.saveAndFlush(payment);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Паралельний запит щойно зарезервував платіж цього бронювання
+            throw new IllegalStateException("Оплата цього бронювання вже обробляється.");
+        }
+    }
+
+    private void releaseReservation(UUID paymentId) {
+        releaseReservation(paymentId, "PENDING");
+    }
+
+    private void releaseReservation(UUID paymentId, String expectedStatus) {
+        transactionTemplate.executeWithoutResult(status -> paymentRepository.findById(paymentId)
+                .filter(payment -> expectedStatus.equals(payment.getPaymentStatus()))
+                .ifPresent(payment -> {
+                    payment.getBooking().setPayment(null);
+                    paymentRepository.delete(payment);
+                }));
+    }
 
-        if (booking.getStatus() != BookingStatus.CANCELLED) {
-            throw new IllegalStateException("Повернення коштів можливе лише для скасованих бронювань.");
+    /**
+     * Повернення списання, яке не вдалося зарахувати. Поки шлюз відповідає, резерв має статус REFUND_PENDING;
+     * якщо шлюз не встиг за тайм-аут, статус лишається таким до його пізньої відповіді.
+     */
+    private void compensate(Payment reserved, PaymentStrategy strategy) {
+        UUID paymentId = reserved.getPaymentId();
+        paymentRepository.updateStatus(List.of(paymentId), "PENDING", "REFUND_PENDING");
+        releaseRequestConnection();
+        Boolean refunded;
+        try {
+            refunded = paymentGateway.refund(strategy, reserved.getAmount(),
+                    late -> settleCompensation(paymentId, late));
+        } catch (PaymentGateway.GatewayTimeoutException e) {
+            System.err.println("PaymentFacade: повернення списання за платежем " + paymentId + " ще обробляється шлюзом");
+            return;
+        } catch (RuntimeException e) {
+            refunded = null;
         }
+        settleCompensation(paymentId, refunded);
+    }
 
-        Payment payment = paymentRepository.findByBookingBookingId(bookingId);
-        if (payment == null || payment.getPaymentStatus().equals("REFUNDED")) {
-            throw new IllegalStateException("Платіж не знайдено або вже повернено.");
+    private void settleCompensation(UUID paymentId, Boolean refunded) {
+        if (Boolean.TRUE.equals(refunded)) {
+            releaseReservation(paymentId, "REFUND_PENDING");
+            return;
         }
+        System.err.println("PaymentFacade: не вдалося повернути списання за платежем " + paymentId);
+        paymentRepository.updateStatus(List.of(paymentId), "REFUND_PENDING", "REFUND_FAILED");
+    }
 
-        PaymentStrategy strategy = strategyFactory.getStrategy(payment.getPaymentMethod());
+    /**
+     * Пакетне повернення за бронюваннями, скасованими масово ({@link BulkCancellationService}).
+     * Платежі вже позначено REFUND_PENDING у транзакції скасування. Повернення групуються за методом оплати
+     * і йдуть пакетами по {@code booking.payment.refund-batch-size} через {@link PaymentStrategy#processRefunds} -
+     * одне звернення до шлюзу на пакет замість звернення на кожен платіж.
+     * Повернені платежі стають REFUNDED; відхилені знову стають PAID, і їх можна повернути окремо через
+     * {@link #refundBooking}. Пакет, на який шлюз не відповів вчасно, лишається REFUND_PENDING до пізньої відповіді.
+     */
+    public RefundOutcome refundAll(List<Payment> payments) {
+        Map<String, List<Payment>> byMethod = payments.stream()
+                .collect(Collectors.groupingBy(Payment::getPaymentMethod, LinkedHashMap::new, Collectors.toList()));
+        List<Payment> failed = new ArrayList<>();
+        List<Payment> pending = new ArrayList<>();
+        releaseRequestConnection();
+        for (Map.Entry<String, List<Payment>> entry : byMethod.entrySet()) {
+            PaymentStrategy strategy = strategyFactory.getStrategy(entry.getKey());
+            List<Payment> method = entry.getValue();
+            for (int from = 0; from < method.size(); from += refundBatchSize) {
+                List<Payment> chunk = method.subList(from, Math.min(from + refundBatchSize, method.size()));
+                List<UUID> paymentIds = chunk.stream().map(Payment::getPaymentId).toList();
+                List<Boolean> results;
+                try {
+                    results = paymentGateway.refundAll(strategy, chunk.stream().map(Payment::getAmount).toList(),
+                            late -> settleRefunds(paymentIds, late));
+                } catch (PaymentGateway.GatewayTimeoutException e) {
+                    System.err.println("PaymentFacade: пакет з " + chunk.size() + " повернень (" + strategy.getId() +
+                            ") ще обробляється шлюзом");
+                    pending.addAll(chunk);
+                    continue;
+                } catch (RuntimeException e) {
+                    System.err.println("PaymentFacade: пакет з " + chunk.size() + " повернень (" + strategy.getId() +
+                            ") не виконано: " + e.getMessage());
+                    results = Collections.nCopies(chunk.size(), Boolean.FALSE);
+                }
+                settleRefunds(paymentIds, results);
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (!results.get(i)) {
+                        failed.add(chunk.get(i));
+                    }
+                }
+            }
+        }
+        return new RefundOutcome(failed, pending);
+    }
 
-        if (strategy.processRefund(payment.getAmount())) {
-            payment.setPaymentStatus("REFUNDED");
-            paymentRepository.save(payment);
+    /**
+     * Фіксує відповідь шлюзу для платежів у REFUND_PENDING: повернено - REFUNDED, відхилено - PAID
+     * (можна повторити), шлюз завершився помилкою ({@code results == null}) - REFUND_FAILED, потрібна звірка.
+     */
+    private void settleRefunds(List<UUID> paymentIds, List<Boolean> results) {
+        if (results == null) {
+            System.err.println("PaymentFacade: результат повернення " + paymentIds.size() +
+                    " платежів невідомий, потрібна звірка");
+            paymentRepository.updateStatus(paymentIds, "REFUND_PENDING", "REFUND_FAILED");
+            return;
+        }
+        List<UUID> refunded = new ArrayList<>();
+        List<UUID> declined = new ArrayList<>();
+        for (int i = 0; i < paymentIds.size(); i++) {
+            (results.get(i) ? refunded : declined).add(paymentIds.get(i));
+        }
+        if (!refunded.isEmpty()) {
+            paymentRepository.updateStatus(refunded, "REFUND_PENDING", "REFUNDED");
+        }
+        if (!declined.isEmpty()) {
+            paymentRepository.updateStatus(declined, "REFUND_PENDING", "PAID");
+        }
+    }
 
+    /**
+     * Статус REFUND_PENDING фіксується окремою транзакцією до звернення до шлюзу, щоб паралельне повернення
+     * отримало конфлікт версій. Відповідь шлюзу переводить платіж у REFUNDED або, якщо повернення не виконано,
+     * назад у PAID. Якщо шлюз не відповів вчасно, PAID не відновлюється: повернення могло відбутися,
+     * і повтор заплатив би клієнту двічі - статус визначить пізня відповідь шлюзу.
+     */
+    public String refundBooking(UUID bookingId) {
+        Payment payment = transitionExecutor.execute(bookingId, "refund", booking -> {
+            if (booking.getStatus() != BookingStatus.CANCELLED) {
+                throw new IllegalStateException("Повернення коштів можливе лише для скасованих бронювань.");
+            }
+
+            Payment paid = paymentRepository.findByBookingBookingId(bookingId);
+            if (paid == null || !paid.getPaymentStatus().equals("PAID")) {
+                throw new IllegalStateException("Платіж не знайдено або вже повернено.");
+            }
+
+            paid.setPaymentStatus("REFUND_PENDING");
+            return paymentRepository.saveAndFlush(paid);
+        });
+
+        PaymentStrategy strategy = strategyFactory.getStrategy(payment.getPaymentMethod());
+        List<UUID> paymentIds = List.of(payment.getPaymentId());
+        releaseRequestConnection();
+        boolean refunded;
+        try {
+            refunded = paymentGateway.refund(strategy, payment.getAmount(),
+                    late -> settleRefunds(paymentIds, late == null ? null : List.of(late)));
+        } catch (PaymentGateway.GatewayTimeoutException e) {
+            throw new RuntimeException(e.getMessage() + " Статус оновиться, щойно шлюз відповість.");
+        } catch (RuntimeException e) {
+            refunded = false;
+        }
+        settleRefunds(paymentIds, List.of(refunded));
+        if (refunded) {
             String maskedCard = "**** **** **** " + payment.getCardNumber().substring(payment.getCardNumber().length() - 4);
             return "Кошти у розмірі " + payment.getAmount() + " грн повернено на рахунок: " + maskedCard;
         }
-
         throw new RuntimeException("Помилка повернення коштів через платіжний шлюз.");
     }
+
+    /**
+     * Сесія open-in-view тримає фізичне з'єднання з БД від першої транзакції до кінця HTTP-запиту.
+     * Перед зверненням до шлюзу воно повертається в пул: наступна транзакція оплати (або ліниве
+     * завантаження під час рендерингу) візьме з'єднання знову. Усередині транзакції нічого не робить.
+     */
+    private void releaseRequestConnection() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return;
+        }
+        EntityManager requestEntityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+        if (requestEntityManager == null) {
+            return;
+        }
+        LogicalConnectionImplementor connection = requestEntityManager.unwrap(SessionImplementor.class)
+                .getJdbcCoordinator().getLogicalConnection();
+        if (connection.isPhysicallyConnected()) {
+            connection.manualDisconnect();
+        }
+    }
+
+    /**
+     * @param failed  повернення не виконано, платіж знову PAID
+     * @param pending шлюз не відповів вчасно, платіж REFUND_PENDING до його пізньої відповіді
+     */
+    public record RefundOutcome(List<Payment> failed, List<Payment> pending) {}
 }
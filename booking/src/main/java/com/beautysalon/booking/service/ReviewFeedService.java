@@ -0,0 +1,120 @@
+package com.beautysalon.booking.service;
+
+import com.beautysalon.booking.dto.ReviewCardDto;
+import com.beautysalon.booking.repository.IReviewRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Стрічка останніх відгуків майстрів для головної сторінки.
+ * Відгуки для всіх майстрів сторінки, яких ще немає в кеші, завантажуються
+ * одним запитом (ROW_NUMBER по майстру), тож вартість сторінки не залежить
+ * від історії бронювань. Запис кешу скидається після коміту нового відгуку.
+ * <p>
+ * Кожне скидання збільшує покоління майстра: стрічка, завантажена до скидання,
+ * у кеш не потрапляє (як у {@link ServiceNameIndex}). Кеш обмежений розміром і часом життя.
+ */
+@Service
+public class ReviewFeedService {
+
+    private final IReviewRepository reviewRepository;
+    private final int perMaster;
+    private final Cache<UUID, List<ReviewCardDto>> cache;
+    private final Map<UUID, Long> generations = new ConcurrentHashMap<>();
+
+    public ReviewFeedService(IReviewRepository reviewRepository,
+                             @Value("${booking.reviews.feed-size:3}") int perMaster,
+                             @Value("${booking.reviews.cache-size:1000}") long cacheSize,
+                             @Value("${booking.reviews.cache-ttl-minutes:10}") long cacheTtlMinutes) {
+        this.reviewRepository = reviewRepository;
+        this.perMaster = Math.max(1, perMaster);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMinutes(cacheTtlMinutes))
+                .build();
+    }
+
+    public Map<UUID, List<ReviewCardDto>> getLatestReviews(Collection<UUID> masterIds) {
+        Map<UUID, List<ReviewCardDto>> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (UUID masterId : masterIds) {
+            List<ReviewCardDto> cached = cache.getIfPresent(masterId);
+            if (cached != null) {
+                result.put(masterId, cached);
+            } else {
+                missing.add(masterId.toString());
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        Map<UUID, List<ReviewCardDto>> loaded = new HashMap<>();
+        Map<UUID, Long> startedAt = new HashMap<>();
+        for (String id : missing) {
+            UUID masterId = UUID.fromString(id);
+            loaded.put(masterId, new ArrayList<>());
+            startedAt.put(masterId, generations.getOrDefault(masterId, 0L));
+        }
+        for (Object[] row : reviewRepository.findLatestByMasters(missing, perMaster)) {
+            loaded.get(UUID.fromString(row[0].toString().trim())).add(new ReviewCardDto(
+                    (String) row[1],
+                    ((Number) row[2]).intValue(),
+                    (String) row[3],
+                    toLocalDateTime(row[4])));
+        }
+        loaded.forEach((masterId, reviews) -> {
+            List<ReviewCardDto> feed = List.copyOf(reviews);
+            // Перевірка покоління і запис атомарні відносно скидання того самого майстра
+            generations.compute(masterId, (id, generation) -> {
+                if (Objects.equals(generation == null ? 0L : generation, startedAt.get(id))) {
+                    cache.put(id, feed);
+                }
+                return generation;
+            });
+            result.put(masterId, feed);
+        });
+        return result;
+    }
+
+    /**
+     * Скидає стрічку майстра. Усередині транзакції скидання відкладається
+     * до коміту, щоб паралельний запит не закешував стан без нового відгуку.
+     */
+    public void reviewAdded(UUID masterId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(masterId);
+                }
+            });
+        } else {
+            evict(masterId);
+        }
+    }
+
+    private void evict(UUID masterId) {
+        generations.compute(masterId, (id, generation) -> {
+            cache.invalidate(id);
+            return generation == null ? 1L : generation + 1;
+        });
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+}
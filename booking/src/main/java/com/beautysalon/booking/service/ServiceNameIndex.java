@@ -0,0 +1,152 @@
+package com.beautysalon.booking.service;
+
+import com.beautysalon.booking.dto.MasterOptionDto;
+import com.beautysalon.booking.entity.Master;
+import com.beautysalon.booking.repository.IServiceRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Індекс "назва послуги -> майстри, що її надають".
+ * Тримає незмінний знімок каталогу: пошук майстрів за назвою і послуги за (назва, майстер)
+ * виконується за O(1) без звернення до JPA-сутностей, пошук за префіксом (без урахування регістру)
+ * - по відсортованій мапі назв.
+ * Знімок будується одним запитом при першому зверненні і скидається подією {@link CatalogChangedEvent}.
+ */
+@Component
+public class ServiceNameIndex {
+
+    private final IServiceRepository serviceRepository;
+    // Кожне скидання збільшує покоління: знімок, побудований до скидання, не публікується
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    public ServiceNameIndex(IServiceRepository serviceRepository) {
+        this.serviceRepository = serviceRepository;
+    }
+
+    /**
+     * Майстри, які надають послугу з точно такою назвою (у порядку додавання послуг).
+     */
+    public List<ServiceOffer> findOffers(String serviceName) {
+        Map<UUID, ServiceOffer> offers = snapshot().byName.get(serviceName);
+        return offers == null ? List.of() : List.copyOf(offers.values());
+    }
+
+    /**
+     * Конкретна послуга обраного майстра або {@code null}, якщо майстер її не надає.
+     */
+    public ServiceOffer findOffer(String serviceName, UUID masterId) {
+        Map<UUID, ServiceOffer> offers = snapshot().byName.get(serviceName);
+        return offers == null ? null : offers.get(masterId);
+    }
+
+    /**
+     * Усі назви послуг в алфавітному порядку.
+     */
+    public List<String> getServiceNames() {
+        return snapshot().names;
+    }
+
+    /**
+     * Назви послуг, що починаються з {@code prefix} (без урахування регістру), не більше {@code limit}.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank() || limit <= 0) {
+            return List.of();
+        }
+        String key = normalize(prefix);
+        List<String> result = new ArrayList<>();
+        for (List<String> names : snapshot().byPrefixKey.subMap(key, true, key + Character.MAX_VALUE, false).values()) {
+            for (String name : names) {
+                result.add(name);
+                if (result.size() == limit) {
+                    return result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        // Записи містять і дані майстра (ім'я, спеціалізація, рейтинг), тож скидаємо при будь-якій зміні
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null) {
+                long startedAt = generation.get();
+                current = build();
+                if (generation.get() == startedAt) {
+                    snapshot = current;
+                }
+            }
+            return current;
+        }
+    }
+
+    private Snapshot build() {
+        Map<String, Map<UUID, ServiceOffer>> byName = new HashMap<>();
+        for (com.beautysalon.booking.entity.Service service : serviceRepository.findAll()) {
+            Master master = service.getMaster();
+            if (master == null || service.getName() == null) {
+                continue;
+            }
+            ServiceOffer offer = new ServiceOffer(service.getServiceId(), master.getMasterId(),
+                    master.getUser().getName(), master.getSpecialization(), master.getFormattedRating(),
+                    service.getDurationMinutes());
+            // Якщо майстер має дві послуги з однаковою назвою, лишається перша (як і раніше у findFirst)
+            byName.computeIfAbsent(service.getName(), n -> new LinkedHashMap<>())
+                    .putIfAbsent(master.getMasterId(), offer);
+        }
+
+        Map<String, Map<UUID, ServiceOffer>> frozen = new HashMap<>();
+        NavigableMap<String, List<String>> byPrefixKey = new TreeMap<>();
+        byName.forEach((name, offers) -> {
+            frozen.put(name, Collections.unmodifiableMap(offers));
+            byPrefixKey.computeIfAbsent(normalize(name), k -> new ArrayList<>()).add(name);
+        });
+        byPrefixKey.replaceAll((k, names) -> List.copyOf(names));
+        List<String> names = byPrefixKey.values().stream().flatMap(List::stream).toList();
+        return new Snapshot(Map.copyOf(frozen), Collections.unmodifiableNavigableMap(byPrefixKey), names);
+    }
+
+    private static String normalize(String value) {
+        return value.strip().toLowerCase(Locale.ROOT);
+    }
+
+    private record Snapshot(Map<String, Map<UUID, ServiceOffer>> byName,
+                            NavigableMap<String, List<String>> byPrefixKey,
+                            List<String> names) {}
+
+    /**
+     * Послуга конкретного майстра з даними, потрібними формі бронювання.
+     */
+    public record ServiceOffer(UUID serviceId, UUID masterId, String masterName, String specialization,
+                               String rating, int durationMinutes) {
+
+        public MasterOptionDto toMasterOption() {
+            return new MasterOptionDto(masterId, masterName, specialization, rating);
+        }
+    }
+}
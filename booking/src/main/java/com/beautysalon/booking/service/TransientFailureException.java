@@ -0,0 +1,34 @@
+package com.beautysalon.booking.service;
+
+/**
+ * Тимчасовий збій інфраструктури (перевантаження, недоступний шлюз, вичерпані спроби після конфлікту версій):
+ * той самий запит варто повторити пізніше. На відміну від помилки бізнес-правил, така відповідь
+ * не зберігається за ключем ідемпотентності.
+ */
+public class TransientFailureException extends RuntimeException {
+
+    private final boolean conflict;
+
+    protected TransientFailureException(String message, boolean conflict, Throwable cause) {
+        super(message, cause);
+        this.conflict = conflict;
+    }
+
+    /** Сервер або платіжний шлюз не може обробити запит зараз (503). */
+    public static TransientFailureException unavailable(String message) {
+        return new TransientFailureException(message, false, null);
+    }
+
+    /** Запис змінювали паралельно, і спроби вичерпано (409). */
+    public static TransientFailureException conflict(String message) {
+        return new TransientFailureException(message, true, null);
+    }
+
+    public TransientFailureException withMessage(String message) {
+        return new TransientFailureException(message, conflict, this);
+    }
+
+    public boolean isConflict() {
+        return conflict;
+    }
+}
@@ -6,6 +6,7 @@ import com.beautysalon.booking.entity.User;
 import com.beautysalon.booking.repository.IMasterRepository;
 import com.beautysalon.booking.repository.IUserRepository;
 import org.springframework.security.crypto.password.PasswordEncoder; // <-- ІМПОРТ
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,11 +20,14 @@ public class UserService {
     private final IUserRepository userRepository;
     private final IMasterRepository masterRepository;
     private final PasswordEncoder passwordEncoder; // <-- НОВЕ ПОЛЕ
+    private final ApplicationEventPublisher applicationEvents;
 
-    public UserService(IUserRepository userRepository, IMasterRepository masterRepository, PasswordEncoder passwordEncoder) {
+    public UserService(IUserRepository userRepository, IMasterRepository masterRepository, PasswordEncoder passwordEncoder,
+                       ApplicationEventPublisher applicationEvents) {
         this.userRepository = userRepository;
         this.masterRepository = masterRepository;
         this.passwordEncoder = passwordEncoder; // <-- ІН'ЄКЦІЯ
+        this.applicationEvents = applicationEvents;
     }
 
     // Зберігає нового користувача (З ХЕШУВАННЯМ)
@@ -79,7 +83,13 @@ public class UserService {
         }
 
         if (currentRole == Role.MASTER && newRole != Role.MASTER) {
-            masterRepository.findByUserUserId(userId).ifPresent(masterRepository::delete);
+            masterRepository.findByUserUserId(userId).ifPresent(master -> {
+                masterRepository.delete(master);
+                // Профіль майстра видалено разом з його послугами
+                applicationEvents.publishEvent(new CatalogChangedEvent(
+                        CatalogChangedEvent.Part.MASTERS, CatalogChangedEvent.Part.SERVICES)
+                        .forMaster(master.getMasterId()));
+            });
         }
         
         if (newRole == Role.MASTER && currentRole != Role.MASTER) {
@@ -87,6 +97,8 @@ public class UserService {
                 com.beautysalon.booking.entity.Master newMaster = 
                     new com.beautysalon.booking.entity.Master(user, "Призначити спеціалізацію", 0);
                 masterRepository.save(newMaster);
+                applicationEvents.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Part.MASTERS)
+                        .forMaster(newMaster.getMasterId()));
             }
         }
         
@@ -0,0 +1,90 @@
+package com.beautysalon.booking.validation;
+
+import com.beautysalon.booking.availability.SlotAvailabilityIndex;
+import com.beautysalon.booking.entity.Schedule;
+import com.beautysalon.booking.repository.IBookingRepository;
+import com.beautysalon.booking.repository.IScheduleRepository;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Конкретний обробник: перевіряє, що бронювання потрапляє в робоче вікно
+ * майстра і не перетинається з іншим активним бронюванням.
+ * <p>
+ * Режим {@code cluster}: індекс у пам'яті не бачить змін з інших вузлів, тому перевіряється БД -
+ * розклад дня і один діапазонний запит по індексу bookings(master_id, booking_date, booking_time),
+ * вартість якого не залежить від кількості бронювань майстра за всю історію.
+ * <p>
+ * Режим {@code local}: усі бронювання проходять через цей екземпляр, і {@link SlotAvailabilityIndex}
+ * відповідає без звернень до БД. Остаточне рішення в обох режимах приймає
+ * {@link com.beautysalon.booking.availability.SlotReservationService} під блокуванням.
+ */
+public class BookingConflictHandler extends AbstractBookingValidationHandler {
+
+    private final SlotAvailabilityIndex availabilityIndex;
+    private final IBookingRepository bookingRepository;
+    private final IScheduleRepository scheduleRepository;
+    private final boolean clusterMode;
+
+    public BookingConflictHandler(SlotAvailabilityIndex availabilityIndex, IBookingRepository bookingRepository,
+                                  IScheduleRepository scheduleRepository, boolean clusterMode) {
+        this.availabilityIndex = availabilityIndex;
+        this.bookingRepository = bookingRepository;
+        this.scheduleRepository = scheduleRepository;
+        this.clusterMode = clusterMode;
+    }
+
+    @Override
+    public void handle(BookingValidationContext context) {
+        if (clusterMode) {
+            checkDatabase(context);
+        } else {
+            checkIndex(context);
+        }
+
+        handleNext(context);
+    }
+
+    private void checkDatabase(BookingValidationContext context) {
+        LocalDate date = context.getDateTime().toLocalDate();
+        LocalTime start = context.getDateTime().toLocalTime();
+        int startMinute = start.getHour() * 60 + start.getMinute();
+        int endMinute = startMinute + context.getRequestedDurationMinutes();
+
+        List<Schedule> schedules = scheduleRepository.findByMasterMasterIdAndWorkDate(context.getMasterId(), date);
+        if (schedules.isEmpty()) {
+            context.setErrorMessage("Майстер не працює " + date + ".");
+            return;
+        }
+
+        Schedule schedule = schedules.get(0);
+        LocalTime workStart = schedule.getStartTime();
+        LocalTime workEnd = schedule.getEndTime();
+        if (startMinute < workStart.getHour() * 60 + workStart.getMinute()
+                || endMinute > workEnd.getHour() * 60 + workEnd.getMinute()) {
+            context.setErrorMessage("Обраний час поза робочим графіком майстра (" + workStart + " - " + workEnd + ").");
+            return;
+        }
+
+        LocalTime end = start.plusMinutes(context.getRequestedDurationMinutes());
+        if (bookingRepository.existsOverlapping(context.getMasterId(), date, start, end)) {
+            context.setErrorMessage("Обраний час перетинається з іншим бронюванням майстра.");
+        }
+    }
+
+    private void checkIndex(BookingValidationContext context) {
+        LocalDate date = context.getDateTime().toLocalDate();
+        LocalTime start = context.getDateTime().toLocalTime();
+        int duration = context.getRequestedDurationMinutes();
+
+        if (!availabilityIndex.fitsWorkWindow(context.getMasterId(), date, start, duration)) {
+            context.setErrorMessage("Обраний час поза робочим графіком майстра.");
+            return;
+        }
+        if (!availabilityIndex.isFree(context.getMasterId(), date, start, duration)) {
+            context.setErrorMessage("Обраний час перетинається з іншим бронюванням майстра.");
+        }
+    }
+}
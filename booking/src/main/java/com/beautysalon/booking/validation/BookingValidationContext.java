@@ -10,6 +10,8 @@ import java.util.UUID;
 /**
  * DTO (Data Transfer Object), який передається по ланцюжку валідаторів.
  * Він містить як вхідні дані (ID), так і результат (сутності).
+ * Сутності можуть бути заповнені заздалегідь (PrefetchContextHandler) —
+ * тоді обробники існування лише передають контекст далі.
  */
 public class BookingValidationContext {
 
@@ -19,6 +21,9 @@ public class BookingValidationContext {
     private final UUID serviceId;
     private final LocalDateTime dateTime;
 
+    // Додаткова тривалість понад саму послугу (наприклад, VIP-додатки)
+    private int addonMinutes;
+
     // Результати валідації (заповнюються хендлерами)
     private User client;
     private Master master;
@@ -39,6 +44,13 @@ public class BookingValidationContext {
     public UUID getMasterId() { return masterId; }
     public UUID getServiceId() { return serviceId; }
     public LocalDateTime getDateTime() { return dateTime; }
+    public int getAddonMinutes() { return addonMinutes; }
+    public void setAddonMinutes(int addonMinutes) { this.addonMinutes = addonMinutes; }
+
+    // Повна тривалість візиту (доступна після ServiceExistenceHandler)
+    public int getRequestedDurationMinutes() {
+        return service.getDurationMinutes() + addonMinutes;
+    }
     
     public User getClient() { return client; }
     public Master getMaster() { return master; }
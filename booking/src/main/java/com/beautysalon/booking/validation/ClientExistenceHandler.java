@@ -17,6 +17,12 @@ public class ClientExistenceHandler extends AbstractBookingValidationHandler {
 
     @Override
     public void handle(BookingValidationContext context) {
+        // Вже завантажено попереднім обробником (PrefetchContextHandler)
+        if (context.getClient() != null) {
+            handleNext(context);
+            return;
+        }
+
         Optional<User> client = userRepository.findById(context.getClientId());
 
         if (client.isPresent()) {
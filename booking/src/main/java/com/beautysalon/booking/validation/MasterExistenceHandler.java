@@ -17,7 +17,13 @@ public class MasterExistenceHandler extends AbstractBookingValidationHandler {
 
     @Override
     public void handle(BookingValidationContext context) {
-        Optional<Master> master = masterRepository.findById(context.getMasterId());
+        // Вже завантажено попереднім обробником (PrefetchContextHandler)
+        if (context.getMaster() != null) {
+            handleNext(context);
+            return;
+        }
+
+        Optional<Master> master = masterRepository.findWithUserByMasterId(context.getMasterId());
 
         if (master.isPresent()) {
             context.setMaster(master.get()); // Збагачуємо контекст
@@ -0,0 +1,40 @@
+package com.beautysalon.booking.validation;
+
+import com.beautysalon.booking.entity.Service;
+import com.beautysalon.booking.entity.User;
+import com.beautysalon.booking.repository.IServiceRepository;
+
+import java.util.List;
+
+/**
+ * Перший обробник ланцюжка: одним запитом (join fetch) завантажує послугу
+ * разом з майстром і його користувачем, а також клієнта, і заповнює контекст.
+ * Наступні обробники бачать заповнений контекст і не звертаються до БД.
+ * Якщо щось не знайдено, контекст лишається порожнім, і відповідний
+ * обробник сам виконає перевірку та сформує повідомлення про помилку.
+ */
+public class PrefetchContextHandler extends AbstractBookingValidationHandler {
+
+    private final IServiceRepository serviceRepository;
+
+    public PrefetchContextHandler(IServiceRepository serviceRepository) {
+        this.serviceRepository = serviceRepository;
+    }
+
+    @Override
+    public void handle(BookingValidationContext context) {
+        if (context.getServiceId() != null && context.getClientId() != null) {
+            List<Object[]> rows = serviceRepository.findForBooking(context.getServiceId(), context.getClientId());
+            if (!rows.isEmpty()) {
+                Service service = (Service) rows.get(0)[0];
+                context.setService(service);
+                context.setClient((User) rows.get(0)[1]);
+
+                if (service.getMaster() != null && service.getMaster().getMasterId().equals(context.getMasterId())) {
+                    context.setMaster(service.getMaster());
+                }
+            }
+        }
+        handleNext(context);
+    }
+}
@@ -19,6 +19,12 @@ public class ServiceExistenceHandler extends AbstractBookingValidationHandler {
             return; 
         }
 
+        // Вже завантажено попереднім обробником (PrefetchContextHandler)
+        if (context.getService() != null) {
+            handleNext(context);
+            return;
+        }
+
         Optional<com.beautysalon.booking.entity.Service> service = serviceRepository.findById(context.getServiceId());
 
         if (service.isPresent()) {
@@ -0,0 +1,248 @@
+package com.beautysalon.booking.availability;
+
+import com.beautysalon.booking.BookingApplication;
+import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.BookingStatus;
+import com.beautysalon.booking.entity.Role;
+import com.beautysalon.booking.entity.Service;
+import com.beautysalon.booking.repository.IBookingRepository;
+import com.beautysalon.booking.repository.IScheduleRepository;
+import com.beautysalon.booking.repository.IServiceRepository;
+import com.beautysalon.booking.repository.IUserRepository;
+import com.beautysalon.booking.service.BookingService;
+import com.beautysalon.booking.service.TransientFailureException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Режим {@code cluster}: два незалежні контексти застосунку (два "вузли") над однією файловою БД H2
+ * у тимчасовому каталозі. Смугові блокування в пам'яті вузлів не перетинаються, тож бронювання
+ * серіалізує лише SELECT ... FOR UPDATE по рядку розкладу; очікування блокування довше за LOCK_TIMEOUT
+ * дає {@link PessimisticLockingFailureException}, і резервування повторюється.
+ */
+class ClusterReservationTest {
+
+    private static final long LOCK_TIMEOUT_MILLIS = 300;
+    private static final long INDEX_MAX_AGE_SECONDS = 1;
+
+    @TempDir
+    static Path dataDir;
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    private static UUID clientId;
+    private static UUID masterId;
+    private static UUID serviceId;
+    private static LocalDate workDate;
+
+    @BeforeAll
+    static void startNodes() {
+        // Вузли стартують по черзі: дані створює DatabaseInitializer першого, другий бачить непорожню БД
+        nodeA = startNode();
+        nodeB = startNode();
+
+        Service service = nodeA.getBean(IServiceRepository.class).findAll().get(0);
+        serviceId = service.getServiceId();
+        masterId = service.getMaster().getMasterId();
+        clientId = nodeA.getBean(IUserRepository.class).findByRole(Role.CLIENT).get(0).getUserId();
+        workDate = LocalDate.now().plusDays(1);
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    private static ConfigurableApplicationContext startNode() {
+        // Аргументи командного рядка, бо значення за замовчуванням builder'а перекриває application.properties
+        // Обидва контексти в одній JVM відкривають той самий файл; AUTO_SERVER потрібен лише для різних процесів
+        String url = "jdbc:h2:file:" + dataDir.resolve("cluster").toAbsolutePath()
+                + ";MODE=MySQL;LOCK_TIMEOUT=" + LOCK_TIMEOUT_MILLIS;
+        return new SpringApplicationBuilder(BookingApplication.class).run(
+                "--spring.datasource.url=" + url,
+                "--spring.jpa.show-sql=false",
+                "--server.port=0",
+                "--booking.mail.mode=local",
+                "--booking.reservation.mode=cluster",
+                "--booking.reservation.cluster.max-attempts=5",
+                "--booking.availability.max-age-seconds=" + INDEX_MAX_AGE_SECONDS);
+    }
+
+    @Test
+    void availabilityIndexPicksUpBookingsFromTheOtherNode() throws Exception {
+        LocalTime time = LocalTime.of(16, 0);
+        BookingService serviceA = nodeA.getBean(BookingService.class);
+        assertThat(serviceA.getAvailableSlots(masterId, workDate, 60)).contains("16:00");
+
+        nodeB.getBean(BookingService.class)
+                .createBooking(clientId, serviceId, masterId, LocalDateTime.of(workDate, time), false);
+
+        // День у індексі вузла A старіє і перечитується з БД
+        Thread.sleep(TimeUnit.SECONDS.toMillis(INDEX_MAX_AGE_SECONDS) + 200);
+        assertThat(serviceA.getAvailableSlots(masterId, workDate, 60)).doesNotContain("16:00");
+    }
+
+    @Test
+    void overlappingBookingsOnTwoNodesAreSerialisedByTheRowLock() throws Exception {
+        LocalTime first = LocalTime.of(10, 0);
+        LocalTime second = LocalTime.of(10, 30);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                BookingService node = (i % 2 == 0 ? nodeA : nodeB).getBean(BookingService.class);
+                LocalDateTime dateTime = LocalDateTime.of(workDate, i % 4 < 2 ? first : second);
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        node.createBooking(clientId, serviceId, masterId, dateTime, false);
+                        return true;
+                    } catch (RuntimeException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            List<Boolean> outcomes = new ArrayList<>();
+            for (Future<Boolean> future : futures) {
+                outcomes.add(future.get(60, TimeUnit.SECONDS));
+            }
+
+            assertThat(outcomes).containsOnlyOnce(Boolean.TRUE);
+            assertThat(activeStartingWithin(first, second.plusMinutes(1))).hasSize(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void lockedScheduleRowCannotBeLockedFromTheOtherNode() throws Exception {
+        try (RowLockHolder holder = RowLockHolder.lock(nodeA)) {
+            TransactionTemplate transactionB = new TransactionTemplate(nodeB.getBean(PlatformTransactionManager.class));
+            IScheduleRepository schedulesB = nodeB.getBean(IScheduleRepository.class);
+
+            assertThatThrownBy(() -> transactionB.executeWithoutResult(
+                    status -> schedulesB.lockByMasterIdAndWorkDate(masterId, workDate)))
+                    .isInstanceOf(PessimisticLockingFailureException.class);
+            // Звичайне читання блокування не чекає
+            assertThat(schedulesB.findByMasterMasterIdAndWorkDate(masterId, workDate)).hasSize(1);
+        }
+    }
+
+    @Test
+    void reservationIsRetriedUntilTheRowLockIsReleased() throws Exception {
+        LocalTime time = LocalTime.of(13, 0);
+        long holdMillis = LOCK_TIMEOUT_MILLIS * 2;
+        long started;
+        Booking booking;
+        try (RowLockHolder holder = RowLockHolder.lock(nodeA)) {
+            started = System.nanoTime();
+            holder.releaseAfter(holdMillis);
+            // Перша спроба впирається в LOCK_TIMEOUT, наступна отримує рядок після звільнення
+            booking = nodeB.getBean(BookingService.class)
+                    .createBooking(clientId, serviceId, masterId, LocalDateTime.of(workDate, time), false);
+        }
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isGreaterThanOrEqualTo(LOCK_TIMEOUT_MILLIS);
+        assertThat(booking.getBookingTime()).isEqualTo(time);
+        assertThat(activeStartingWithin(time, time.plusMinutes(1))).hasSize(1);
+    }
+
+    @Test
+    void reservationGivesUpWhenTheRowLockIsHeldLongerThanAllAttempts() throws Exception {
+        LocalTime time = LocalTime.of(15, 0);
+        try (RowLockHolder holder = RowLockHolder.lock(nodeA)) {
+            assertThatThrownBy(() -> nodeB.getBean(BookingService.class)
+                    .createBooking(clientId, serviceId, masterId, LocalDateTime.of(workDate, time), false))
+                    .isInstanceOf(TransientFailureException.class);
+        }
+
+        assertThat(activeStartingWithin(time, time.plusMinutes(1))).isEmpty();
+    }
+
+    private List<Booking> activeStartingWithin(LocalTime from, LocalTime to) {
+        return nodeA.getBean(IBookingRepository.class).findByMasterMasterIdAndBookingDate(masterId, workDate).stream()
+                .filter(booking -> booking.getStatus() != BookingStatus.CANCELLED)
+                .filter(booking -> !booking.getBookingTime().isBefore(from) && booking.getBookingTime().isBefore(to))
+                .toList();
+    }
+
+    /**
+     * Тримає SELECT ... FOR UPDATE по розкладу дня у відкритій транзакції вузла в окремому потоці.
+     */
+    private static final class RowLockHolder implements AutoCloseable {
+
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final Thread thread;
+
+        private RowLockHolder(ConfigurableApplicationContext node) throws InterruptedException {
+            TransactionTemplate transaction = new TransactionTemplate(node.getBean(PlatformTransactionManager.class));
+            IScheduleRepository schedules = node.getBean(IScheduleRepository.class);
+            CountDownLatch locked = new CountDownLatch(1);
+            this.thread = new Thread(() -> transaction.executeWithoutResult(status -> {
+                schedules.lockByMasterIdAndWorkDate(masterId, workDate);
+                locked.countDown();
+                try {
+                    release.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }), "row-lock-holder");
+            thread.start();
+            assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+        }
+
+        static RowLockHolder lock(ConfigurableApplicationContext node) throws InterruptedException {
+            return new RowLockHolder(node);
+        }
+
+        void releaseAfter(long millis) {
+            Thread timer = new Thread(() -> {
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                release.countDown();
+            }, "row-lock-release");
+            timer.setDaemon(true);
+            timer.start();
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            release.countDown();
+            thread.join(10_000);
+        }
+    }
+}
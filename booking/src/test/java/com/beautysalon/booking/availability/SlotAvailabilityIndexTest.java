@@ -0,0 +1,37 @@
+package com.beautysalon.booking.availability;
+
+import com.beautysalon.booking.repository.IBookingRepository;
+import com.beautysalon.booking.repository.IScheduleRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Нічне прибирання індексу: дні до сьогодні видаляються, сьогоднішній і майбутні лишаються.
+ * Репозиторії - заглушки без розкладів і бронювань, досить самого факту завантаження дня.
+ */
+class SlotAvailabilityIndexTest {
+
+    @Test
+    void evictionRemovesOnlyDaysBeforeToday() {
+        SlotAvailabilityIndex index = new SlotAvailabilityIndex(mock(IBookingRepository.class),
+                mock(IScheduleRepository.class), new SlotEngine(30), "local", 0);
+        UUID masterId = UUID.randomUUID();
+        LocalDate today = LocalDate.now();
+        for (int offset = -3; offset <= 2; offset++) {
+            index.getAvailableStarts(masterId, today.plusDays(offset), 60);
+        }
+        assertThat(index.cachedDays()).isEqualTo(6);
+
+        index.evictPastDays();
+
+        assertThat(index.cachedDays()).isEqualTo(3);
+        // Минулий день, запитаний знову, просто завантажується заново
+        index.getAvailableStarts(masterId, today.minusDays(1), 60);
+        assertThat(index.cachedDays()).isEqualTo(4);
+    }
+}
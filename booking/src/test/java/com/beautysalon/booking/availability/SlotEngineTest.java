@@ -0,0 +1,104 @@
+package com.beautysalon.booking.availability;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Пошук вільних початків бітовою маскою порівнюється з прямолінійною реалізацією
+ * (перевірка кожного кандидата проти кожного інтервалу бронювання, як до появи {@link SlotEngine})
+ * на випадкових днях для всіх підтримуваних гранулярностей.
+ * Швидкодію міряє JMH-бенчмарк {@code SlotEngineBenchmark} (профіль {@code benchmark}).
+ */
+class SlotEngineTest {
+
+    private static final int[] GRANULARITIES = {5, 15, 30, 60};
+    private static final int DAYS = 2_000;
+
+    @Test
+    void bitmaskSearchMatchesNaiveSearchOnRandomDays() {
+        Random random = new Random(42);
+        for (int granularity : GRANULARITIES) {
+            SlotEngine engine = new SlotEngine(granularity);
+            long[] starts = engine.newDayMask();
+            for (int day = 0; day < DAYS; day++) {
+                Day sample = randomDay(engine, random);
+
+                int found = engine.findStarts(sample.busy, sample.windowStart, sample.windowEnd,
+                        sample.durationCells, starts);
+
+                List<Integer> expected = naiveStarts(sample);
+                assertThat(found).isEqualTo(expected.size());
+                assertThat(cellsOf(starts, engine.getCellsPerDay())).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void intervalCrossingMidnightIsClippedToTheEndOfDay() {
+        SlotEngine engine = new SlotEngine(30);
+
+        assertThat(engine.endCell(LocalTime.of(23, 30), 90)).isEqualTo(engine.getCellsPerDay());
+        assertThat(engine.cellsFor(1)).isEqualTo(1);
+        assertThat(engine.cellCeil(LocalTime.of(9, 1))).isEqualTo(engine.cellFloor(LocalTime.of(9, 30)));
+    }
+
+    private static Day randomDay(SlotEngine engine, Random random) {
+        int granularity = engine.getGranularityMinutes();
+        int cells = engine.getCellsPerDay();
+        int windowStart = random.nextInt(cells / 2);
+        int windowEnd = windowStart + 1 + random.nextInt(cells - windowStart);
+        int durationCells = engine.cellsFor(15 + random.nextInt(180));
+
+        long[] busy = engine.newDayMask();
+        List<int[]> bookings = new ArrayList<>();
+        int count = random.nextInt(12);
+        for (int i = 0; i < count; i++) {
+            LocalTime start = engine.timeOf(random.nextInt(cells)).plusMinutes(random.nextInt(granularity));
+            int duration = 15 + random.nextInt(120);
+            int from = engine.cellFloor(start);
+            int to = engine.endCell(start, duration);
+            bookings.add(new int[]{from, to});
+            for (int cell = from; cell < to; cell++) {
+                SlotEngine.set(busy, cell);
+            }
+        }
+        return new Day(busy, bookings, windowStart, windowEnd, durationCells);
+    }
+
+    // Кожен кандидат перевіряється проти кожного бронювання
+    private static List<Integer> naiveStarts(Day day) {
+        List<Integer> starts = new ArrayList<>();
+        for (int start = day.windowStart; start + day.durationCells <= day.windowEnd; start++) {
+            int end = start + day.durationCells;
+            boolean free = true;
+            for (int[] booking : day.bookings) {
+                if (start < booking[1] && booking[0] < end) {
+                    free = false;
+                    break;
+                }
+            }
+            if (free) {
+                starts.add(start);
+            }
+        }
+        return starts;
+    }
+
+    private static List<Integer> cellsOf(long[] mask, int cellsPerDay) {
+        List<Integer> cells = new ArrayList<>();
+        for (int cell = 0; cell < cellsPerDay; cell++) {
+            if (SlotEngine.isSet(mask, cell)) {
+                cells.add(cell);
+            }
+        }
+        return cells;
+    }
+
+    private record Day(long[] busy, List<int[]> bookings, int windowStart, int windowEnd, int durationCells) {}
+}
@@ -0,0 +1,212 @@
+package com.beautysalon.booking.availability;
+
+import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.BookingStatus;
+import com.beautysalon.booking.entity.Master;
+import com.beautysalon.booking.entity.Role;
+import com.beautysalon.booking.entity.Schedule;
+import com.beautysalon.booking.entity.Service;
+import com.beautysalon.booking.repository.IBookingRepository;
+import com.beautysalon.booking.repository.IMasterRepository;
+import com.beautysalon.booking.repository.IScheduleRepository;
+import com.beautysalon.booking.repository.IServiceRepository;
+import com.beautysalon.booking.repository.IUserRepository;
+import com.beautysalon.booking.service.BookingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Одночасні бронювання одного слоту з багатьох потоків: рівно одне має пройти,
+ * решта - отримати відмову, а в таблиці не може з'явитися двох активних записів, що перетинаються.
+ * Резервування різних майстрів не чекають одне на одного: час паралельного проходу
+ * не росте лінійно з кількістю майстрів. Смуг більше, ніж за замовчуванням, щоб випадковий
+ * збіг смуг кількох майстрів не робив перевірку часу нестабільною.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:slot-reservation;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "booking.mail.mode=local",
+        "booking.reservation.lock-stripes=1024"
+})
+class SlotReservationConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int MASTERS = 8;
+    private static final long HOLD_MILLIS = 250;
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private IBookingRepository bookingRepository;
+    @Autowired
+    private IServiceRepository serviceRepository;
+    @Autowired
+    private IUserRepository userRepository;
+    @Autowired
+    private IMasterRepository masterRepository;
+    @Autowired
+    private IScheduleRepository scheduleRepository;
+    @Autowired
+    private SlotReservationService reservationService;
+
+    private UUID clientId;
+    private UUID masterId;
+    private UUID serviceId;
+    private LocalDate workDate;
+
+    @BeforeEach
+    void seedIds() {
+        // Дані створює DatabaseInitializer: клієнт, майстер, 60-хвилинна послуга і графік на завтра 9:00-18:00
+        Service service = serviceRepository.findAll().get(0);
+        serviceId = service.getServiceId();
+        masterId = service.getMaster().getMasterId();
+        clientId = userRepository.findByRole(Role.CLIENT).get(0).getUserId();
+        workDate = LocalDate.now().plusDays(1);
+    }
+
+    @Test
+    void sameStartTimeIsBookedOnce() throws Exception {
+        LocalTime time = LocalTime.of(10, 0);
+
+        List<Boolean> outcomes = race(THREADS, i -> time);
+
+        assertThat(outcomes).containsOnlyOnce(Boolean.TRUE);
+        assertThat(activeStartingWithin(time, time.plusMinutes(1))).hasSize(1);
+    }
+
+    @Test
+    void overlappingIntervalsWithDifferentStartsAreBookedOnce() throws Exception {
+        // 12:00-13:00 і 12:30-13:30 перетинаються, але унікальний індекс їх не розрізнив би
+        LocalTime first = LocalTime.of(12, 0);
+        LocalTime second = LocalTime.of(12, 30);
+
+        List<Boolean> outcomes = race(THREADS, i -> i % 2 == 0 ? first : second);
+
+        assertThat(outcomes).containsOnlyOnce(Boolean.TRUE);
+        assertThat(activeStartingWithin(first, second.plusMinutes(1))).hasSize(1);
+    }
+
+    @Test
+    void differentMastersAreReservedInParallel() throws Exception {
+        // Кожне резервування тримає свою смугу HOLD_MILLIS: послідовно це зайняло б MASTERS * HOLD_MILLIS
+        List<UUID> masters = newMasters(MASTERS);
+
+        long elapsed = reserveConcurrently(masters, i -> LocalTime.of(10, 0));
+
+        assertThat(elapsed).isLessThan(MASTERS * HOLD_MILLIS / 2);
+    }
+
+    @Test
+    void sameMasterDayIsReservedOneAtATime() throws Exception {
+        // Контроль до попереднього тесту: різний час, але один майстер і день - одна смуга
+        UUID master = newMasters(1).get(0);
+        List<UUID> masters = new ArrayList<>();
+        for (int i = 0; i < MASTERS; i++) {
+            masters.add(master);
+        }
+
+        long elapsed = reserveConcurrently(masters, i -> LocalTime.of(9, 0).plusHours(i));
+
+        assertThat(elapsed).isGreaterThanOrEqualTo(MASTERS * HOLD_MILLIS);
+    }
+
+    private List<UUID> newMasters(int count) {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Master master = masterRepository.save(new Master(null, "Майстер " + i, 1));
+            scheduleRepository.save(new Schedule(master, workDate, LocalTime.of(9, 0), LocalTime.of(18, 0)));
+            ids.add(master.getMasterId());
+        }
+        return ids;
+    }
+
+    // Повертає час від старту до завершення всіх резервувань, мс
+    private long reserveConcurrently(List<UUID> masters, IntFunction<LocalTime> timeOf) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(masters.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < masters.size(); i++) {
+                UUID master = masters.get(i);
+                LocalTime time = timeOf.apply(i);
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return reservationService.reserve(master, workDate, time, 60, () -> {
+                        sleep(HOLD_MILLIS);
+                        return master;
+                    });
+                }));
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<Boolean> race(int threads, IntFunction<LocalTime> timeOf) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                LocalDateTime dateTime = LocalDateTime.of(workDate, timeOf.apply(i));
+                Callable<Boolean> attempt = () -> {
+                    start.await();
+                    try {
+                        bookingService.createBooking(clientId, serviceId, masterId, dateTime, false);
+                        return true;
+                    } catch (RuntimeException e) {
+                        return false;
+                    }
+                };
+                futures.add(pool.submit(attempt));
+            }
+            start.countDown();
+            List<Boolean> outcomes = new ArrayList<>();
+            for (Future<Boolean> future : futures) {
+                outcomes.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return outcomes;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private List<Booking> activeStartingWithin(LocalTime from, LocalTime to) {
+        return bookingRepository.findByMasterMasterIdAndBookingDate(masterId, workDate).stream()
+                .filter(booking -> booking.getStatus() != BookingStatus.CANCELLED)
+                .filter(booking -> !booking.getBookingTime().isBefore(from) && booking.getBookingTime().isBefore(to))
+                .toList();
+    }
+}
@@ -0,0 +1,100 @@
+package com.beautysalon.booking.reminder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Колесо таймерів з тіком 1 мс: перехід комірок рівня 0 через кінець кола, перенесення таймерів
+ * з вищих рівнів у момент їхнього періоду і скасування таймерів на будь-якому рівні.
+ */
+class TimingWheelTest {
+
+    // 64 тіки на рівні 0, 64^2 - межа рівня 1
+    private static final long LEVEL_1 = 64;
+    private static final long LEVEL_2 = 64 * 64;
+
+    @Test
+    void levelZeroWrapsAroundTheEndOfTheWheel() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, 60);
+        wheel.schedule(62, "before-wrap");
+        wheel.schedule(70, "after-wrap");
+
+        assertThat(wheel.advance(62)).containsExactly("before-wrap");
+        assertThat(wheel.advance(69)).isEmpty();
+        assertThat(wheel.advance(70)).containsExactly("after-wrap");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void timersCascadeFromHigherLevelsAndFireOnTheirTick() {
+        TimingWheel<Long> wheel = new TimingWheel<>(1, 0);
+        long[] deadlines = {LEVEL_1 - 1, LEVEL_1, LEVEL_1 + 37, LEVEL_2 - 1, LEVEL_2, LEVEL_2 + LEVEL_1 + 5, 3 * LEVEL_2 + 1};
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+
+        // Крок за кроком: кожен таймер спрацьовує рівно на своєму тіку, не раніше і не пізніше
+        List<Long> fired = new ArrayList<>();
+        for (long now = 1; now <= 3 * LEVEL_2 + 1; now++) {
+            for (Long deadline : wheel.advance(now)) {
+                assertThat(deadline).isEqualTo(now);
+                fired.add(deadline);
+            }
+        }
+        assertThat(fired).containsExactly(LEVEL_1 - 1, LEVEL_1, LEVEL_1 + 37, LEVEL_2 - 1, LEVEL_2,
+                LEVEL_2 + LEVEL_1 + 5, 3 * LEVEL_2 + 1);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void advancingPastSeveralRotationsReturnsTimersInDeadlineOrder() {
+        TimingWheel<Long> wheel = new TimingWheel<>(1, 0);
+        long[] deadlines = {LEVEL_2 + 3, 5, LEVEL_1 * 3, LEVEL_1 + 1};
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+
+        assertThat(wheel.advance(2 * LEVEL_2)).containsExactly(5L, LEVEL_1 + 1, LEVEL_1 * 3, LEVEL_2 + 3);
+    }
+
+    @Test
+    void deadlineInThePastFiresOnTheNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, 100);
+        wheel.schedule(10, "overdue");
+
+        assertThat(wheel.advance(101)).containsExactly("overdue");
+    }
+
+    @Test
+    void cancelledTimersDoNotFireOnAnyLevel() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, 0);
+        TimingWheel.Timeout<String> near = wheel.schedule(10, "near");
+        TimingWheel.Timeout<String> far = wheel.schedule(LEVEL_2 + 10, "far");
+        TimingWheel.Timeout<String> kept = wheel.schedule(10, "kept");
+        assertThat(wheel.size()).isEqualTo(3);
+
+        assertThat(near.cancel()).isTrue();
+        // На тіку LEVEL_2 таймер "far" перенесено з рівня 2 нижче; скасування все одно прибирає його
+        assertThat(wheel.advance(LEVEL_2)).containsExactly("kept");
+        assertThat(far.cancel()).isTrue();
+        assertThat(near.cancel()).isFalse();
+        assertThat(wheel.size()).isZero();
+
+        assertThat(wheel.advance(2 * LEVEL_2)).isEmpty();
+        assertThat(kept.cancel()).isFalse();
+    }
+
+    @Test
+    void firedTimerCannotBeCancelled() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, 0);
+        TimingWheel.Timeout<String> timeout = wheel.schedule(5, "fired");
+
+        assertThat(wheel.advance(5)).containsExactly("fired");
+        assertThat(timeout.cancel()).isFalse();
+        assertThat(wheel.size()).isZero();
+    }
+}
@@ -0,0 +1,194 @@
+package com.beautysalon.booking.service;
+
+import com.beautysalon.booking.dto.BookingPageDto;
+import com.beautysalon.booking.dto.BookingRowDto;
+import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.Role;
+import com.beautysalon.booking.entity.Service;
+import com.beautysalon.booking.repository.IServiceRepository;
+import com.beautysalon.booking.repository.IUserRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Кількість SQL-запитів сторінок зі списками бронювань не залежить від кількості рядків:
+ * зв'язки, які показують сторінки (клієнт, послуга, майстер з користувачем, платіж, відгук),
+ * приходять графом сутностей, а не окремим запитом на кожне бронювання.
+ * Рендеринг імітується доступом до цих зв'язків у тій самій сесії, як з open-in-view.
+ * <p>
+ * Запити рахує {@link CountingStatementInspector} лише в потоці тесту: фонові планувальники
+ * (outbox, нагадування) працюють з тією ж БД, і глобальна статистика Hibernate їх теж врахувала б.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:booking-list-queries;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.beautysalon.booking.service.BookingListQueryCountTest$CountingStatementInspector",
+        "booking.mail.mode=local"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BookingListQueryCountTest {
+
+    private static final LocalTime[] TIMES = {
+            LocalTime.of(9, 0), LocalTime.of(11, 0), LocalTime.of(13, 0), LocalTime.of(15, 0), LocalTime.of(17, 0)
+    };
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private PaymentFacade paymentFacade;
+    @Autowired
+    private IServiceRepository serviceRepository;
+    @Autowired
+    private IUserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnly;
+    private UUID clientId;
+    private UUID masterId;
+    private LocalDate workDate;
+    private UUID paidBookingId;
+
+    @BeforeAll
+    void createBookings() {
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        Service service = serviceRepository.findAll().get(0);
+        masterId = service.getMaster().getMasterId();
+        clientId = userRepository.findByRole(Role.CLIENT).get(0).getUserId();
+        workDate = LocalDate.now().plusDays(1);
+
+        // Бронювання в різних станах: очікує, підтверджене, оплачене, завершене з відгуком
+        for (int i = 0; i < TIMES.length; i++) {
+            Booking booking = bookingService.createBooking(clientId, service.getServiceId(), masterId,
+                    LocalDateTime.of(workDate, TIMES[i]), false);
+            if (i == 0) {
+                continue;
+            }
+            bookingService.confirmBooking(booking.getBookingId());
+            if (i >= 2) {
+                paymentFacade.payForBooking(booking.getBookingId(), "CARD", "4111111111111111");
+                paidBookingId = booking.getBookingId();
+            }
+            if (i == 4) {
+                bookingService.completeBooking(booking.getBookingId());
+                bookingService.addReview(booking.getBookingId(), 5, "Чудово");
+            }
+        }
+    }
+
+    @BeforeEach
+    void resetCounter() {
+        CountingStatementInspector.reset();
+    }
+
+    @Test
+    void clientDashboardLoadsBookingsInOneStatement() {
+        List<Booking> bookings = render(() -> bookingService.getBookingsByClient(clientId),
+                BookingListQueryCountTest::touchDetails);
+
+        assertThat(bookings).hasSize(TIMES.length);
+        assertThat(CountingStatementInspector.count()).isEqualTo(1);
+    }
+
+    @Test
+    void masterDayLoadsBookingsInOneStatement() {
+        List<Booking> bookings = render(() -> bookingService.getBookingsByMasterAndDate(masterId, workDate),
+                BookingListQueryCountTest::touchDaySummary);
+
+        assertThat(bookings).hasSize(TIMES.length);
+        assertThat(CountingStatementInspector.count()).isEqualTo(1);
+    }
+
+    @Test
+    void adminJournalPageLoadsKeysAndDetailsInTwoStatements() {
+        BookingPageDto page = readOnly.execute(status -> {
+            BookingPageDto loaded = bookingService.getBookingsPage(null, masterId, null, null, null, 50);
+            loaded.getBookings().forEach(BookingRowDto::new);
+            return loaded;
+        });
+
+        assertThat(page.getBookings()).hasSize(TIMES.length);
+        assertThat(CountingStatementInspector.count()).isEqualTo(2);
+    }
+
+    @Test
+    void receiptLoadsBookingWithPaymentInOneStatement() {
+        Booking booking = readOnly.execute(status -> {
+            Booking loaded = bookingService.findBookingById(paidBookingId).orElseThrow();
+            touchDetails(loaded);
+            return loaded;
+        });
+
+        assertThat(booking.getPayment()).isNotNull();
+        assertThat(CountingStatementInspector.count()).isEqualTo(1);
+    }
+
+    private List<Booking> render(Supplier<List<Booking>> query, Consumer<Booking> view) {
+        return readOnly.execute(status -> {
+            List<Booking> bookings = query.get();
+            bookings.forEach(view);
+            return bookings;
+        });
+    }
+
+    // Розклад дня в кабінеті майстра: час, клієнт з телефоном, послуга, ціна, статус
+    private static void touchDaySummary(Booking booking) {
+        booking.getClient().getPhone();
+        booking.getService().getName();
+    }
+
+    // Кабінет клієнта і чек: усі зв'язки графа деталей
+    private static void touchDetails(Booking booking) {
+        booking.getClient().getName();
+        booking.getService().getName();
+        booking.getMaster().getUser().getName();
+        if (booking.getPayment() != null) {
+            booking.getPayment().getPaymentStatus();
+        }
+        if (booking.getReview() != null) {
+            booking.getReview().getRating();
+        }
+    }
+
+    /**
+     * Рахує SQL-запити, підготовлені в поточному потоці.
+     */
+    public static class CountingStatementInspector implements StatementInspector {
+
+        private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+        static void reset() {
+            COUNT.get()[0] = 0;
+        }
+
+        static int count() {
+            return COUNT.get()[0];
+        }
+
+        @Override
+        public String inspect(String sql) {
+            COUNT.get()[0]++;
+            return sql;
+        }
+    }
+}
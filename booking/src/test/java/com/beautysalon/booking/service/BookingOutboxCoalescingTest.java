@@ -0,0 +1,117 @@
+package com.beautysalon.booking.service;
+
+import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.BookingOutboxEvent;
+import com.beautysalon.booking.entity.BookingStatus;
+import com.beautysalon.booking.entity.Role;
+import com.beautysalon.booking.entity.Service;
+import com.beautysalon.booking.observer.IBookingObserver;
+import com.beautysalon.booking.repository.IBookingOutboxRepository;
+import com.beautysalon.booking.repository.IServiceRepository;
+import com.beautysalon.booking.repository.IUserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Вікно об'єднання outbox ({@code booking.outbox.coalesce-window-seconds}, тут 2 с): створення бронювання
+ * доставляється одразу, а швидкі наступні зміни статусу - одним повідомленням з останнім статусом.
+ * Ретранслятор запускається з тесту ({@code relayBatch}), фоновий запуск вимкнено.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox-coalescing;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "booking.mail.mode=local",
+        "booking.outbox.poll-interval-ms=3600000",
+        "booking.outbox.coalesce-window-seconds=2"
+})
+class BookingOutboxCoalescingTest {
+
+    private static final long WINDOW_MILLIS = 2000;
+
+    @Autowired
+    private BookingOutboxRelay relay;
+    @Autowired
+    private BookingEventPublisher eventPublisher;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private PaymentFacade paymentFacade;
+    @Autowired
+    private IBookingOutboxRepository outboxRepository;
+    @Autowired
+    private IServiceRepository serviceRepository;
+    @Autowired
+    private IUserRepository userRepository;
+
+    // Статуси, про які повідомлено спостерігача, по порядку
+    private final List<Booking> notified = new CopyOnWriteArrayList<>();
+    private final IBookingObserver observer = notified::add;
+
+    @BeforeEach
+    void subscribe() {
+        eventPublisher.subscribe(observer);
+    }
+
+    @AfterEach
+    void unsubscribe() {
+        eventPublisher.unsubscribe(observer);
+    }
+
+    @Test
+    void createdBookingIsNotifiedWithoutWaitingForTheWindow() {
+        UUID bookingId = newBooking(LocalTime.of(9, 0));
+
+        relay.relayBatch();
+
+        assertThat(statusesOf(bookingId)).containsExactly(BookingStatus.PENDING);
+    }
+
+    @Test
+    void confirmAndPayInsideTheWindowGiveOneNotification() throws Exception {
+        UUID bookingId = newBooking(LocalTime.of(11, 0));
+        relay.relayBatch();
+
+        bookingService.confirmBooking(bookingId);
+        paymentFacade.payForBooking(bookingId, "CARD", "4111111111111111");
+
+        relay.relayBatch();
+        assertThat(statusesOf(bookingId)).containsExactly(BookingStatus.PENDING);
+
+        Thread.sleep(WINDOW_MILLIS + 200);
+        relay.relayBatch();
+
+        assertThat(statusesOf(bookingId)).containsExactly(BookingStatus.PENDING, BookingStatus.PAID);
+        assertThat(outboxRepository.findAll().stream()
+                .filter(event -> event.getBookingId().equals(bookingId))
+                .sorted((a, b) -> Long.compare(a.getId(), b.getId()))
+                .map(BookingOutboxEvent::getState))
+                .containsExactly(BookingOutboxEvent.State.SENT, BookingOutboxEvent.State.COALESCED,
+                        BookingOutboxEvent.State.SENT);
+    }
+
+    private UUID newBooking(LocalTime time) {
+        Service service = serviceRepository.findAll().get(0);
+        return bookingService.createBooking(userRepository.findByRole(Role.CLIENT).get(0).getUserId(),
+                service.getServiceId(), service.getMaster().getMasterId(),
+                LocalDateTime.of(LocalDate.now().plusDays(1), time), false).getBookingId();
+    }
+
+    private List<BookingStatus> statusesOf(UUID bookingId) {
+        return notified.stream()
+                .filter(booking -> booking.getBookingId().equals(bookingId))
+                .map(Booking::getStatus)
+                .toList();
+    }
+}
@@ -0,0 +1,197 @@
+package com.beautysalon.booking.service;
+
+import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.BookingOutboxEvent;
+import com.beautysalon.booking.entity.BookingStatus;
+import com.beautysalon.booking.entity.Master;
+import com.beautysalon.booking.entity.Role;
+import com.beautysalon.booking.entity.Schedule;
+import com.beautysalon.booking.entity.Service;
+import com.beautysalon.booking.observer.IBookingObserver;
+import com.beautysalon.booking.repository.IBookingOutboxRepository;
+import com.beautysalon.booking.repository.IScheduleRepository;
+import com.beautysalon.booking.repository.IServiceRepository;
+import com.beautysalon.booking.repository.IUserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Доставка подій outbox спостерігачам: об'єднання послідовних змін, повторні спроби з затримкою
+ * аж до FAILED і доставка групи масового скасування одним повідомленням.
+ * Ретранслятор запускається з тесту ({@code relayBatch}), фоновий запуск вимкнено;
+ * вікно об'єднання нульове, щоб події були готові одразу.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox-relay;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "booking.mail.mode=local",
+        "booking.outbox.poll-interval-ms=3600000",
+        "booking.outbox.coalesce-window-seconds=0",
+        "booking.outbox.initial-backoff-seconds=1",
+        "booking.outbox.max-attempts=2"
+})
+class BookingOutboxRelayTest {
+
+    @Autowired
+    private BookingOutboxRelay relay;
+    @Autowired
+    private BookingEventPublisher eventPublisher;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private BulkCancellationService bulkCancellationService;
+    @Autowired
+    private IBookingOutboxRepository outboxRepository;
+    @Autowired
+    private IServiceRepository serviceRepository;
+    @Autowired
+    private IUserRepository userRepository;
+    @Autowired
+    private IScheduleRepository scheduleRepository;
+
+    private final RecordingObserver observer = new RecordingObserver();
+    private Service service;
+    private UUID clientId;
+    private LocalDate workDate;
+
+    @BeforeEach
+    void subscribe() {
+        eventPublisher.subscribe(observer);
+        service = serviceRepository.findAll().get(0);
+        clientId = userRepository.findByRole(Role.CLIENT).get(0).getUserId();
+        workDate = LocalDate.now().plusDays(1);
+    }
+
+    @AfterEach
+    void unsubscribe() {
+        eventPublisher.unsubscribe(observer);
+    }
+
+    @Test
+    void latestStatusIsDeliveredAndOlderEventIsCoalesced() {
+        UUID bookingId = newBooking(service.getMaster().getMasterId(), LocalDateTime.of(workDate, LocalTime.of(9, 0)));
+        bookingService.confirmBooking(bookingId);
+
+        relay.relayBatch();
+
+        assertThat(observer.delivered(bookingId)).containsExactly(BookingStatus.CONFIRMED);
+        assertThat(events(bookingId)).extracting(BookingOutboxEvent::getState)
+                .containsExactly(BookingOutboxEvent.State.COALESCED, BookingOutboxEvent.State.SENT);
+    }
+
+    @Test
+    void failingObserverIsRetriedWithBackoffUntilFailed() throws Exception {
+        UUID bookingId = newBooking(service.getMaster().getMasterId(), LocalDateTime.of(workDate, LocalTime.of(11, 0)));
+        observer.failFor(bookingId);
+
+        LocalDateTime firstAttempt = LocalDateTime.now();
+        relay.relayBatch();
+
+        BookingOutboxEvent event = events(bookingId).get(0);
+        assertThat(event.getState()).isEqualTo(BookingOutboxEvent.State.PENDING);
+        assertThat(event.getAttempts()).isEqualTo(1);
+        assertThat(event.getLastError()).contains("Спостерігач недоступний");
+        // Перша затримка - booking.outbox.initial-backoff-seconds
+        assertThat(Duration.between(firstAttempt, event.getNextAttemptAt()).toMillis()).isCloseTo(1000, within(500L));
+
+        // До настання часу повтору подія не береться
+        relay.relayBatch();
+        assertThat(observer.attempts(bookingId)).isEqualTo(1);
+
+        Thread.sleep(Duration.between(LocalDateTime.now(), event.getNextAttemptAt()).toMillis() + 100);
+        relay.relayBatch();
+
+        event = events(bookingId).get(0);
+        assertThat(observer.attempts(bookingId)).isEqualTo(2);
+        assertThat(event.getState()).isEqualTo(BookingOutboxEvent.State.FAILED);
+        assertThat(event.getAttempts()).isEqualTo(2);
+        assertThat(observer.delivered(bookingId)).isEmpty();
+    }
+
+    @Test
+    void groupIsDeliveredAsOneNotification() {
+        // Окремий день майстра, щоб масове скасування не зачепило бронювання інших тестів
+        Master master = service.getMaster();
+        LocalDate day = workDate.plusDays(1);
+        scheduleRepository.save(new Schedule(master, day, LocalTime.of(9, 0), LocalTime.of(18, 0)));
+        UUID first = newBooking(master.getMasterId(), LocalDateTime.of(day, LocalTime.of(10, 0)));
+        UUID second = newBooking(master.getMasterId(), LocalDateTime.of(day, LocalTime.of(14, 0)));
+
+        bulkCancellationService.cancelMasterDay(master.getMasterId(), day);
+        relay.relayBatch();
+
+        assertThat(observer.groups).hasSize(1);
+        assertThat(observer.groups.get(0)).containsExactlyInAnyOrder(first, second);
+        assertThat(observer.delivered(first)).containsExactly(BookingStatus.CANCELLED);
+        assertThat(observer.delivered(second)).containsExactly(BookingStatus.CANCELLED);
+        assertThat(events(first)).extracting(BookingOutboxEvent::getState).endsWith(BookingOutboxEvent.State.SENT);
+        assertThat(events(second)).extracting(BookingOutboxEvent::getState).endsWith(BookingOutboxEvent.State.SENT);
+    }
+
+    private UUID newBooking(UUID masterId, LocalDateTime dateTime) {
+        return bookingService.createBooking(clientId, service.getServiceId(), masterId, dateTime, false).getBookingId();
+    }
+
+    private List<BookingOutboxEvent> events(UUID bookingId) {
+        return outboxRepository.findAll().stream()
+                .filter(event -> event.getBookingId().equals(bookingId))
+                .sorted((a, b) -> Long.compare(a.getId(), b.getId()))
+                .toList();
+    }
+
+    /**
+     * Запам'ятовує статуси доставлених бронювань і склад групових повідомлень;
+     * для позначених бронювань завершується помилкою.
+     */
+    private static class RecordingObserver implements IBookingObserver {
+        private final Map<UUID, List<BookingStatus>> delivered = new ConcurrentHashMap<>();
+        private final Map<UUID, Integer> attempts = new ConcurrentHashMap<>();
+        private final Set<UUID> failing = ConcurrentHashMap.newKeySet();
+        private final List<List<UUID>> groups = new CopyOnWriteArrayList<>();
+
+        void failFor(UUID bookingId) {
+            failing.add(bookingId);
+        }
+
+        List<BookingStatus> delivered(UUID bookingId) {
+            return delivered.getOrDefault(bookingId, List.of());
+        }
+
+        int attempts(UUID bookingId) {
+            return attempts.getOrDefault(bookingId, 0);
+        }
+
+        @Override
+        public void update(Booking booking) {
+            attempts.merge(booking.getBookingId(), 1, Integer::sum);
+            if (failing.contains(booking.getBookingId())) {
+                throw new IllegalStateException("Спостерігач недоступний");
+            }
+            delivered.computeIfAbsent(booking.getBookingId(), id -> new CopyOnWriteArrayList<>()).add(booking.getStatus());
+        }
+
+        @Override
+        public CompletableFuture<Void> updateAllAsync(List<Booking> bookings) {
+            groups.add(bookings.stream().map(Booking::getBookingId).toList());
+            return IBookingObserver.super.updateAllAsync(bookings);
+        }
+    }
+}
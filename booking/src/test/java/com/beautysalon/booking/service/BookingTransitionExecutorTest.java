@@ -0,0 +1,177 @@
+package com.beautysalon.booking.service;
+
+import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.BookingOutboxEvent;
+import com.beautysalon.booking.entity.BookingStatus;
+import com.beautysalon.booking.entity.Role;
+import com.beautysalon.booking.entity.Service;
+import com.beautysalon.booking.repository.IBookingOutboxRepository;
+import com.beautysalon.booking.repository.IBookingRepository;
+import com.beautysalon.booking.repository.IServiceRepository;
+import com.beautysalon.booking.repository.IUserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Повторні спроби переходу при конфлікті версій бронювання. Конфлікт створює або паралельний
+ * перехід у другому потоці, або зміна версії рядка в окремій транзакції між читанням і записом.
+ * Фоновий ретранслятор outbox вимкнено, щоб події лишалися в таблиці для перевірки.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:booking-transitions;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "booking.mail.mode=local",
+        "booking.outbox.poll-interval-ms=3600000",
+        "booking.transitions.max-attempts=3"
+})
+class BookingTransitionExecutorTest {
+
+    @Autowired
+    private BookingTransitionExecutor transitionExecutor;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private IBookingRepository bookingRepository;
+    @Autowired
+    private IBookingOutboxRepository outboxRepository;
+    @Autowired
+    private IServiceRepository serviceRepository;
+    @Autowired
+    private IUserRepository userRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void transitionToTheCurrentStatusIsNotRecorded() {
+        UUID bookingId = newBooking(LocalTime.of(9, 0));
+        bookingService.confirmBooking(bookingId);
+        long version = bookingRepository.findById(bookingId).orElseThrow().getVersion();
+
+        Booking again = bookingService.confirmBooking(bookingId);
+
+        assertThat(again.getStatus()).isEqualTo(BookingStatus.CONFIRMED);
+        assertThat(bookingRepository.findById(bookingId).orElseThrow().getVersion()).isEqualTo(version);
+        assertThat(outboxStatuses(bookingId)).containsExactly(BookingStatus.PENDING, BookingStatus.CONFIRMED);
+    }
+
+    @Test
+    void concurrentCancellationsRetryAndRecordOneEvent() throws Exception {
+        UUID bookingId = newBooking(LocalTime.of(10, 0));
+        // Обидва потоки читають бронювання PENDING однієї версії і лише потім записують
+        CyclicBarrier bothRead = new CyclicBarrier(2);
+        AtomicInteger calls = new AtomicInteger();
+
+        List<CompletableFuture<Booking>> cancellations = List.of(
+                CompletableFuture.supplyAsync(() -> cancelAfterBarrier(bookingId, bothRead, calls)),
+                CompletableFuture.supplyAsync(() -> cancelAfterBarrier(bookingId, bothRead, calls)));
+
+        for (CompletableFuture<Booking> cancellation : cancellations) {
+            assertThat(cancellation.get(30, TimeUnit.SECONDS).getStatus()).isEqualTo(BookingStatus.CANCELLED);
+        }
+        // Переможений потік перечитав бронювання і побачив, що скасовувати вже нічого
+        assertThat(calls).hasValue(3);
+        assertThat(counter("booking.transition.conflicts", "race-cancel")).isEqualTo(1);
+        assertThat(outboxStatuses(bookingId)).containsExactly(BookingStatus.PENDING, BookingStatus.CANCELLED);
+    }
+
+    @Test
+    void conflictOnFirstAttemptIsRetried() {
+        UUID bookingId = newBooking(LocalTime.of(11, 0));
+        AtomicInteger calls = new AtomicInteger();
+
+        Booking confirmed = transitionExecutor.transition(bookingId, "retry-confirm", booking -> {
+            if (calls.incrementAndGet() == 1) {
+                changedElsewhere(bookingId);
+            }
+            booking.confirm();
+        });
+
+        assertThat(confirmed.getStatus()).isEqualTo(BookingStatus.CONFIRMED);
+        assertThat(calls).hasValue(2);
+        assertThat(counter("booking.transition.conflicts", "retry-confirm")).isEqualTo(1);
+        assertThat(counter("booking.transition.retries.exhausted", "retry-confirm")).isZero();
+    }
+
+    @Test
+    void conflictOnEveryAttemptExhaustsRetries() {
+        UUID bookingId = newBooking(LocalTime.of(13, 0));
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> transitionExecutor.transition(bookingId, "exhausted-confirm", booking -> {
+            calls.incrementAndGet();
+            changedElsewhere(bookingId);
+            booking.confirm();
+        })).isInstanceOf(TransientFailureException.class)
+                .hasMessageContaining("Бронювання щойно змінено іншим користувачем");
+
+        assertThat(calls).hasValue(3);
+        assertThat(counter("booking.transition.conflicts", "exhausted-confirm")).isEqualTo(3);
+        assertThat(counter("booking.transition.retries.exhausted", "exhausted-confirm")).isEqualTo(1);
+        assertThat(bookingRepository.findById(bookingId).orElseThrow().getStatus()).isEqualTo(BookingStatus.PENDING);
+        assertThat(outboxStatuses(bookingId)).containsExactly(BookingStatus.PENDING);
+    }
+
+    private Booking cancelAfterBarrier(UUID bookingId, CyclicBarrier bothRead, AtomicInteger calls) {
+        return transitionExecutor.transition(bookingId, "race-cancel", booking -> {
+            if (calls.incrementAndGet() <= 2) {
+                try {
+                    bothRead.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            booking.cancel();
+        });
+    }
+
+    // Інший вузол змінив бронювання й зафіксував зміну, поки поточна транзакція тримає стару версію
+    private void changedElsewhere(UUID bookingId) {
+        TransactionTemplate separate = new TransactionTemplate(transactionManager);
+        separate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        separate.executeWithoutResult(status -> jdbcTemplate.update(
+                "UPDATE bookings SET version = version + 1 WHERE booking_id = ?", bookingId.toString()));
+    }
+
+    private UUID newBooking(LocalTime time) {
+        Service service = serviceRepository.findAll().get(0);
+        return bookingService.createBooking(userRepository.findByRole(Role.CLIENT).get(0).getUserId(),
+                service.getServiceId(), service.getMaster().getMasterId(),
+                LocalDateTime.of(LocalDate.now().plusDays(1), time), false).getBookingId();
+    }
+
+    private List<BookingStatus> outboxStatuses(UUID bookingId) {
+        return outboxRepository.findAll().stream()
+                .filter(event -> event.getBookingId().equals(bookingId))
+                .map(BookingOutboxEvent::getStatus)
+                .toList();
+    }
+
+    private double counter(String name, String action) {
+        Counter counter = meterRegistry.find(name).tag("action", action).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,115 @@
+package com.beautysalon.booking.service;
+
+import com.beautysalon.booking.repository.IIdempotencyRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Повтори з тим самим {@value IdempotencyService#HEADER}: одночасний дублікат не виконує операцію вдруге,
+ * а після її завершення отримує збережену відповідь; тимчасова помилка (виняток або відповідь 503)
+ * звільняє ключ, і повтор виконує операцію знову.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:idempotency;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "booking.mail.mode=local"
+})
+class IdempotencyServiceTest {
+
+    private static final String OPERATION = "test-operation";
+    private static final List<String> REQUEST = List.of("master", "2030-01-01T10:00");
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+    @Autowired
+    private IIdempotencyRepository idempotencyRepository;
+
+    @Test
+    void concurrentDuplicateWaitsAndThenGetsTheStoredResponse() throws Exception {
+        String key = UUID.randomUUID().toString();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+
+        CompletableFuture<ResponseEntity<?>> first = CompletableFuture.supplyAsync(() -> execute(key, () -> {
+            executions.incrementAndGet();
+            started.countDown();
+            await(finish);
+            return new ResponseEntity<>("створено", HttpStatus.CREATED);
+        }));
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        ResponseEntity<?> duplicate = execute(key, () -> {
+            executions.incrementAndGet();
+            return new ResponseEntity<>("дублікат", HttpStatus.CREATED);
+        });
+        assertThat(duplicate.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(duplicate.getHeaders().getFirst("Retry-After")).isEqualTo("1");
+
+        finish.countDown();
+        assertThat(first.get(10, TimeUnit.SECONDS).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+
+        ResponseEntity<?> retried = execute(key, () -> {
+            executions.incrementAndGet();
+            return new ResponseEntity<>("дублікат", HttpStatus.CREATED);
+        });
+        assertThat(retried.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retried.getBody()).isEqualTo("створено");
+        assertThat(retried.getHeaders().getFirst("Idempotent-Replayed")).isEqualTo("true");
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void transientFailureReleasesTheKey() {
+        String key = UUID.randomUUID().toString();
+
+        assertThatThrownBy(() -> execute(key, () -> {
+            throw TransientFailureException.unavailable("Платіжний шлюз тимчасово недоступний.");
+        })).isInstanceOf(TransientFailureException.class);
+        assertThat(idempotencyRepository.existsById(OPERATION + "|" + key)).isFalse();
+
+        ResponseEntity<?> retried = execute(key, () -> new ResponseEntity<>("оплачено", HttpStatus.OK));
+        assertThat(retried.getBody()).isEqualTo("оплачено");
+        assertThat(retried.getHeaders().containsKey("Idempotent-Replayed")).isFalse();
+    }
+
+    @Test
+    void serviceUnavailableResponseReleasesTheKey() {
+        String key = UUID.randomUUID().toString();
+
+        ResponseEntity<?> unavailable = execute(key,
+                () -> new ResponseEntity<>("Сервіс перевантажений.", HttpStatus.SERVICE_UNAVAILABLE));
+        assertThat(unavailable.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(idempotencyRepository.existsById(OPERATION + "|" + key)).isFalse();
+
+        ResponseEntity<?> retried = execute(key, () -> new ResponseEntity<>("оплачено", HttpStatus.OK));
+        assertThat(retried.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(retried.getBody()).isEqualTo("оплачено");
+    }
+
+    private ResponseEntity<?> execute(String key, Supplier<ResponseEntity<?>> action) {
+        return idempotencyService.execute(OPERATION, key, REQUEST, HttpStatus.OK, action);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
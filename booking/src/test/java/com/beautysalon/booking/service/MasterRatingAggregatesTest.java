@@ -0,0 +1,59 @@
+package com.beautysalon.booking.service;
+
+import com.beautysalon.booking.entity.Master;
+import com.beautysalon.booking.repository.IMasterRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Агрегати рейтингу майстра змінюються лише інкрементом у БД: збереження профілю,
+ * завантаженого до нового відгуку, та JSON нового майстра їх не перезаписують.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:master-ratings;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "booking.mail.mode=local"
+})
+class MasterRatingAggregatesTest {
+
+    @Autowired
+    private IMasterRepository masterRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void profileSaveDoesNotOverwriteAConcurrentRatingIncrement() {
+        Master master = masterRepository.save(new Master(null, "Манікюр", 2));
+        Master loadedBeforeReview = masterRepository.findById(master.getMasterId()).orElseThrow();
+
+        new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> masterRepository.addRating(master.getMasterId(), 5));
+        loadedBeforeReview.setExperience(3);
+        masterRepository.save(loadedBeforeReview);
+
+        Master stored = masterRepository.findById(master.getMasterId()).orElseThrow();
+        assertThat(stored.getExperience()).isEqualTo(3);
+        assertThat(stored.getRatingSum()).isEqualTo(5);
+        assertThat(stored.getRatingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void ratingAggregatesAreIgnoredWhenBindingJson() throws Exception {
+        Master master = objectMapper.readValue(
+                "{\"specialization\":\"Візаж\",\"experience\":4,\"ratingSum\":500,\"ratingCount\":100}", Master.class);
+        Master saved = masterRepository.save(master);
+
+        Master stored = masterRepository.findById(saved.getMasterId()).orElseThrow();
+        assertThat(stored.getSpecialization()).isEqualTo("Візаж");
+        assertThat(stored.getRatingSum()).isZero();
+        assertThat(stored.getRatingCount()).isZero();
+    }
+}
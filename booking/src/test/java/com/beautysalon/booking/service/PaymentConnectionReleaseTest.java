@@ -0,0 +1,112 @@
+package com.beautysalon.booking.service;
+
+import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.Role;
+import com.beautysalon.booking.entity.Service;
+import com.beautysalon.booking.payment.PaymentStrategy;
+import com.beautysalon.booking.repository.IServiceRepository;
+import com.beautysalon.booking.repository.IUserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Поки платіжний шлюз обробляє списання, HTTP-запит оплати не тримає з'єднання з пулу:
+ * резерв і фіналізація - окремі короткі транзакції, а сесія open-in-view між ними з'єднання не утримує.
+ * Шлюз імітує стратегія BLOCKING, що чекає сигналу тесту. Фоновий ретранслятор outbox
+ * опитує БД рідко, щоб не займати з'єднання під час заміру.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:payment-connections;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "booking.mail.mode=local",
+        "booking.outbox.poll-interval-ms=3600000"
+})
+class PaymentConnectionReleaseTest {
+
+    private static final CountDownLatch GATEWAY_ENTERED = new CountDownLatch(1);
+    private static final CountDownLatch GATEWAY_RELEASE = new CountDownLatch(1);
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private IServiceRepository serviceRepository;
+    @Autowired
+    private IUserRepository userRepository;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void noConnectionIsHeldWhileTheGatewayIsCharging() throws Exception {
+        Service service = serviceRepository.findAll().get(0);
+        Booking booking = bookingService.createBooking(userRepository.findByRole(Role.CLIENT).get(0).getUserId(),
+                service.getServiceId(), service.getMaster().getMasterId(),
+                LocalDateTime.of(LocalDate.now().plusDays(1), LocalTime.of(14, 0)), false);
+        bookingService.confirmBooking(booking.getBookingId());
+
+        CompletableFuture<ResponseEntity<String>> payment = CompletableFuture.supplyAsync(() -> restTemplate.postForEntity(
+                "/api/v1/bookings/{id}/pay?paymentMethod=BLOCKING&cardNumber=4111111111111111", null, String.class,
+                booking.getBookingId()));
+        try {
+            assertThat(GATEWAY_ENTERED.await(30, TimeUnit.SECONDS)).isTrue();
+
+            HikariDataSource pool = (HikariDataSource) dataSource;
+            for (int i = 0; i < 10; i++) {
+                assertThat(pool.getHikariPoolMXBean().getActiveConnections()).isZero();
+                Thread.sleep(20);
+            }
+        } finally {
+            GATEWAY_RELEASE.countDown();
+        }
+
+        assertThat(payment.get(30, TimeUnit.SECONDS).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @TestConfiguration
+    static class BlockingGatewayConfig {
+
+        @Bean
+        PaymentStrategy blockingPaymentStrategy() {
+            return new PaymentStrategy() {
+                @Override
+                public String getId() {
+                    return "BLOCKING";
+                }
+
+                @Override
+                public boolean processPayment(double amount, String cardNumber) {
+                    GATEWAY_ENTERED.countDown();
+                    try {
+                        return GATEWAY_RELEASE.await(30, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+
+                @Override
+                public boolean processRefund(double amount) {
+                    return true;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.beautysalon.booking.service;
+
+import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.Payment;
+import com.beautysalon.booking.entity.Role;
+import com.beautysalon.booking.entity.Service;
+import com.beautysalon.booking.payment.PaymentStrategy;
+import com.beautysalon.booking.repository.IPaymentRepository;
+import com.beautysalon.booking.repository.IServiceRepository;
+import com.beautysalon.booking.repository.IUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Резерв PENDING, що лишився після падіння під час виклику шлюзу, не списується повторно:
+ * прострочений резерв переходить у RECONCILE, свіжий - блокує паралельну оплату.
+ * Стратегія COUNTING рахує звернення до шлюзу.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:payment-reconcile;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "booking.mail.mode=local",
+        "booking.payment.pending-expiry-minutes=10"
+})
+class PaymentReconcileTest {
+
+    private static final AtomicInteger CHARGES = new AtomicInteger();
+
+    @Autowired
+    private PaymentFacade paymentFacade;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private IPaymentRepository paymentRepository;
+    @Autowired
+    private IServiceRepository serviceRepository;
+    @Autowired
+    private IUserRepository userRepository;
+
+    @BeforeEach
+    void resetCharges() {
+        CHARGES.set(0);
+    }
+
+    @Test
+    void abandonedPendingPaymentGoesToReconcileInsteadOfBeingChargedAgain() {
+        Booking booking = confirmedBooking(LocalTime.of(9, 0));
+        Payment abandoned = pendingPayment(booking, LocalDateTime.now().minusMinutes(30));
+
+        assertThatThrownBy(() -> paymentFacade.payForBooking(booking.getBookingId(), "COUNTING", "4111111111111111"))
+                .hasMessage("Платіж бронювання потребує звірки адміністратором.");
+
+        assertThat(CHARGES).hasValue(0);
+        assertThat(paymentRepository.findById(abandoned.getPaymentId()).orElseThrow().getPaymentStatus())
+                .isEqualTo("RECONCILE");
+    }
+
+    @Test
+    void freshPendingPaymentIsLeftToTheRequestInProgress() {
+        Booking booking = confirmedBooking(LocalTime.of(11, 0));
+        Payment inProgress = pendingPayment(booking, LocalDateTime.now().minusMinutes(1));
+
+        assertThatThrownBy(() -> paymentFacade.payForBooking(booking.getBookingId(), "COUNTING", "4111111111111111"))
+                .hasMessage("Оплата цього бронювання вже обробляється.");
+
+        assertThat(CHARGES).hasValue(0);
+        assertThat(paymentRepository.findById(inProgress.getPaymentId()).orElseThrow().getPaymentStatus())
+                .isEqualTo("PENDING");
+    }
+
+    @Test
+    void bookingWithoutPaymentIsChargedOnce() {
+        Booking booking = confirmedBooking(LocalTime.of(13, 0));
+
+        paymentFacade.payForBooking(booking.getBookingId(), "COUNTING", "4111111111111111");
+
+        assertThat(CHARGES).hasValue(1);
+        assertThat(paymentRepository.findByBookingBookingId(booking.getBookingId()).getPaymentStatus())
+                .isEqualTo("PAID");
+    }
+
+    private Booking confirmedBooking(LocalTime time) {
+        Service service = serviceRepository.findAll().get(0);
+        Booking booking = bookingService.createBooking(userRepository.findByRole(Role.CLIENT).get(0).getUserId(),
+                service.getServiceId(), service.getMaster().getMasterId(),
+                LocalDateTime.of(LocalDate.now().plusDays(1), time), false);
+        return bookingService.confirmBooking(booking.getBookingId());
+    }
+
+    // Резерв, який лишив би запит оплати, що впав під час виклику шлюзу
+    private Payment pendingPayment(Booking booking, LocalDateTime reservedAt) {
+        Payment payment = new Payment(booking, booking.getTotalPrice(), "COUNTING", "PENDING", reservedAt);
+        payment.setCardNumber("4111111111111111");
+        return paymentRepository.saveAndFlush(payment);
+    }
+
+    @TestConfiguration
+    static class CountingGatewayConfig {
+
+        @Bean
+        PaymentStrategy countingPaymentStrategy() {
+            return new PaymentStrategy() {
+                @Override
+                public String getId() {
+                    return "COUNTING";
+                }
+
+                @Override
+                public boolean processPayment(double amount, String cardNumber) {
+                    CHARGES.incrementAndGet();
+                    return true;
+                }
+
+                @Override
+                public boolean processRefund(double amount) {
+                    return true;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.beautysalon.booking.validation;
+
+import com.beautysalon.booking.availability.SlotAvailabilityIndex;
+import com.beautysalon.booking.entity.Booking;
+import com.beautysalon.booking.entity.BookingStatus;
+import com.beautysalon.booking.entity.Role;
+import com.beautysalon.booking.entity.Service;
+import com.beautysalon.booking.repository.IBookingRepository;
+import com.beautysalon.booking.repository.IScheduleRepository;
+import com.beautysalon.booking.repository.IServiceRepository;
+import com.beautysalon.booking.repository.IUserRepository;
+import com.beautysalon.booking.service.BookingService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Перевірка перетинів в обох режимах: по БД ({@code cluster}) і по індексу в пам'яті ({@code local}).
+ * Існуюче бронювання - VIP-пакет 12:00-13:15 (послуга 60 хв + 15 хв додатків), графік 9:00-18:00.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:booking-conflicts;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "booking.mail.mode=local"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BookingConflictHandlerTest {
+
+    private static final String OVERLAP = "Обраний час перетинається з іншим бронюванням майстра.";
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private SlotAvailabilityIndex availabilityIndex;
+    @Autowired
+    private IBookingRepository bookingRepository;
+    @Autowired
+    private IScheduleRepository scheduleRepository;
+    @Autowired
+    private IServiceRepository serviceRepository;
+    @Autowired
+    private IUserRepository userRepository;
+
+    private Service service;
+    private UUID clientId;
+    private UUID masterId;
+    private LocalDate workDate;
+
+    @BeforeAll
+    void createBooking() {
+        service = serviceRepository.findAll().get(0);
+        masterId = service.getMaster().getMasterId();
+        clientId = userRepository.findByRole(Role.CLIENT).get(0).getUserId();
+        workDate = LocalDate.now().plusDays(1);
+
+        bookingService.createBooking(clientId, service.getServiceId(), masterId,
+                LocalDateTime.of(workDate, LocalTime.of(12, 0)), true);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void bookingOverlappingTheStartIsRejected(boolean clusterMode) {
+        assertThat(check(clusterMode, LocalTime.of(11, 30))).isEqualTo(OVERLAP);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void bookingOverlappingTheEndIsRejected(boolean clusterMode) {
+        assertThat(check(clusterMode, LocalTime.of(12, 45))).isEqualTo(OVERLAP);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void bookingInsideAnotherBookingIsRejected(boolean clusterMode) {
+        assertThat(check(clusterMode, LocalTime.of(12, 10))).isEqualTo(OVERLAP);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void bookingEndingWhereAnotherStartsIsAccepted(boolean clusterMode) {
+        assertThat(check(clusterMode, LocalTime.of(11, 0))).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void bookingPastTheEndOfTheWorkingDayIsOutsideWorkingHours(boolean clusterMode) {
+        assertThat(check(clusterMode, LocalTime.of(17, 30))).startsWith("Обраний час поза робочим графіком майстра");
+    }
+
+    @Test
+    void clusterModeSeesASlotFreedBehindTheIndex() {
+        LocalTime time = LocalTime.of(15, 0);
+        Booking booking = bookingService.createBooking(clientId, service.getServiceId(), masterId,
+                LocalDateTime.of(workDate, time), false);
+        assertThat(check(false, time)).isEqualTo(OVERLAP);
+
+        // Скасування на іншому вузлі: рядок змінено в БД, індекс цього вузла про це не знає
+        Booking stored = bookingRepository.findById(booking.getBookingId()).orElseThrow();
+        stored.setStatus(BookingStatus.CANCELLED);
+        bookingRepository.saveAndFlush(stored);
+
+        assertThat(check(true, time)).isNull();
+    }
+
+    private String check(boolean clusterMode, LocalTime time) {
+        BookingConflictHandler handler = new BookingConflictHandler(availabilityIndex, bookingRepository,
+                scheduleRepository, clusterMode);
+        BookingValidationContext context = new BookingValidationContext(clientId, masterId, service.getServiceId(),
+                LocalDateTime.of(workDate, time));
+        context.setService(service);
+        handler.handle(context);
+        return context.getErrorMessage();
+    }
+}